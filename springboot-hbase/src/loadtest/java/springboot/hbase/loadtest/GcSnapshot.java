@@ -0,0 +1,31 @@
+package springboot.hbase.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * 所有收集器累计的GC次数与耗时
+ **/
+final class GcSnapshot {
+	final long count;
+	final long timeMillis;
+
+	private GcSnapshot(long count, long timeMillis) {
+		this.count = count;
+		this.timeMillis = timeMillis;
+	}
+
+	static GcSnapshot take() {
+		long count = 0;
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return new GcSnapshot(count, time);
+	}
+
+	GcSnapshot minus(GcSnapshot before) {
+		return new GcSnapshot(count - before.count, timeMillis - before.timeMillis);
+	}
+}
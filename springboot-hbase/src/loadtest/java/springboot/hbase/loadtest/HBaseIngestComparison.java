@@ -0,0 +1,178 @@
+package springboot.hbase.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.hbase.util.Bytes;
+import springboot.hbase.entity.PutInfo;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 导入吞吐对比：同样的数据分别通过/addOrUpdateData（Put，经过memstore和WAL）和/bulkLoad（生成HFile后加载）写入mini-cluster
+ * <p>
+ * 运行：mvn -Ploadtest verify -Dloadtest.main=springboot.hbase.loadtest.HBaseIngestComparison -Dloadtest.args="rows=1000000 threads=8"
+ * <ul>
+ * <li>rows：导入的行数；columns：每行的列数；regions：两张表相同的预分区数；</li>
+ * <li>batch、threads：Put路径每个请求的行数和并发请求数；bulk路径是一个流式上传的NDJSON请求；</li>
+ * <li>其余带"."的参数作为应用配置，如hbase.bulkload.buffer-size=67108864。</li>
+ * </ul>
+ * 输出两种方式的行/秒、Cell/秒和导入期间的GC耗时（应用与mini-cluster在同一JVM中），最后用/getCount核对行数。
+ **/
+public final class HBaseIngestComparison {
+	private static final byte[] FAMILY = Bytes.toBytes("f");
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Map<String, String> options;
+	private final int rows;
+	private final int columns;
+	private String baseUrl;
+
+	private HBaseIngestComparison(Map<String, String> options) {
+		this.options = options;
+		this.rows = Integer.parseInt(options.getOrDefault("rows", "1000000"));
+		this.columns = Integer.parseInt(options.getOrDefault("columns", "4"));
+	}
+
+	public static void main(String[] args) throws Exception {
+		new HBaseIngestComparison(MiniClusterApplication.parseOptions(args)).run();
+		System.exit(0);
+	}
+
+	private void run() throws Exception {
+		int regions = Integer.parseInt(options.getOrDefault("regions", "8"));
+		try (MiniClusterApplication cluster = new MiniClusterApplication()) {
+			for (String table : new String[]{"ingest_put", "ingest_bulk"}) {
+				cluster.createTable(table, FAMILY, Bytes.toBytes(rowKey(0)), Bytes.toBytes(rowKey(rows - 1)), regions);
+			}
+			baseUrl = cluster.startApplication(options, Collections.emptyMap());
+
+			GcSnapshot gc = GcSnapshot.take();
+			long start = System.nanoTime();
+			putPath("ingest_put");
+			report("put", System.nanoTime() - start, GcSnapshot.take().minus(gc), count("ingest_put"));
+
+			gc = GcSnapshot.take();
+			start = System.nanoTime();
+			String result = bulkPath("ingest_bulk");
+			report("bulkLoad", System.nanoTime() - start, GcSnapshot.take().minus(gc), count("ingest_bulk"));
+			System.out.println("bulkLoad结果: " + result);
+		}
+	}
+
+	/**
+	 * threads个客户端并发发送每批batch行的PUT请求
+	 */
+	private void putPath(String table) throws Exception {
+		int batch = Integer.parseInt(options.getOrDefault("batch", "1000"));
+		int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+		ExecutorService clients = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int from = 0; from < rows; from += batch) {
+			int begin = from;
+			int end = Math.min(from + batch, rows);
+			futures.add(clients.submit(() -> {
+				List<PutInfo> puts = new ArrayList<>((end - begin) * columns);
+				for (int i = begin; i < end; i++) {
+					for (int c = 0; c < columns; c++) {
+						puts.add(new PutInfo(rowKey(i), "f", "q" + c, value(i, c)));
+					}
+				}
+				request("PUT", "/addOrUpdateData/" + table, objectMapper.writeValueAsBytes(puts));
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		clients.shutdown();
+		clients.awaitTermination(1, TimeUnit.MINUTES);
+	}
+
+	/**
+	 * 一个请求流式上传全部数据（NDJSON），客户端不在内存中保留
+	 */
+	private String bulkPath(String table) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + "/bulkLoad/" + table + "?format=ndjson").openConnection();
+		connection.setRequestMethod("POST");
+		connection.setDoOutput(true);
+		connection.setChunkedStreamingMode(64 * 1024);
+		connection.setReadTimeout((int) TimeUnit.HOURS.toMillis(1));
+		connection.setRequestProperty("Content-Type", "application/x-ndjson");
+		try (OutputStream out = new BufferedOutputStream(connection.getOutputStream(), 64 * 1024)) {
+			for (int i = 0; i < rows; i++) {
+				for (int c = 0; c < columns; c++) {
+					out.write(objectMapper.writeValueAsBytes(new PutInfo(rowKey(i), "f", "q" + c, value(i, c))));
+					out.write('\n');
+				}
+			}
+		}
+		return readResponse(connection);
+	}
+
+	private long count(String table) throws IOException {
+		String body = request("GET", "/getCount/" + table, null);
+		return objectMapper.readTree(body).path("data").path("count").asLong();
+	}
+
+	private void report(String path, long nanos, GcSnapshot gc, long counted) {
+		double seconds = nanos / 1e9;
+		System.out.printf("%-9s %d行 %.1fs：%.0f行/秒，%.0f Cell/秒，GC %d次共%dms，/getCount=%d%n",
+						path, rows, seconds, rows / seconds, (double) rows * columns / seconds, gc.count, gc.timeMillis, counted);
+	}
+
+	private String request(String method, String path, byte[] body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+		connection.setRequestMethod(method);
+		connection.setReadTimeout((int) TimeUnit.MINUTES.toMillis(10));
+		if (body != null) {
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", "application/json");
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body);
+			}
+		}
+		return readResponse(connection);
+	}
+
+	private static String readResponse(HttpURLConnection connection) throws IOException {
+		int status = connection.getResponseCode();
+		try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			String body = in == null ? "" : new String(readAll(in), StandardCharsets.UTF_8);
+			if (status >= 300) {
+				throw new IOException(connection.getURL() + "返回" + status + ": " + body);
+			}
+			return body;
+		}
+	}
+
+	private static byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while ((n = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, n);
+		}
+		return out.toByteArray();
+	}
+
+	private static String rowKey(int i) {
+		return String.format("row-%08d", i);
+	}
+
+	private static String value(int row, int column) {
+		return "value-" + row + "-" + column;
+	}
+}
@@ -0,0 +1,310 @@
+package springboot.hbase.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.util.Bytes;
+import springboot.hbase.entity.MultiGetRequest;
+import springboot.hbase.entity.PutInfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 端到端压测：进程内启动HBase mini-cluster，再启动Spring应用连接它，按配置的比例并发调用REST接口
+ * <p>
+ * 运行：mvn -Ploadtest verify -Dloadtest.args="threads=64 duration=120 mix=get:60,put:20,scan:10,count:5,multiGet:5"
+ * <ul>
+ * <li>threads：并发客户端数；warmup/duration：预热、测量时长（秒）；rows：预先写入的行数；regions：预分区数；</li>
+ * <li>mix：各接口的权重，可选get、getValue、put、multiGet、scan（流式扫描limit行）、scanAll（/scanTable整表物化）、count；</li>
+ * <li>batch：每次put、multiGet的行数；limit：每次流式扫描的行数；其余key=value参数原样作为Spring配置传给应用，
+ * 如hbase.connection.mode=pool、hbase.pool.max-size=8。</li>
+ * </ul>
+ * 只启动ZooKeeper和HBase，数据目录在本地文件系统，不启动MiniDFSCluster（HDFS与项目使用的guava 23不兼容）。
+ * 输出每个接口的吞吐、p50/p99/p999延迟、按HTTP状态统计的失败数（503为连接池耗尽，429为写缓冲或异步许可耗尽），
+ * 以及堆峰值和GC次数、耗时；同样的内容写入target/loadtest-report.json，可以在两次运行之间对比。
+ **/
+public final class HBaseLoadTest {
+	private static final String TABLE = "loadtest";
+	private static final byte[] FAMILY = Bytes.toBytes("f");
+	private static final int COLUMNS = 4;
+	private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+	private final Map<String, String> options;
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+	private final int rows;
+	private final int batch;
+	private final int limit;
+	private String baseUrl;
+
+	private HBaseLoadTest(Map<String, String> options) {
+		this.options = options;
+		this.rows = Integer.parseInt(option("rows", "100000"));
+		this.batch = Integer.parseInt(option("batch", "100"));
+		this.limit = Integer.parseInt(option("limit", "1000"));
+		for (String weight : option("mix", "get:60,put:20,scan:10,count:5,multiGet:5").split(",")) {
+			String[] pair = weight.trim().split(":");
+			endpoints.put(pair[0], new Endpoint(pair[0], Integer.parseInt(pair[1])));
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		new HBaseLoadTest(MiniClusterApplication.parseOptions(args)).run();
+		System.exit(0);
+	}
+
+	private void run() throws Exception {
+		try (MiniClusterApplication cluster = new MiniClusterApplication()) {
+			load(cluster);
+			baseUrl = cluster.startApplication(options, Collections.singletonMap("hbase.warmup.tables", TABLE));
+
+			int threads = Integer.parseInt(option("threads", "32"));
+			long warmupSeconds = Long.parseLong(option("warmup", "10"));
+			long durationSeconds = Long.parseLong(option("duration", "60"));
+			System.out.printf("预热%ds%n", warmupSeconds);
+			drive(threads, warmupSeconds);
+			endpoints.values().forEach(Endpoint::reset);
+
+			GcSnapshot gcBefore = GcSnapshot.take();
+			ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+			System.out.printf("测量%ds，%d个客户端%n", durationSeconds, threads);
+			long start = System.nanoTime();
+			drive(threads, durationSeconds);
+			double elapsed = (System.nanoTime() - start) / 1e9;
+			report(elapsed, threads, GcSnapshot.take().minus(gcBefore));
+		}
+	}
+
+	/**
+	 * 建表（按rowkey均匀预分区）并写入rows行，每行COLUMNS列
+	 */
+	private void load(MiniClusterApplication cluster) throws IOException {
+		int regions = Integer.parseInt(option("regions", "8"));
+		long start = System.currentTimeMillis();
+		cluster.createTable(TABLE, FAMILY, Bytes.toBytes(rowKey(0)), Bytes.toBytes(rowKey(rows - 1)), regions);
+		try (Connection connection = cluster.connect();
+				 BufferedMutator mutator = connection.getBufferedMutator(TableName.valueOf(TABLE))) {
+			for (int i = 0; i < rows; i++) {
+				Put put = new Put(Bytes.toBytes(rowKey(i)));
+				for (int c = 0; c < COLUMNS; c++) {
+					put.addColumn(FAMILY, Bytes.toBytes("q" + c), Bytes.toBytes(value(i, c)));
+				}
+				mutator.mutate(put);
+			}
+		}
+		System.out.printf("写入%d行（%d个region）耗时%dms%n", rows, regions, System.currentTimeMillis() - start);
+	}
+
+	/**
+	 * threads个客户端按权重随机选择接口，持续seconds秒
+	 */
+	private void drive(int threads, long seconds) throws InterruptedException {
+		List<Endpoint> weighted = new ArrayList<>();
+		for (Endpoint endpoint : endpoints.values()) {
+			for (int i = 0; i < endpoint.weight; i++) {
+				weighted.add(endpoint);
+			}
+		}
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		ExecutorService clients = Executors.newFixedThreadPool(threads);
+		for (int t = 0; t < threads; t++) {
+			clients.execute(() -> {
+				ThreadLocalRandom random = ThreadLocalRandom.current();
+				while (System.nanoTime() < deadline) {
+					call(weighted.get(random.nextInt(weighted.size())), random);
+				}
+			});
+		}
+		clients.shutdown();
+		clients.awaitTermination(seconds + 600, TimeUnit.SECONDS);
+	}
+
+	private void call(Endpoint endpoint, ThreadLocalRandom random) {
+		int row = random.nextInt(rows);
+		long start = System.nanoTime();
+		int status;
+		try {
+			switch (endpoint.name) {
+				case "get":
+					status = request("GET", "/getResult/" + TABLE + "?rowkey=" + rowKey(row), null);
+					break;
+				case "getValue":
+					status = request("GET", "/getValue/" + TABLE + "/" + rowKey(row) + "/f/q0", null);
+					break;
+				case "put":
+					List<PutInfo> puts = new ArrayList<>(batch);
+					for (int i = 0; i < batch; i++) {
+						int r = random.nextInt(rows);
+						puts.add(new PutInfo(rowKey(r), "f", "q" + random.nextInt(COLUMNS), value(r, random.nextInt(1000))));
+					}
+					status = request("PUT", "/addOrUpdateData/" + TABLE, objectMapper.writeValueAsBytes(puts));
+					break;
+				case "multiGet":
+					List<String> keys = new ArrayList<>(batch);
+					for (int i = 0; i < batch; i++) {
+						keys.add(rowKey(random.nextInt(rows)));
+					}
+					status = request("POST", "/multiGet/" + TABLE, objectMapper.writeValueAsBytes(new MultiGetRequest(keys, null)));
+					break;
+				case "scan":
+					status = request("GET", "/scanTable/" + TABLE + "/stream?startRow=" + rowKey(row) + "&limit=" + limit, null);
+					break;
+				case "scanAll":
+					status = request("GET", "/scanTable/" + TABLE, null);
+					break;
+				case "count":
+					status = request("GET", "/getCount/" + TABLE, null);
+					break;
+				default:
+					throw new IllegalArgumentException("未知的接口: " + endpoint.name);
+			}
+		} catch (IOException e) {
+			status = -1;
+		}
+		endpoint.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), status);
+	}
+
+	/**
+	 * @return HTTP状态码，读完响应体（流式扫描要读到最后一行）才返回
+	 */
+	private int request(String method, String path, byte[] body) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + path).openConnection();
+		connection.setRequestMethod(method);
+		connection.setConnectTimeout(10_000);
+		connection.setReadTimeout(600_000);
+		if (body != null) {
+			connection.setDoOutput(true);
+			connection.setRequestProperty("Content-Type", "application/json");
+			try (OutputStream out = connection.getOutputStream()) {
+				out.write(body);
+			}
+		}
+		int status = connection.getResponseCode();
+		try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+			if (in != null) {
+				byte[] buffer = new byte[8192];
+				while (in.read(buffer) >= 0) {
+					//丢弃，保持连接复用
+				}
+			}
+		}
+		return status;
+	}
+
+	private void report(double elapsedSeconds, int threads, GcSnapshot gc) throws IOException {
+		Map<String, Object> report = new LinkedHashMap<>();
+		report.put("threads", threads);
+		report.put("durationSeconds", elapsedSeconds);
+		report.put("options", options);
+		System.out.printf("%n%-10s %10s %10s %10s %10s %10s %10s  %s%n", "endpoint", "ops/s", "p50(ms)", "p99(ms)", "p999(ms)", "max(ms)", "errors", "status");
+		Map<String, Object> byEndpoint = new LinkedHashMap<>();
+		for (Endpoint endpoint : endpoints.values()) {
+			Histogram h = endpoint.latency;
+			long total = h.getTotalCount();
+			Map<String, Object> stats = new LinkedHashMap<>();
+			stats.put("throughput", total / elapsedSeconds);
+			stats.put("p50Millis", h.getValueAtPercentile(50) / 1000.0);
+			stats.put("p99Millis", h.getValueAtPercentile(99) / 1000.0);
+			stats.put("p999Millis", h.getValueAtPercentile(99.9) / 1000.0);
+			stats.put("maxMillis", h.getMaxValue() / 1000.0);
+			stats.put("errors", endpoint.errors.get());
+			stats.put("statusCounts", endpoint.statusCounts());
+			byEndpoint.put(endpoint.name, stats);
+			System.out.printf("%-10s %10.1f %10.2f %10.2f %10.2f %10.2f %10d  %s%n", endpoint.name, stats.get("throughput"),
+							stats.get("p50Millis"), stats.get("p99Millis"), stats.get("p999Millis"), stats.get("maxMillis"),
+							endpoint.errors.get(), stats.get("statusCounts"));
+		}
+		report.put("endpoints", byEndpoint);
+
+		long peakHeap = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+		Map<String, Object> jvm = new LinkedHashMap<>();
+		jvm.put("peakHeapBytes", peakHeap);
+		jvm.put("maxHeapBytes", Runtime.getRuntime().maxMemory());
+		jvm.put("gcCount", gc.count);
+		jvm.put("gcTimeMillis", gc.timeMillis);
+		report.put("jvm", jvm);
+		System.out.printf("%n堆峰值%dMB / 最大%dMB，GC %d次共%dms（应用与mini-cluster在同一JVM中）%n",
+						peakHeap >> 20, Runtime.getRuntime().maxMemory() >> 20, gc.count, gc.timeMillis);
+
+		File file = new File(option("report", "target/loadtest-report.json"));
+		objectMapper.copy().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+		System.out.println("报告已写入" + file.getAbsolutePath());
+	}
+
+	private String option(String key, String defaultValue) {
+		return options.getOrDefault(key, defaultValue);
+	}
+
+	private static String rowKey(int i) {
+		return String.format("row-%08d", i);
+	}
+
+	private static String value(int row, int column) {
+		return "value-" + row + "-" + column;
+	}
+
+	/**
+	 * 一个接口的延迟直方图（微秒）与按状态码的计数
+	 */
+	private static final class Endpoint {
+		private final String name;
+		private final int weight;
+		private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+		private final AtomicLong errors = new AtomicLong(0);
+		private final ConcurrentHashMap<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+
+		private Endpoint(String name, int weight) {
+			this.name = name;
+			this.weight = weight;
+		}
+
+		private void record(long micros, int status) {
+			latency.recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+			statuses.computeIfAbsent(status, s -> new AtomicLong(0)).incrementAndGet();
+			if (status < 200 || status >= 300) {
+				errors.incrementAndGet();
+			}
+		}
+
+		private void reset() {
+			latency.reset();
+			errors.set(0);
+			statuses.clear();
+		}
+
+		private Map<Integer, Long> statusCounts() {
+			Map<Integer, Long> counts = new LinkedHashMap<>();
+			statuses.forEach((status, count) -> counts.put(status, count.get()));
+			return counts;
+		}
+	}
+}
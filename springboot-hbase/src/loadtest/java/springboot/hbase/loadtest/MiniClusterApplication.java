@@ -0,0 +1,101 @@
+package springboot.hbase.loadtest;
+
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import springboot.hbase.HbaseApplication;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 进程内的HBase mini-cluster（ZooKeeper和一个RegionServer，数据在本地文件系统，不启动MiniDFSCluster）和连接它的应用
+ **/
+final class MiniClusterApplication implements AutoCloseable {
+	private final HBaseTestingUtility util = new HBaseTestingUtility();
+	private ConfigurableApplicationContext context;
+
+	MiniClusterApplication() throws Exception {
+		util.startMiniZKCluster();
+		util.startMiniHBaseCluster(1, 1);
+	}
+
+	/**
+	 * @param args key=value形式的命令行参数
+	 * @return 按出现顺序
+	 */
+	static Map<String, String> parseOptions(String[] args) {
+		Map<String, String> options = new LinkedHashMap<>();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq > 0) {
+				options.put(arg.substring(0, eq), arg.substring(eq + 1));
+			}
+		}
+		return options;
+	}
+
+	/**
+	 * @return 直连mini-cluster的连接，用于建表、准备数据
+	 */
+	Connection connect() throws IOException {
+		return ConnectionFactory.createConnection(util.getConfiguration());
+	}
+
+	/**
+	 * 建表，regions>1时在[firstKey, lastKey]之间均匀预分区
+	 */
+	void createTable(String tableName, byte[] family, byte[] firstKey, byte[] lastKey, int regions) throws IOException {
+		try (Connection connection = connect(); Admin admin = connection.getAdmin()) {
+			HTableDescriptor descriptor = new HTableDescriptor(TableName.valueOf(tableName));
+			descriptor.addFamily(new HColumnDescriptor(family));
+			if (regions > 1) {
+				admin.createTable(descriptor, firstKey, lastKey, regions);
+			} else {
+				admin.createTable(descriptor);
+			}
+		}
+	}
+
+	/**
+	 * 以随机端口启动应用，options中带"."的参数作为应用配置
+	 *
+	 * @return 应用的根URL
+	 */
+	String startApplication(Map<String, String> options, Map<String, Object> defaults) {
+		Map<String, Object> properties = new HashMap<>(defaults);
+		properties.put("server.port", 0);
+		properties.put("hbase.zookeeper.quorum", "localhost");
+		properties.put("hbase.zookeeper.property.clientPort", util.getZkCluster().getClientPort());
+		properties.put("hbase.master", "localhost:0");
+		properties.put("zookeeper.znode.parent", "/hbase");
+		options.forEach((key, value) -> {
+			if (key.contains(".")) {
+				properties.put(key, value);
+			}
+		});
+		SpringApplication application = new SpringApplication(HbaseApplication.class);
+		application.setDefaultProperties(properties);
+		long start = System.currentTimeMillis();
+		context = application.run();
+		System.out.printf("应用启动耗时%dms%n", System.currentTimeMillis() - start);
+		return "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+	}
+
+	@Override
+	public void close() throws Exception {
+		if (context != null) {
+			context.close();
+		}
+		util.shutdownMiniHBaseCluster();
+		util.shutdownMiniZKCluster();
+	}
+}
@@ -0,0 +1,82 @@
+package springboot.hbase.config;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBodyReturnValueHandler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式接口(StreamingResponseBody)的执行线程与超时
+ * <p>
+ * 整表扫描、导出可能持续很久，响应头发出后超时只能截断响应体，客户端拿到200和不完整的数据（gzip时是损坏的文件），
+ * 所以流式接口的超时单独由hbase.stream.timeout设置（默认-1，不超时），其他异步请求仍使用spring.mvc.async.request-timeout。
+ * 流式输出在hbase.stream.max-concurrent个平台线程上执行（虚拟线程模式下每个流一个虚拟线程），
+ * 不再退回Spring默认的SimpleAsyncTaskExecutor（每个流新建一个线程，没有上限）；同时进行的流数由StreamLimiter限制。
+ **/
+@Configuration
+public class AsyncSupportConfig implements WebMvcConfigurer, DisposableBean {
+	private final long streamTimeoutMillis;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;  //虚拟线程执行器由VirtualThreadConfig关闭
+
+	public AsyncSupportConfig(ObjectProvider<VirtualThreadConfig> virtualThreadConfig,
+														@Value("${hbase.stream.max-concurrent:32}") int maxConcurrent,
+														@Value("${hbase.stream.timeout:-1}") long streamTimeoutMillis) {
+		this.streamTimeoutMillis = streamTimeoutMillis;
+		VirtualThreadConfig virtual = virtualThreadConfig.getIfAvailable();
+		if (virtual != null && virtual.getRequestExecutor() != null) {
+			this.executor = virtual.getRequestExecutor();
+			this.ownsExecutor = false;
+		} else {
+			//排队的任务数由StreamLimiter的许可数限制，队列不需要再设上限
+			ThreadPoolExecutor pool = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60L, TimeUnit.SECONDS,
+							new LinkedBlockingQueue<>(),
+							new ThreadFactoryBuilder().setNameFormat("http-stream-%d").setDaemon(true).build());
+			pool.allowCoreThreadTimeOut(true);
+			this.executor = pool;
+			this.ownsExecutor = true;
+		}
+	}
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setTaskExecutor(new ConcurrentTaskExecutor(executor));
+		configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+			@Override
+			public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+				//在异步处理开始之前调用，此时设置的超时对本次请求生效
+				if (request instanceof AsyncWebRequest && isStreamingResponseBody(task)) {
+					((AsyncWebRequest) request).setTimeout(streamTimeoutMillis);
+				}
+			}
+		});
+	}
+
+	/**
+	 * StreamingResponseBody由StreamingResponseBodyReturnValueHandler包装成其内部类的Callable执行
+	 */
+	private static boolean isStreamingResponseBody(Callable<?> task) {
+		return task.getClass().getEnclosingClass() == StreamingResponseBodyReturnValueHandler.class;
+	}
+
+	@Override
+	public void destroy() {
+		if (ownsExecutor) {
+			executor.shutdownNow();
+		}
+	}
+}
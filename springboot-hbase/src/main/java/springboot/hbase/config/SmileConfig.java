@@ -0,0 +1,28 @@
+package springboot.hbase.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+/**
+ * 二进制响应格式：请求头Accept: application/x-jackson-smile时以Smile编码响应
+ * <p>
+ * 开启共享字符串值，同一响应中重复的family/qualifier只编码一次，之后用回引用；Cell的value按原始字节写出。
+ **/
+@Configuration
+public class SmileConfig {
+	@Bean
+	public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+		return new MappingJackson2SmileHttpMessageConverter(builder.factory(smileFactory()).build());
+	}
+
+	/**
+	 * 共享属性名默认开启；共享字符串值只对不超过64字节的字符串生效，正好覆盖family/qualifier
+	 */
+	public static SmileFactory smileFactory() {
+		return new SmileFactory().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+	}
+}
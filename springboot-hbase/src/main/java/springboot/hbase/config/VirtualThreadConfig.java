@@ -0,0 +1,60 @@
+package springboot.hbase.config;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import springboot.hbase.util.VirtualThreads;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * hbase.execution.mode=virtual：Tomcat处理请求、流式接口(StreamingResponseBody)输出都在虚拟线程上执行
+ * <p>
+ * 阻塞的HBaseService调用在等待RPC时卸载虚拟线程，并发请求数不再受server.tomcat.max-threads限制。
+ * 运行在JDK 21以下时打印警告并保持平台线程。HBase客户端批量操作线程池的切换见HBaseBatchExecutor。
+ **/
+@Configuration
+@ConditionalOnProperty(name = "hbase.execution.mode", havingValue = "virtual")
+public class VirtualThreadConfig implements DisposableBean {
+	private final ExecutorService requestExecutor;  //不支持虚拟线程时为null
+
+	public VirtualThreadConfig() {
+		this.requestExecutor = VirtualThreads.enabled("virtual") ? VirtualThreads.newThreadPerTaskExecutor("http-vt-") : null;
+	}
+
+	@Bean
+	public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer() {
+		return factory -> {
+			if (requestExecutor == null) {
+				return;
+			}
+			factory.addConnectorCustomizers(connector -> {
+				ProtocolHandler handler = connector.getProtocolHandler();
+				if (handler instanceof AbstractProtocol) {
+					((AbstractProtocol<?>) handler).setExecutor(requestExecutor);
+				}
+			});
+		};
+	}
+
+	/**
+	 * 流式输出的执行器由AsyncSupportConfig统一设置
+	 *
+	 * @return 虚拟线程执行器，不支持虚拟线程时为null
+	 */
+	public ExecutorService getRequestExecutor() {
+		return requestExecutor;
+	}
+
+	@Override
+	public void destroy() {
+		if (requestExecutor != null) {
+			requestExecutor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,196 @@
+package springboot.hbase.controller;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import springboot.hbase.entity.MultiGetRequest;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.entity.ResponseBody;
+import springboot.hbase.entity.ValueEncoding;
+import springboot.hbase.service.HBaseAsyncExecutor;
+import springboot.hbase.service.HBaseService;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 与HBaseOperationController相同的操作，返回CompletableFuture，HBase调用期间不占用Servlet线程
+ * <p>
+ * 进行中的请求数超过hbase.async.max-in-flight时返回429。流式扫描本身已是异步输出，不在此重复。
+ **/
+@Api(value = "HBase异步操作相关API", tags = "HBase-Async")
+@RestController
+@RequestMapping("/async")
+public class HBaseAsyncOperationController {
+
+	@Autowired
+	private HBaseService hBaseService;
+
+	@Autowired
+	private HBaseAsyncExecutor asyncExecutor;
+
+	@ApiOperation(tags = "HBase-Async", value = "获取HBase中所有表")
+	@GetMapping("/getAllTables")
+	public CompletableFuture<ResponseEntity<ResponseBody>> getListTables() {
+		return ok("tables", () -> hBaseService.getListTables());
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "获取对应HBase表数据的条数，approximate=true时允许返回过期的缓存值")
+	@GetMapping("/getCount/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> countByTableName(@PathVariable(value = "tableName") String tableName,
+																																					@RequestParam(value = "approximate", defaultValue = "false") boolean approximate) {
+		return ok("count", () -> hBaseService.countByTableName(tableName, approximate));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "获取对应HBase表所有rowKey，ordered=false时不保证顺序、吞吐更高")
+	@GetMapping("/getRowKeys/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> getRowKeysByTableName(@PathVariable(value = "tableName") String tableName,
+																																							 @RequestParam(value = "ordered", defaultValue = "true") boolean ordered) {
+		return ok("rowkeys", () -> hBaseService.getRowKeysByTableName(tableName, ordered));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "根据rowkey查询详细信息，encoding为值编码：string/raw/base64/hex/long/double")
+	@GetMapping("/getResult/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> getResultByRowKey(@PathVariable(value = "tableName") String tableName,
+																																					 @RequestParam(value = "rowkey") String rowkey,
+																																					 @RequestParam(value = "encoding", required = false) String encoding) {
+		ValueEncoding valueEncoding = ValueEncoding.of(encoding);
+		return ok("result", () -> hBaseService.getResultByRowKey(tableName, rowkey, valueEncoding));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "获取对应HBase表所有列族")
+	@GetMapping("/getAllFamilies/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> getAllFamiliesByTableName(@PathVariable(value = "tableName") String tableName) {
+		return ok("familyNames", () -> hBaseService.getAllFamiliesByTableName(tableName));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "获取对应HBase表的描述")
+	@GetMapping("/getTableDescription/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> getTableDescriptionByTableName(@PathVariable(value = "tableName") String tableName) {
+		return ok("tableDescription", () -> hBaseService.getDescribeTable(tableName));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "创建新的HBase表")
+	@PostMapping("/createTable/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> createTable(@PathVariable(value = "tableName") String tableName,
+																																		 @RequestBody String[] familyNames) {
+		return ok(() -> hBaseService.createTable(tableName, familyNames));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "删除HBase表")
+	@DeleteMapping("/removeTable/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> removeTable(@PathVariable(value = "tableName") String tableName) {
+		return ok(() -> hBaseService.removeTable(tableName));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "添加新的family")
+	@PutMapping("/addNewFamily/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> addNewFamily(@PathVariable(value = "tableName") String tableName,
+																																			@RequestBody String[] familyNames) {
+		return ok(() -> hBaseService.addNewFamily(tableName, familyNames));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "删除family")
+	@DeleteMapping("/removeFamily/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> removeFamily(@PathVariable(value = "tableName") String tableName,
+																																			@RequestBody String[] familyNames) {
+		return ok(() -> hBaseService.removeFamily(tableName, familyNames));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "获取某个特定限定符的值，encoding为值编码")
+	@GetMapping("/getValue/{tableName}/{rowkey}/{family}/{qualify}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> getValue(@PathVariable("tableName") String tableName,
+																																	@PathVariable("rowkey") String rowkey,
+																																	@PathVariable("family") String family,
+																																	@PathVariable("qualify") String qualify,
+																																	@RequestParam(value = "encoding", required = false) String encoding) {
+		ValueEncoding valueEncoding = ValueEncoding.of(encoding);
+		return ok("value", () -> hBaseService.getValueByKey(tableName, rowkey, family, qualify, valueEncoding));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "添加或修改数据（async=true时写入缓冲区后立即返回批次号），encoding为value的编码")
+	@PutMapping("/addOrUpdateData/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> addOrUpdateData(@PathVariable("tableName") String tableName,
+																																				 @RequestParam(value = "async", defaultValue = "false") boolean async,
+																																				 @RequestParam(value = "encoding", required = false) String encoding,
+																																				 @RequestBody List<PutInfo> puts) {
+		ValueEncoding valueEncoding = ValueEncoding.of(encoding);
+		if (async) {
+			return ok("batchId", () -> hBaseService.addOrUpdateDataAsync(tableName, puts, valueEncoding));
+		}
+		return ok(() -> hBaseService.addOrUpdateData(tableName, puts, valueEncoding));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "查询异步写入批次的状态：flushed/pending/failed/unknown")
+	@GetMapping("/getWriteStatus/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> getWriteStatus(@PathVariable("tableName") String tableName,
+																																				@RequestParam(value = "batchId") long batchId) {
+		//只读内存状态，不需要占用许可
+		return CompletableFuture.completedFuture(response(buildDataMap("status", hBaseService.getWriteStatus(tableName, batchId))));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "批量查询多行，columns为\"family\"或\"family:qualifier\"，结果按rowKeys顺序返回，不存在的行found为false")
+	@PostMapping("/multiGet/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> multiGet(@PathVariable("tableName") String tableName,
+																																	@RequestParam(value = "encoding", required = false) String encoding,
+																																	@RequestBody MultiGetRequest request) {
+		ValueEncoding valueEncoding = ValueEncoding.of(encoding);
+		return ok("rows", () -> hBaseService.multiGet(tableName, request.getRowKeys(), request.getColumns(), valueEncoding));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "扫描全表（整表加载到内存，只适合小表，大表请使用/scanTable/{tableName}/stream）")
+	@GetMapping("/scanTable/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> scanTable(@PathVariable("tableName") String tableName,
+																																	 @RequestParam(value = "encoding", required = false) String encoding) {
+		ValueEncoding valueEncoding = ValueEncoding.of(encoding);
+		return ok("values", () -> hBaseService.scanTable(tableName, valueEncoding));
+	}
+
+	@ApiOperation(tags = "HBase-Async", value = "删除行数据")
+	@DeleteMapping("/removeRow/{tableName}")
+	public CompletableFuture<ResponseEntity<ResponseBody>> removeRow(@PathVariable(value = "tableName") String tableName,
+																																	 @RequestBody List<String> rowKeys) {
+		return ok(() -> hBaseService.removeRow(tableName, rowKeys));
+	}
+
+	/**
+	 * 响应也在执行器线程上构造：不用thenApply，异常不会被包装成CompletionException，GlobalExceptionHandler按原类型处理
+	 */
+	private CompletableFuture<ResponseEntity<ResponseBody>> ok(String key, HBaseAsyncExecutor.Call<?> call) {
+		return asyncExecutor.submit(() -> response(buildDataMap(key, call.call())));
+	}
+
+	private CompletableFuture<ResponseEntity<ResponseBody>> ok(VoidCall call) {
+		return asyncExecutor.submit(() -> {
+			call.call();
+			return response(null);
+		});
+	}
+
+	private static ResponseEntity<ResponseBody> response(Map<String, Object> data) {
+		return ResponseEntity.ok(ResponseBody
+						.builder()
+						.code(200)
+						.data(data)
+						.msg("success")
+						.build());
+	}
+
+	private Map<String, Object> buildDataMap(String key, Object value) {
+		Map<String, Object> data = new HashMap<>();
+		if (!Objects.isNull(value)) {
+			data.put(key, value);
+		}
+		return data;
+	}
+
+	@FunctionalInterface
+	private interface VoidCall {
+		void call() throws Exception;
+	}
+}
@@ -1,15 +1,31 @@
 package springboot.hbase.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import springboot.hbase.entity.MultiGetRequest;
 import springboot.hbase.entity.PutInfo;
 import springboot.hbase.entity.ResponseBody;
+import springboot.hbase.entity.RowKeyEncoding;
+import springboot.hbase.entity.ScanQuery;
+import springboot.hbase.entity.ValueEncoding;
+import springboot.hbase.service.HBaseBulkLoader;
+import springboot.hbase.service.HBaseExportService;
 import springboot.hbase.service.HBaseService;
 
+import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,10 +37,23 @@ import java.util.Objects;
 @Api(value = "HBase操作相关API", tags = "HBase")
 @RestController
 public class HBaseOperationController {
+	private static final String APPLICATION_NDJSON = "application/x-ndjson";
 
 	@Autowired
 	private HBaseService hBaseService;
 
+	@Autowired
+	private HBaseBulkLoader bulkLoader;
+
+	@Autowired
+	private HBaseExportService exportService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private StreamLimiter streamLimiter;
+
 	@ApiOperation(tags = "HBase", value = "获取HBase中所有表")
 	@GetMapping("/getAllTables")
 	public ResponseEntity getListTables() throws IOException {
@@ -36,34 +65,63 @@ public class HBaseOperationController {
 						.build());
 	}
 
-	@ApiOperation(tags = "HBase", value = "获取对应HBase表数据的条数")
+	@ApiOperation(tags = "HBase", value = "获取对应HBase表数据的条数，approximate=true时允许返回过期的缓存值")
 	@GetMapping("/getCount/{tableName}")
-	public ResponseEntity countByTableName(@PathVariable(value = "tableName") String tableName) throws IOException {
+	public ResponseEntity countByTableName(@PathVariable(value = "tableName") String tableName,
+																				 @RequestParam(value = "approximate", defaultValue = "false") boolean approximate) throws IOException {
 		return ResponseEntity.ok(ResponseBody
 						.builder()
-						.data(buildDataMap("count", hBaseService.countByTableName(tableName)))
+						.data(buildDataMap("count", hBaseService.countByTableName(tableName, approximate)))
 						.code(200)
 						.msg("success")
 						.build());
 	}
 
-	@ApiOperation(tags = "HBase", value = "获取对应HBase表所有rowKey")
+	@ApiOperation(tags = "HBase", value = "获取对应HBase表所有rowKey，ordered=false时不保证顺序、吞吐更高")
 	@GetMapping("/getRowKeys/{tableName}")
-	public ResponseEntity getRowKeysByTableName(@PathVariable(value = "tableName") String tableName) throws IOException {
+	public ResponseEntity getRowKeysByTableName(@PathVariable(value = "tableName") String tableName,
+																							@RequestParam(value = "ordered", defaultValue = "true") boolean ordered) throws IOException {
 		return ResponseEntity.ok(ResponseBody
 						.builder()
-						.data(buildDataMap("rowkeys", hBaseService.getRowKeysByTableName(tableName)))
+						.data(buildDataMap("rowkeys", hBaseService.getRowKeysByTableName(tableName, ordered)))
 						.code(200)
 						.msg("success")
 						.build());
 	}
 
-	@ApiOperation(tags = "HBase", value = "根据rowkey查询详细信息")
+	@ApiOperation(tags = "HBase", value = "按rowkey顺序流式输出rowkey，每行一个（keyEncoding=front时为前端编码），达到limit时空行之后输出续扫令牌")
+	@GetMapping(value = "/getRowKeys/{tableName}/stream", produces = MediaType.TEXT_PLAIN_VALUE)
+	public ResponseEntity<StreamingResponseBody> streamRowKeys(@PathVariable("tableName") String tableName,
+																														 @RequestParam(value = "startRow", required = false) String startRow,
+																														 @RequestParam(value = "stopRow", required = false) String stopRow,
+																														 @RequestParam(value = "continuation", required = false) String continuation,
+																														 @RequestParam(value = "limit", defaultValue = "0") int limit,
+																														 @RequestParam(value = "keyEncoding", required = false) String keyEncoding) throws IOException {
+		hBaseService.isExistTable(tableName);
+		RowKeyEncoding rowKeyEncoding = RowKeyEncoding.of(keyEncoding);
+		StreamingResponseBody body = out -> {
+			String[] previous = {null};
+			String next = hBaseService.scanRowKeys(tableName, startRow, stopRow, continuation, limit, rowKey -> {
+				out.write(rowKeyEncoding.encode(previous[0], rowKey).getBytes(StandardCharsets.UTF_8));
+				out.write('\n');
+				previous[0] = rowKey;
+			});
+			if (next != null) {
+				out.write('\n');
+				out.write(next.getBytes(StandardCharsets.UTF_8));
+				out.write('\n');
+			}
+		};
+		return ResponseEntity.ok().contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8)).body(streamLimiter.limit(body));
+	}
+
+	@ApiOperation(tags = "HBase", value = "根据rowkey查询详细信息，encoding为值编码：string/raw/base64/hex/long/double")
 	@GetMapping("/getResult/{tableName}")
-	public ResponseEntity getResultByRowKey(@PathVariable(value = "tableName") String tableName, @RequestParam(value = "rowkey") String rowkey) throws IOException {
+	public ResponseEntity getResultByRowKey(@PathVariable(value = "tableName") String tableName, @RequestParam(value = "rowkey") String rowkey,
+																					@RequestParam(value = "encoding", required = false) String encoding) throws IOException {
 		return ResponseEntity.ok(ResponseBody
 						.builder()
-						.data(buildDataMap("result", hBaseService.getResultByRowKey(tableName, rowkey)))
+						.data(buildDataMap("result", hBaseService.getResultByRowKey(tableName, rowkey, ValueEncoding.of(encoding))))
 						.code(200)
 						.msg("success")
 						.build());
@@ -136,43 +194,221 @@ public class HBaseOperationController {
 	}
 
 
-	@ApiOperation(tags = "HBase", value = "获取某个特定限定符的值")
+	@ApiOperation(tags = "HBase", value = "获取某个特定限定符的值，encoding为值编码")
 	@GetMapping("/getValue/{tableName}/{rowkey}/{family}/{qualify}")
 	public ResponseEntity<ResponseBody> getValue(@PathVariable("tableName") String tableName,
 																							 @PathVariable("rowkey") String rowkey,
 																							 @PathVariable("family") String family,
-																							 @PathVariable("qualify") String qualify) throws IOException {
+																							 @PathVariable("qualify") String qualify,
+																							 @RequestParam(value = "encoding", required = false) String encoding) throws IOException {
 		return ResponseEntity.ok(ResponseBody
 						.builder()
 						.code(200)
-						.data(buildDataMap("value", hBaseService.getValueByKey(tableName, rowkey, family, qualify)))
+						.data(buildDataMap("value", hBaseService.getValueByKey(tableName, rowkey, family, qualify, ValueEncoding.of(encoding))))
 						.msg("success")
 						.build());
 
 	}
 
-	@ApiOperation(tags = "HBase", value = "添加或修改数据")
+	@ApiOperation(tags = "HBase", value = "添加或修改数据（async=true时写入缓冲区后立即返回批次号），encoding为value的编码")
 	@PutMapping("/addOrUpdateData/{tableName}")
-	public ResponseEntity<ResponseBody> addOrUpdateData(@PathVariable("tableName") String tableName, @RequestBody List<PutInfo> puts) throws IOException {
-		hBaseService.addOrUpdateData(tableName, puts);
+	public ResponseEntity<ResponseBody> addOrUpdateData(@PathVariable("tableName") String tableName,
+																											@RequestParam(value = "async", defaultValue = "false") boolean async,
+																											@RequestParam(value = "encoding", required = false) String encoding,
+																											@RequestBody List<PutInfo> puts) throws IOException {
+		ValueEncoding valueEncoding = ValueEncoding.of(encoding);
+		if (async) {
+			return ResponseEntity.ok(ResponseBody
+							.builder()
+							.code(200)
+							.data(buildDataMap("batchId", hBaseService.addOrUpdateDataAsync(tableName, puts, valueEncoding)))
+							.msg("success")
+							.build());
+		}
+		hBaseService.addOrUpdateData(tableName, puts, valueEncoding);
+		return ResponseEntity.ok(ResponseBody
+						.builder()
+						.code(200)
+						.msg("success")
+						.build());
+	}
+
+	@ApiOperation(tags = "HBase", value = "批量导入：请求体为NDJSON（每行一个PutInfo）或CSV（rowKey,family,qualifier,value），"
+					+ "按region生成HFile后加载，不经过memstore和WAL；format未指定时Content-Type为text/csv按CSV解析，否则按NDJSON")
+	@PostMapping("/bulkLoad/{tableName}")
+	public ResponseEntity<ResponseBody> bulkLoad(@PathVariable("tableName") String tableName,
+																							 @RequestParam(value = "format", required = false) String format,
+																							 @RequestParam(value = "encoding", required = false) String encoding,
+																							 HttpServletRequest request) throws IOException {
+		String contentType = request.getContentType();
+		if (format == null && contentType != null && contentType.startsWith("text/csv")) {
+			format = "csv";
+		}
+		return ResponseEntity.ok(ResponseBody
+						.builder()
+						.code(200)
+						.data(buildDataMap("result", bulkLoader.load(tableName, request.getInputStream(),
+										HBaseBulkLoader.Format.of(format), ValueEncoding.of(encoding))))
+						.msg("success")
+						.build());
+	}
+
+	@ApiOperation(tags = "HBase", value = "新建导出任务：按region分片并行导出到gzip压缩的CSV（rowkey,family,qualifier,value）或NDJSON（PutInfo）文件，"
+					+ "立即返回任务ID，进度用/exportJob/{jobId}查询")
+	@PostMapping("/exportTable/{tableName}")
+	public ResponseEntity<ResponseBody> exportTable(@PathVariable("tableName") String tableName,
+																									@RequestParam(value = "format", required = false) String format,
+																									@RequestParam(value = "startRow", required = false) String startRow,
+																									@RequestParam(value = "stopRow", required = false) String stopRow,
+																									@RequestParam(value = "encoding", required = false) String encoding,
+																									@RequestParam(value = "compress", defaultValue = "true") boolean compress) throws IOException {
+		return ResponseEntity.ok(ResponseBody
+						.builder()
+						.code(200)
+						.data(buildDataMap("job", exportService.startJob(tableName, HBaseExportService.Format.of(format),
+										startRow, stopRow, ValueEncoding.of(encoding), compress)))
+						.msg("success")
+						.build());
+	}
+
+	@ApiOperation(tags = "HBase", value = "不落盘导出：按rowkey顺序把表或范围直接输出到下载流，格式同/exportTable/{tableName}")
+	@GetMapping("/exportTable/{tableName}/stream")
+	public ResponseEntity<StreamingResponseBody> streamExportTable(@PathVariable("tableName") String tableName,
+																																 @RequestParam(value = "format", required = false) String format,
+																																 @RequestParam(value = "startRow", required = false) String startRow,
+																																 @RequestParam(value = "stopRow", required = false) String stopRow,
+																																 @RequestParam(value = "encoding", required = false) String encoding,
+																																 @RequestParam(value = "compress", defaultValue = "true") boolean compress) throws IOException {
+		hBaseService.isExistTable(tableName);
+		HBaseExportService.Format exportFormat = HBaseExportService.Format.of(format);
+		ValueEncoding valueEncoding = ValueEncoding.of(encoding);
+		StreamingResponseBody body = out -> exportService.export(tableName, exportFormat, startRow, stopRow, valueEncoding, compress, out);
+		MediaType contentType = compress ? MediaType.parseMediaType("application/gzip")
+						: exportFormat == HBaseExportService.Format.CSV ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+						: MediaType.parseMediaType(APPLICATION_NDJSON);
+		String fileName = tableName.replace(':', '_') + "." + exportFormat.getExtension() + (compress ? ".gz" : "");
+		return ResponseEntity.ok()
+						.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+						.contentType(contentType)
+						.body(streamLimiter.limit(body));
+	}
+
+	@ApiOperation(tags = "HBase", value = "查询导出任务的状态与进度：running/completed/failed，已完成的分片、行数、字节数、每秒行数")
+	@GetMapping("/exportJob/{jobId}")
+	public ResponseEntity<ResponseBody> getExportJob(@PathVariable("jobId") String jobId) throws IOException {
+		return ResponseEntity.ok(ResponseBody
+						.builder()
+						.code(200)
+						.data(buildDataMap("job", exportService.getJob(jobId)))
+						.msg("success")
+						.build());
+	}
+
+	@ApiOperation(tags = "HBase", value = "恢复失败或因重启中断的导出任务，只重新导出未完成的分片")
+	@PostMapping("/exportJob/{jobId}/resume")
+	public ResponseEntity<ResponseBody> resumeExportJob(@PathVariable("jobId") String jobId) throws IOException {
 		return ResponseEntity.ok(ResponseBody
 						.builder()
 						.code(200)
+						.data(buildDataMap("job", exportService.resume(jobId)))
 						.msg("success")
 						.build());
 	}
 
-	@ApiOperation(tags = "HBase", value = "扫描全表")
+	@ApiOperation(tags = "HBase", value = "下载导出任务中已完成的文件")
+	@GetMapping("/exportJob/{jobId}/files/{fileName:.+}")
+	public ResponseEntity<Resource> getExportFile(@PathVariable("jobId") String jobId,
+																								@PathVariable("fileName") String fileName) throws IOException {
+		return ResponseEntity.ok()
+						.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+						.contentType(MediaType.APPLICATION_OCTET_STREAM)
+						.body(new FileSystemResource(exportService.getFile(jobId, fileName)));
+	}
+
+	@ApiOperation(tags = "HBase", value = "查询异步写入批次的状态：flushed/pending/failed/unknown")
+	@GetMapping("/getWriteStatus/{tableName}")
+	public ResponseEntity<ResponseBody> getWriteStatus(@PathVariable("tableName") String tableName,
+																										 @RequestParam(value = "batchId") long batchId) {
+		return ResponseEntity.ok(ResponseBody
+						.builder()
+						.code(200)
+						.data(buildDataMap("status", hBaseService.getWriteStatus(tableName, batchId)))
+						.msg("success")
+						.build());
+	}
+
+	@ApiOperation(tags = "HBase", value = "批量查询多行，columns为\"family\"或\"family:qualifier\"，结果按rowKeys顺序返回，不存在的行found为false")
+	@PostMapping("/multiGet/{tableName}")
+	public ResponseEntity<ResponseBody> multiGet(@PathVariable("tableName") String tableName,
+																							 @RequestParam(value = "encoding", required = false) String encoding,
+																							 @RequestBody MultiGetRequest request) throws IOException {
+		return ResponseEntity.ok(ResponseBody
+						.builder()
+						.code(200)
+						.data(buildDataMap("rows", hBaseService.multiGet(tableName, request.getRowKeys(), request.getColumns(), ValueEncoding.of(encoding))))
+						.msg("success")
+						.build());
+	}
+
+	@ApiOperation(tags = "HBase", value = "扫描全表（整表加载到内存，只适合小表，大表请使用/scanTable/{tableName}/stream）")
 	@GetMapping("/scanTable/{tableName}")
-	public ResponseEntity<ResponseBody> scanTable(@PathVariable("tableName") String tableName) throws IOException {
+	public ResponseEntity<ResponseBody> scanTable(@PathVariable("tableName") String tableName,
+																								@RequestParam(value = "encoding", required = false) String encoding) throws IOException {
 		return ResponseEntity.ok(ResponseBody
 						.builder()
 						.code(200)
-						.data(buildDataMap("values", hBaseService.scanTable(tableName)))
+						.data(buildDataMap("values", hBaseService.scanTable(tableName, ValueEncoding.of(encoding))))
 						.msg("success")
 						.build());
 	}
 
+	@ApiOperation(tags = "HBase", value = "流式扫描表，每行一个JSON对象(NDJSON)，达到limit时最后一行返回续扫令牌continuation")
+	@GetMapping(value = "/scanTable/{tableName}/stream", produces = APPLICATION_NDJSON)
+	public ResponseEntity<StreamingResponseBody> streamScanTable(@PathVariable("tableName") String tableName,
+																															 @RequestParam(value = "startRow", required = false) String startRow,
+																															 @RequestParam(value = "stopRow", required = false) String stopRow,
+																															 @RequestParam(value = "continuation", required = false) String continuation,
+																															 @RequestParam(value = "limit", defaultValue = "0") int limit,
+																															 @RequestParam(value = "encoding", required = false) String encoding) throws IOException {
+		//响应头发出后无法再返回错误码，表不存在、参数错误要在开始输出前判断
+		hBaseService.isExistTable(tableName);
+		ValueEncoding valueEncoding = ValueEncoding.of(encoding);
+		ObjectWriter writer = objectMapper.writer();
+		StreamingResponseBody body = out -> {
+			String next = hBaseService.scanTable(tableName, startRow, stopRow, continuation, limit, valueEncoding, row -> {
+				out.write(writer.writeValueAsBytes(row));
+				out.write('\n');
+			});
+			if (next != null) {
+				out.write(writer.writeValueAsBytes(Collections.singletonMap("continuation", next)));
+				out.write('\n');
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON)).body(streamLimiter.limit(body));
+	}
+
+	@ApiOperation(tags = "HBase", value = "条件查询：rowkey前缀/范围、列投影、列值条件、时间范围、版本数、列分页都在RegionServer上过滤，"
+					+ "结果格式同/scanTable/{tableName}/stream")
+	@PostMapping(value = "/query/{tableName}", produces = APPLICATION_NDJSON)
+	public ResponseEntity<StreamingResponseBody> query(@PathVariable("tableName") String tableName,
+																										 @RequestParam(value = "encoding", required = false) String encoding,
+																										 @RequestBody ScanQuery query) throws IOException {
+		hBaseService.isExistTable(tableName);
+		ValueEncoding valueEncoding = ValueEncoding.of(encoding);
+		ObjectWriter writer = objectMapper.writer();
+		StreamingResponseBody body = out -> {
+			String next = hBaseService.query(tableName, query, valueEncoding, row -> {
+				out.write(writer.writeValueAsBytes(row));
+				out.write('\n');
+			});
+			if (next != null) {
+				out.write(writer.writeValueAsBytes(Collections.singletonMap("continuation", next)));
+				out.write('\n');
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON)).body(streamLimiter.limit(body));
+	}
+
 	@ApiOperation(tags = "HBase", value = "删除行数据")
 	@DeleteMapping("/removeRow/{tableName}")
 	public ResponseEntity removeRow(@PathVariable(value = "tableName") String tableName, @RequestBody List<String> rowKeys) throws IOException {
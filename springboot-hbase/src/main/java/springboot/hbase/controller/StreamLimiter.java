@@ -0,0 +1,45 @@
+package springboot.hbase.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import springboot.hbase.exception.TooManyRequestsException;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * 限制同时进行的流式响应数
+ * <p>
+ * 在返回StreamingResponseBody之前申请许可，此时响应头尚未发出，超过hbase.stream.max-concurrent时客户端收到429；
+ * 许可在响应体写完（包括失败）后释放。流式输出的线程数与许可数相同，见AsyncSupportConfig。
+ **/
+@Component
+public class StreamLimiter {
+	private final Semaphore permits;
+	private final int maxConcurrent;
+
+	@Autowired
+	public StreamLimiter(@Value("${hbase.stream.max-concurrent:32}") int maxConcurrent) {
+		this.maxConcurrent = maxConcurrent;
+		this.permits = new Semaphore(maxConcurrent);
+	}
+
+	/**
+	 * @param body
+	 * @return 写完后释放许可的响应体
+	 * @throws TooManyRequestsException 进行中的流式响应数达到上限
+	 */
+	public StreamingResponseBody limit(StreamingResponseBody body) {
+		if (!permits.tryAcquire()) {
+			throw new TooManyRequestsException("进行中的流式请求数已达上限" + maxConcurrent + "，请稍后重试");
+		}
+		return out -> {
+			try {
+				body.writeTo(out);
+			} finally {
+				permits.release();
+			}
+		};
+	}
+}
@@ -0,0 +1,39 @@
+package springboot.hbase.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 批量导入的结果
+ **/
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkLoadResult implements Serializable {
+	/**
+	 * 读取的记录数
+	 */
+	private long records;
+	/**
+	 * 写入HFile的Cell数（同一批内重复的单元格只保留最后一个）
+	 */
+	private long cells;
+	/**
+	 * 生成的HFile数
+	 */
+	private int hfiles;
+	/**
+	 * 生成的HFile总字节数
+	 */
+	private long hfileBytes;
+	/**
+	 * 排序后落盘的批数，内存中的数据超过hbase.bulkload.buffer-size时落盘一批
+	 */
+	private int spills;
+	private long durationMillis;
+}
@@ -0,0 +1,51 @@
+package springboot.hbase.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 导出任务的状态与进度
+ **/
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ExportJob implements Serializable {
+	private String jobId;
+	private String tableName;
+	private String format;
+	/**
+	 * running/completed/failed
+	 */
+	private String status;
+	/**
+	 * 分片数，每个分片输出一个文件
+	 */
+	private int slices;
+	private int completedSlices;
+	/**
+	 * 已导出的行数、Cell数，包含进行中的分片
+	 */
+	private long rows;
+	private long cells;
+	/**
+	 * 已完成分片的文件总字节数（压缩后）
+	 */
+	private long bytes;
+	/**
+	 * 本次运行（新建或恢复）的耗时与每秒导出行数
+	 */
+	private long elapsedMillis;
+	private double rowsPerSecond;
+	private String directory;
+	/**
+	 * 已完成的文件名，按rowkey顺序排列
+	 */
+	private List<String> files;
+	private String error;
+}
@@ -0,0 +1,22 @@
+package springboot.hbase.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 批量查询请求
+ **/
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MultiGetRequest implements Serializable {
+	private List<String> rowKeys;
+	/**
+	 * 返回的列，"family"表示整个列族，"family:qualifier"表示单列；为空时返回整行
+	 */
+	private List<String> columns;
+}
@@ -0,0 +1,21 @@
+package springboot.hbase.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 批量查询结果中的一行，行不存在时found为false
+ **/
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetRow implements Serializable {
+	private String rowKey;
+	private boolean found;
+	private ResultCells cells;
+}
@@ -0,0 +1,201 @@
+package springboot.hbase.entity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.UTF8JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一行的所有Cell，序列化为与List&lt;ResultInfo&gt;相同的JSON
+ * <p>
+ * 序列化时直接从Cell的底层数组（getXxxArray/getXxxOffset/getXxxLength）写出，
+ * 不复制family/qualifier/value，也不创建String和ResultInfo。
+ * value按{@link ValueEncoding}编码；string编码在支持原生二进制的格式（Smile）中写为原始字节，
+ * family/qualifier写为字符串以便复用共享字符串引用。
+ **/
+@JsonSerialize(using = ResultCells.Serializer.class)
+public final class ResultCells {
+	public static final ResultCells EMPTY = new ResultCells(Result.EMPTY_RESULT, ValueEncoding.STRING);
+	private final Result result;
+	private final ValueEncoding encoding;
+
+	private ResultCells(Result result, ValueEncoding encoding) {
+		this.result = result;
+		this.encoding = encoding;
+	}
+
+	public static ResultCells of(Result result) {
+		return of(result, ValueEncoding.STRING);
+	}
+
+	public static ResultCells of(Result result, ValueEncoding encoding) {
+		return result == null || result.isEmpty() ? EMPTY : new ResultCells(result, encoding);
+	}
+
+	public Result getResult() {
+		return result;
+	}
+
+	public boolean isEmpty() {
+		return result.isEmpty();
+	}
+
+	public int size() {
+		return result.size();
+	}
+
+	/**
+	 * 转换为ResultInfo列表，会复制每个Cell，只在需要DTO时使用
+	 */
+	public List<ResultInfo> toResultInfos() {
+		if (result.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Cell[] cells = result.rawCells();
+		List<ResultInfo> list = new ArrayList<>(cells.length);
+		for (Cell cell : cells) {
+			list.add(ResultInfo.builder()
+							.family(Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength()))
+							.qualifier(Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength()))
+							.value(encoding.encodeToString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()))
+							.timestamp(cell.getTimestamp())
+							.build());
+		}
+		return list;
+	}
+
+	@Override
+	public String toString() {
+		return toResultInfos().toString();
+	}
+
+	public static final class Serializer extends StdSerializer<ResultCells> {
+		private static final SerializableString FAMILY = new SerializedString("family");
+		private static final SerializableString QUALIFIER = new SerializedString("qualifier");
+		private static final SerializableString VALUE = new SerializedString("value");
+		private static final SerializableString TIMESTAMP = new SerializedString("timestamp");
+
+		public Serializer() {
+			super(ResultCells.class);
+		}
+
+		@Override
+		public void serialize(ResultCells value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+			if (gen.canWriteBinaryNatively()) {
+				serializeBinary(value, gen);
+				return;
+			}
+			ValueEncoding encoding = value.encoding;
+			gen.writeStartArray();
+			if (!value.isEmpty()) {
+				for (Cell cell : value.result.rawCells()) {
+					gen.writeStartObject();
+					gen.writeFieldName(FAMILY);
+					writeUtf8(gen, cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength());
+					gen.writeFieldName(QUALIFIER);
+					writeUtf8(gen, cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength());
+					gen.writeFieldName(VALUE);
+					if (encoding == ValueEncoding.STRING) {
+						writeUtf8(gen, cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+					} else {
+						encoding.write(gen, cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+					}
+					gen.writeFieldName(TIMESTAMP);
+					gen.writeNumber(cell.getTimestamp());
+					gen.writeEndObject();
+				}
+			}
+			gen.writeEndArray();
+		}
+
+		private static void serializeBinary(ResultCells value, JsonGenerator gen) throws IOException {
+			ValueEncoding encoding = value.encoding == ValueEncoding.STRING ? ValueEncoding.RAW : value.encoding;
+			gen.writeStartArray();
+			if (!value.isEmpty()) {
+				for (Cell cell : value.result.rawCells()) {
+					gen.writeStartObject();
+					gen.writeFieldName(FAMILY);
+					gen.writeString(Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength()));
+					gen.writeFieldName(QUALIFIER);
+					gen.writeString(Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength()));
+					gen.writeFieldName(VALUE);
+					encoding.write(gen, cell.getValueArray(), cell.getValueOffset(), cell.getValueLength());
+					gen.writeFieldName(TIMESTAMP);
+					gen.writeNumber(cell.getTimestamp());
+					gen.writeEndObject();
+				}
+			}
+			gen.writeEndArray();
+		}
+
+		/**
+		 * 输出到字节流的生成器直接写UTF-8字节（只做JSON转义，不检查编码）；输出到Writer的生成器不支持，
+		 * 不是合法UTF-8的字节（二进制值）也不能原样写出，否则会生成非法的JSON，这两种情况都退回到String（非法字节替换为U+FFFD）
+		 */
+		private static void writeUtf8(JsonGenerator gen, byte[] array, int offset, int length) throws IOException {
+			if (gen instanceof UTF8JsonGenerator && isValidUtf8(array, offset, length)) {
+				gen.writeUTF8String(array, offset, length);
+			} else {
+				gen.writeString(Bytes.toString(array, offset, length));
+			}
+		}
+
+		/**
+		 * 按RFC 3629检查：拒绝过长编码、代理区（U+D800-U+DFFF）和大于U+10FFFF的码点
+		 */
+		static boolean isValidUtf8(byte[] array, int offset, int length) {
+			int i = offset;
+			int end = offset + length;
+			while (i < end) {
+				int b = array[i];
+				if (b >= 0) {
+					i++;
+					continue;
+				}
+				b &= 0xFF;
+				int continuation;
+				int min;
+				int max = 0xBF;
+				if (b >= 0xC2 && b <= 0xDF) {
+					continuation = 1;
+					min = 0x80;
+				} else if (b >= 0xE0 && b <= 0xEF) {
+					continuation = 2;
+					min = b == 0xE0 ? 0xA0 : 0x80;
+					max = b == 0xED ? 0x9F : 0xBF;
+				} else if (b >= 0xF0 && b <= 0xF4) {
+					continuation = 3;
+					min = b == 0xF0 ? 0x90 : 0x80;
+					max = b == 0xF4 ? 0x8F : 0xBF;
+				} else {
+					return false;
+				}
+				if (i + continuation >= end) {  //多字节序列被截断
+					return false;
+				}
+				int second = array[i + 1] & 0xFF;
+				if (second < min || second > max) {
+					return false;
+				}
+				for (int j = 2; j <= continuation; j++) {
+					if ((array[i + j] & 0xC0) != 0x80) {
+						return false;
+					}
+				}
+				i += continuation + 1;
+			}
+			return true;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package springboot.hbase.entity;
+
+import springboot.hbase.exception.InvalidParameterException;
+
+import java.util.Locale;
+
+/**
+ * 流式输出rowkey的行格式，每个rowkey一行（rowkey不能为空，空行之后是续扫令牌）
+ * <ul>
+ * <li>PLAIN：rowkey原文；</li>
+ * <li>FRONT：前端编码，"与上一个rowkey相同前缀的字符数\t其余部分"，有序的rowkey共享前缀长，输出只有后缀。
+ * 解码时取上一个rowkey的前n个字符再拼接后缀，第一个rowkey的n为0。</li>
+ * </ul>
+ **/
+public enum RowKeyEncoding {
+	PLAIN, FRONT;
+
+	/**
+	 * @param name 不区分大小写，为空时返回PLAIN
+	 * @return
+	 */
+	public static RowKeyEncoding of(String name) {
+		if (name == null || name.isEmpty()) {
+			return PLAIN;
+		}
+		try {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidParameterException("不支持的rowkey编码: " + name + "，可选plain/front");
+		}
+	}
+
+	/**
+	 * @param previous 上一个rowkey，第一个为null
+	 * @param rowKey
+	 * @return 不含换行符的一行
+	 */
+	public String encode(String previous, String rowKey) {
+		if (this == PLAIN) {
+			return rowKey;
+		}
+		int shared = 0;
+		if (previous != null) {
+			int max = Math.min(previous.length(), rowKey.length());
+			while (shared < max && previous.charAt(shared) == rowKey.charAt(shared)) {
+				shared++;
+			}
+			//不拆开代理对，后缀总是合法的UTF-16
+			if (shared > 0 && shared < rowKey.length() && Character.isHighSurrogate(rowKey.charAt(shared - 1))) {
+				shared--;
+			}
+		}
+		return shared + "\t" + rowKey.substring(shared);
+	}
+
+	/**
+	 * @param previous 上一个解码出的rowkey，第一个为null
+	 * @param line     encode输出的一行
+	 * @return
+	 */
+	public String decode(String previous, String line) {
+		if (this == PLAIN) {
+			return line;
+		}
+		int tab = line.indexOf('\t');
+		if (tab <= 0) {
+			throw new InvalidParameterException("前端编码的行格式应为\"前缀长度\\t后缀\": " + line);
+		}
+		int shared = Integer.parseInt(line.substring(0, tab));
+		return (shared == 0 ? "" : previous.substring(0, shared)) + line.substring(tab + 1);
+	}
+}
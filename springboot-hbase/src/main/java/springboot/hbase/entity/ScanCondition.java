@@ -0,0 +1,34 @@
+package springboot.hbase.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 条件查询中对某一列值的比较条件，按字节序比较
+ **/
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanCondition implements Serializable {
+	/**
+	 * "family:qualifier"
+	 */
+	private String column;
+	/**
+	 * 比较方式：=、!=、<、<=、>、>=、prefix（值以value开头）
+	 */
+	private String op;
+	/**
+	 * 比较的值，按请求的encoding解码成字节
+	 */
+	private String value;
+	/**
+	 * 为true时没有该列的行也返回，默认不返回
+	 */
+	private boolean includeMissing;
+}
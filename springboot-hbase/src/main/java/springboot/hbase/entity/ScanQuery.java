@@ -0,0 +1,75 @@
+package springboot.hbase.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 条件查询请求，所有条件都转换成HBase的Scan和Filter，在RegionServer上过滤，只有匹配的Cell返回给客户端
+ **/
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanQuery implements Serializable {
+	/**
+	 * rowkey前缀，转换成扫描的起止范围
+	 */
+	private String prefix;
+	/**
+	 * 起始rowkey（包含），与prefix同时指定时取两者的交集
+	 */
+	private String startRow;
+	/**
+	 * 结束rowkey（不包含）
+	 */
+	private String stopRow;
+	/**
+	 * 上一次查询返回的续扫令牌，不为空时从令牌处继续
+	 */
+	private String continuation;
+	/**
+	 * 最多返回的行数，<=0不限制
+	 */
+	private int limit;
+	/**
+	 * 返回的列，"family"表示整个列族，"family:qualifier"表示单列；为空时返回所有列
+	 */
+	private List<String> columns;
+	/**
+	 * 只返回qualifier以此开头的列
+	 */
+	private String qualifierPrefix;
+	/**
+	 * 列值条件
+	 */
+	private List<ScanCondition> conditions;
+	/**
+	 * 为true时满足任一条件即返回，默认需要满足全部条件
+	 */
+	private boolean matchAny;
+	/**
+	 * 时间戳下界（包含），为空时不限制
+	 */
+	private Long minTimestamp;
+	/**
+	 * 时间戳上界（不包含），为空时不限制
+	 */
+	private Long maxTimestamp;
+	/**
+	 * 每列返回的版本数，<=1只返回最新版本
+	 */
+	private int maxVersions;
+	/**
+	 * 每行跳过的列数
+	 */
+	private int columnOffset;
+	/**
+	 * 每行最多返回的列数，<=0不限制
+	 */
+	private int columnLimit;
+}
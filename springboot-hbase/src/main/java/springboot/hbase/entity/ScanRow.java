@@ -0,0 +1,20 @@
+package springboot.hbase.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 扫描结果中的一行
+ **/
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanRow implements Serializable {
+	private String rowKey;
+	private ResultCells cells;
+}
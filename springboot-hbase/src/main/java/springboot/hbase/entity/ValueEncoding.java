@@ -0,0 +1,151 @@
+package springboot.hbase.entity;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.hadoop.hbase.util.Bytes;
+import springboot.hbase.exception.InvalidParameterException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * Cell值在接口中的编码方式
+ * <ul>
+ * <li>string：UTF-8字符串（默认，与原来一致），非UTF-8的字节会被替换，只适合文本；</li>
+ * <li>raw：原始字节，JSON中为Jackson的base64，Smile中为原生二进制；</li>
+ * <li>base64、hex：字符串形式的二进制；</li>
+ * <li>long、double：按Bytes.toBytes(long/double)写入的8字节数值，长度不是8字节的值退回为base64字符串。</li>
+ * </ul>
+ **/
+public enum ValueEncoding {
+	STRING, RAW, BASE64, HEX, LONG, DOUBLE;
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * @param name 不区分大小写，为空时返回null
+	 * @return
+	 */
+	public static ValueEncoding of(String name) {
+		if (name == null || name.isEmpty()) {
+			return null;
+		}
+		try {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidParameterException("不支持的值编码: " + name + "，可选string/raw/base64/hex/long/double");
+		}
+	}
+
+	/**
+	 * 把写入接口传来的值解码成要写入HBase的字节
+	 *
+	 * @param value
+	 * @return
+	 */
+	public byte[] decode(String value) {
+		try {
+			switch (this) {
+				case RAW:
+				case BASE64:
+					return Base64.getDecoder().decode(value);
+				case HEX:
+					return fromHex(value);
+				case LONG:
+					return Bytes.toBytes(Long.parseLong(value.trim()));
+				case DOUBLE:
+					return Bytes.toBytes(Double.parseDouble(value.trim()));
+				default:
+					return Bytes.toBytes(value);
+			}
+		} catch (IllegalArgumentException e) {
+			throw new InvalidParameterException("值不是合法的" + name().toLowerCase(Locale.ROOT) + "编码: " + value);
+		}
+	}
+
+	/**
+	 * 编码成字符串，用于只返回单个值的接口
+	 */
+	public String encodeToString(byte[] array, int offset, int length) {
+		switch (this) {
+			case RAW:
+			case BASE64:
+				return base64(array, offset, length);
+			case HEX:
+				return new String(toHex(array, offset, length));
+			case LONG:
+				return length == Bytes.SIZEOF_LONG ? String.valueOf(Bytes.toLong(array, offset)) : base64(array, offset, length);
+			case DOUBLE:
+				return length == Bytes.SIZEOF_DOUBLE ? String.valueOf(Bytes.toDouble(array, offset)) : base64(array, offset, length);
+			default:
+				return Bytes.toString(array, offset, length);
+		}
+	}
+
+	/**
+	 * 写入JSON/Smile生成器；string编码一般由调用方按生成器类型选择零拷贝或原生二进制的写法
+	 */
+	void write(JsonGenerator gen, byte[] array, int offset, int length) throws IOException {
+		switch (this) {
+			case RAW:
+				gen.writeBinary(array, offset, length);
+				break;
+			case HEX:
+				char[] hex = toHex(array, offset, length);
+				gen.writeString(hex, 0, hex.length);
+				break;
+			case LONG:
+				if (length == Bytes.SIZEOF_LONG) {
+					gen.writeNumber(Bytes.toLong(array, offset));
+				} else {
+					gen.writeString(base64(array, offset, length));
+				}
+				break;
+			case DOUBLE:
+				if (length == Bytes.SIZEOF_DOUBLE) {
+					gen.writeNumber(Bytes.toDouble(array, offset));
+				} else {
+					gen.writeString(base64(array, offset, length));
+				}
+				break;
+			case BASE64:
+				gen.writeString(base64(array, offset, length));
+				break;
+			default:
+				gen.writeString(Bytes.toString(array, offset, length));
+		}
+	}
+
+	private static String base64(byte[] array, int offset, int length) {
+		ByteBuffer encoded = Base64.getEncoder().encode(ByteBuffer.wrap(array, offset, length));
+		return new String(encoded.array(), 0, encoded.remaining(), StandardCharsets.ISO_8859_1);
+	}
+
+	private static char[] toHex(byte[] array, int offset, int length) {
+		char[] chars = new char[length * 2];
+		for (int i = 0; i < length; i++) {
+			int b = array[offset + i] & 0xFF;
+			chars[2 * i] = HEX_DIGITS[b >>> 4];
+			chars[2 * i + 1] = HEX_DIGITS[b & 0x0F];
+		}
+		return chars;
+	}
+
+	private static byte[] fromHex(String hex) {
+		if (hex.length() % 2 != 0) {
+			throw new IllegalArgumentException("hex长度必须为偶数");
+		}
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			int hi = Character.digit(hex.charAt(2 * i), 16);
+			int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+			if (hi < 0 || lo < 0) {
+				throw new IllegalArgumentException("非法的hex字符");
+			}
+			bytes[i] = (byte) ((hi << 4) | lo);
+		}
+		return bytes;
+	}
+}
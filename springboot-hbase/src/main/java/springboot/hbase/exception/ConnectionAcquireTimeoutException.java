@@ -0,0 +1,10 @@
+package springboot.hbase.exception;
+
+/**
+ * 在超时时间内没有获取到HBase连接
+ **/
+public class ConnectionAcquireTimeoutException extends RuntimeException {
+	public ConnectionAcquireTimeoutException(String msg) {
+		super(msg);
+	}
+}
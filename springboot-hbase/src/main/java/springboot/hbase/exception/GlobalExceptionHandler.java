@@ -1,6 +1,7 @@
 package springboot.hbase.exception;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hbase.TableNotFoundException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -20,9 +21,36 @@ public class GlobalExceptionHandler {
 						.body(ResponseBody.builder().code(40000).msg(e.getMessage()).build());
 	}
 
+	@ExceptionHandler(TableNotFoundException.class)
+	public ResponseEntity tableNotFoundExceptionHandler(TableNotFoundException e) {
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+						.body(ResponseBody.builder().code(40000).msg("表不存在！").build());
+	}
+
 	@ExceptionHandler(InvalidParameterException.class)
-	public ResponseEntity parameterExceptionHandler(ServiceException e) {
+	public ResponseEntity parameterExceptionHandler(InvalidParameterException e) {
 		return ResponseEntity.status(HttpStatus.BAD_REQUEST)
 						.body(ResponseBody.builder().code(40001).msg(e.getMessage()).build());
 	}
+
+	@ExceptionHandler(ConnectionAcquireTimeoutException.class)
+	public ResponseEntity connectionAcquireTimeoutHandler(ConnectionAcquireTimeoutException e) {
+		log.warn(e.getMessage());
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+						.body(ResponseBody.builder().code(50300).msg(e.getMessage()).build());
+	}
+
+	@ExceptionHandler(WriteBufferFullException.class)
+	public ResponseEntity writeBufferFullHandler(WriteBufferFullException e) {
+		log.warn(e.getMessage());
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+						.body(ResponseBody.builder().code(42900).msg(e.getMessage()).build());
+	}
+
+	@ExceptionHandler(TooManyRequestsException.class)
+	public ResponseEntity tooManyRequestsHandler(TooManyRequestsException e) {
+		log.warn(e.getMessage());
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+						.body(ResponseBody.builder().code(42901).msg(e.getMessage()).build());
+	}
 }
@@ -0,0 +1,10 @@
+package springboot.hbase.exception;
+
+/**
+ * 进行中的请求数达到上限，需要稍后重试
+ **/
+public class TooManyRequestsException extends RuntimeException {
+	public TooManyRequestsException(String msg) {
+		super(msg);
+	}
+}
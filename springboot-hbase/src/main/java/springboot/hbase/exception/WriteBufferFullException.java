@@ -0,0 +1,10 @@
+package springboot.hbase.exception;
+
+/**
+ * 写入缓冲区已满，需要稍后重试
+ **/
+public class WriteBufferFullException extends RuntimeException {
+	public WriteBufferFullException(String msg) {
+		super(msg);
+	}
+}
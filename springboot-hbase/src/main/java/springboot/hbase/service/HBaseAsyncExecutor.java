@@ -0,0 +1,119 @@
+package springboot.hbase.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import springboot.hbase.exception.TooManyRequestsException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步接口（/async/**）的执行器
+ * <p>
+ * 请求线程只申请许可并提交任务，随即返回，不再等待HBase RPC。进行中的请求数由许可数（hbase.async.max-in-flight）限制，
+ * 许可用完时立即拒绝；HBase 1.3客户端只有阻塞API，真正执行RPC的是hbase.async.threads个线程，
+ * 其余已接受的请求只以排队任务的形式存在，不占用线程。
+ **/
+@Slf4j
+@Component
+public class HBaseAsyncExecutor implements DisposableBean {
+	private final ThreadPoolExecutor executor;
+	private final Semaphore permits;
+	private final int maxInFlight;
+
+	@Autowired
+	public HBaseAsyncExecutor(MeterRegistry meterRegistry,
+														@Value("${hbase.async.threads:32}") int threads,
+														@Value("${hbase.async.max-in-flight:2000}") int maxInFlight) {
+		this.maxInFlight = maxInFlight;
+		this.permits = new Semaphore(maxInFlight);
+		//队列长度由许可数限制，不需要再设上限
+		this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<>(),
+						new ThreadFactoryBuilder().setNameFormat("hbase-async-%d").setDaemon(true).build());
+		this.executor.allowCoreThreadTimeOut(true);
+		Gauge.builder("hbase.async.in-flight", this, HBaseAsyncExecutor::getInFlight)
+						.description("异步接口进行中的请求数")
+						.register(meterRegistry);
+		Gauge.builder("hbase.async.queued", executor, e -> e.getQueue().size())
+						.description("异步接口等待执行的请求数")
+						.register(meterRegistry);
+	}
+
+	/**
+	 * 提交一次HBase调用
+	 *
+	 * @param call
+	 * @param <T>
+	 * @return 调用失败时以原始异常（不包装成CompletionException）结束，由GlobalExceptionHandler处理
+	 * @throws TooManyRequestsException 进行中的请求数达到上限
+	 */
+	public <T> CompletableFuture<T> submit(Call<T> call) {
+		if (!permits.tryAcquire()) {
+			throw new TooManyRequestsException("进行中的请求数已达上限" + maxInFlight + "，请稍后重试");
+		}
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try {
+			executor.execute(() -> {
+				T result = null;
+				Throwable failure = null;
+				try {
+					result = call.call();
+				} catch (Throwable e) {
+					failure = e;
+				} finally {
+					//先归还许可再结束future，客户端收到响应后立即重试不会被误拒
+					permits.release();
+				}
+				if (failure != null) {
+					future.completeExceptionally(failure);
+				} else {
+					future.complete(result);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			permits.release();
+			throw new TooManyRequestsException("服务正在关闭");
+		}
+		return future;
+	}
+
+	/**
+	 * @return 已接受但尚未完成的请求数
+	 */
+	public int getInFlight() {
+		return maxInFlight - permits.availablePermits();
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+				log.warn("异步接口仍有{}个请求未完成", getInFlight());
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * 在执行器线程上运行的HBase调用
+	 */
+	@FunctionalInterface
+	public interface Call<T> {
+		T call() throws Exception;
+	}
+}
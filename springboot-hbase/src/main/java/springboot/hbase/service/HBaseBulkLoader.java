@@ -0,0 +1,565 @@
+package springboot.hbase.service;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import springboot.hbase.entity.BulkLoadResult;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.entity.ValueEncoding;
+import springboot.hbase.exception.InvalidParameterException;
+import springboot.hbase.exception.ServiceException;
+import springboot.hbase.exception.TooManyRequestsException;
+import springboot.hbase.service.HBaseOperationMetrics.Operation;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 批量导入：不经过memstore和WAL，直接生成HFile交给RegionServer加载
+ * <p>
+ * 从请求体流式读取NDJSON或CSV，内存中的KeyValue超过hbase.bulkload.buffer-size后排序、按region边界和列族切分，
+ * 每个(region, 列族)写一个HFile（同HFileOutputFormat2：列族的压缩、块大小、编码、布隆过滤器），然后清空缓冲区继续读取，
+ * 内存占用与上传大小无关。全部读完后用LoadIncrementalHFiles加载，每个region内的所有HFile原子地一起生效。
+ * <p>
+ * 每批Cell的时间戳为导入开始时间加批次序号，同一单元格在上传中出现多次时以最后一次为准。
+ * HFile写在hbase.bulkload.staging-dir，RegionServer必须能访问该目录：远程集群要配置成HDFS路径（如hdfs://namenode:8020/tmp/hbase-bulkload），
+ * 本地路径只适用于RegionServer与应用共用文件系统的情况（单机、mini-cluster）。
+ **/
+@Slf4j
+@Component
+public class HBaseBulkLoader {
+	private static final String MAX_FILES_PER_REGION_PER_FAMILY = "hbase.mapreduce.bulkload.max.hfiles.perRegion.perFamily";
+	private static final String[] CSV_HEADER = {"rowkey", "family", "qualifier", "value"};
+	private final HBaseTemplate hBaseTemplate;
+	private final HBaseMetadataCache metadataCache;
+	private final HBaseRowCounter rowCounter;
+	private final HBaseRowCache rowCache;
+	private final HBaseOperationMetrics metrics;
+	private final ValueEncodingResolver encodingResolver;
+	private final ObjectMapper objectMapper;
+	private final String stagingDir;
+	private final long bufferSize;
+	private final Semaphore permits;
+
+	@Autowired
+	public HBaseBulkLoader(HBaseTemplate hBaseTemplate, HBaseMetadataCache metadataCache, HBaseRowCounter rowCounter,
+												 HBaseRowCache rowCache, HBaseOperationMetrics metrics, ValueEncodingResolver encodingResolver,
+												 ObjectMapper objectMapper,
+												 @Value("${hbase.bulkload.staging-dir:${java.io.tmpdir}/hbase-bulkload}") String stagingDir,
+												 @Value("${hbase.bulkload.buffer-size:268435456}") long bufferSize,
+												 @Value("${hbase.bulkload.max-concurrent:2}") int maxConcurrent) {
+		this.hBaseTemplate = hBaseTemplate;
+		this.metadataCache = metadataCache;
+		this.rowCounter = rowCounter;
+		this.rowCache = rowCache;
+		this.metrics = metrics;
+		this.encodingResolver = encodingResolver;
+		this.objectMapper = objectMapper;
+		this.stagingDir = stagingDir;
+		this.bufferSize = bufferSize;
+		this.permits = new Semaphore(maxConcurrent);
+	}
+
+	/**
+	 * 导入数据
+	 *
+	 * @param tableName
+	 * @param in       请求体，NDJSON每行一个PutInfo；CSV每行rowKey,family,qualifier,value，可以有表头，含逗号、引号、换行的字段用双引号括起
+	 * @param format
+	 * @param encoding value的编码，为null时使用表的默认编码
+	 * @return
+	 * @throws IOException
+	 */
+	public BulkLoadResult load(String tableName, InputStream in, Format format, ValueEncoding encoding) throws IOException {
+		if (!permits.tryAcquire()) {
+			throw new TooManyRequestsException("进行中的批量导入已达上限，请稍后重试");
+		}
+		try {
+			return metrics.record(Operation.BULK_LOAD, tableName, () -> doLoad(tableName, in, format, encoding));
+		} finally {
+			permits.release();
+		}
+	}
+
+	private BulkLoadResult doLoad(String tableName, InputStream in, Format format, ValueEncoding requested) throws IOException {
+		long start = System.currentTimeMillis();
+		ValueEncoding encoding = encodingResolver.resolve(tableName, requested);
+		HTableDescriptor descriptor = metadataCache.getDescriptor(tableName).orElseThrow(() -> new ServiceException("表不存在！"));
+		TableName name = TableName.valueOf(tableName);
+		return hBaseTemplate.execute(connection -> {
+			byte[][] startKeys;
+			try (RegionLocator locator = connection.getRegionLocator(name)) {
+				startKeys = locator.getStartKeys();
+			}
+			Configuration conf = new Configuration(connection.getConfiguration());
+			Path dir = new Path(stagingDir, tableName + "-" + UUID.randomUUID());
+			FileSystem fs = dir.getFileSystem(conf);
+			HFileSet files = new HFileSet(conf, fs, dir, descriptor, startKeys);
+			try {
+				Iterator<PutInfo> records = format == Format.CSV ? new CsvReader(in) : ndjson(in);
+				SpillBuffer buffer = new SpillBuffer(start, bufferSize, files::write);
+				long count = 0;
+				while (records.hasNext()) {
+					PutInfo info = records.next();
+					count++;
+					byte[] family = Bytes.toBytes(required(info.getFamily(), "family", count));
+					if (!descriptor.hasFamily(family)) {
+						throw new InvalidParameterException("第" + count + "条记录的列族不存在: " + info.getFamily());
+					}
+					KeyValue kv = new KeyValue(Bytes.toBytes(required(info.getRowKey(), "rowKey", count)), family,
+									Bytes.toBytes(required(info.getQualifier(), "qualifier", count)), buffer.timestamp(), KeyValue.Type.Put,
+									info.getValue() == null ? HConstants.EMPTY_BYTE_ARRAY : encoding.decode(info.getValue()));
+					buffer.add(kv);
+				}
+				buffer.finish();
+				if (files.hfiles > 0) {
+					//同一(region, 列族)每批一个HFile，放宽加载工具的文件数检查
+					conf.setInt(MAX_FILES_PER_REGION_PER_FAMILY, Math.max(conf.getInt(MAX_FILES_PER_REGION_PER_FAMILY, 32), buffer.getSpills()));
+					bulkLoad(conf, dir, connection, name);
+					rowCounter.invalidate(tableName);
+					rowCache.invalidateTable(tableName);
+				}
+				BulkLoadResult result = BulkLoadResult.builder()
+								.records(count)
+								.cells(files.cells)
+								.hfiles(files.hfiles)
+								.hfileBytes(files.hfileBytes)
+								.spills(buffer.getSpills())
+								.durationMillis(System.currentTimeMillis() - start)
+								.build();
+				log.info("批量导入{}完成: {}", tableName, result);
+				return result;
+			} finally {
+				if (!fs.delete(dir, true) && fs.exists(dir)) {
+					log.warn("删除批量导入临时目录失败: {}", dir);
+				}
+			}
+		});
+	}
+
+	/**
+	 * 用LoadIncrementalHFiles加载dir下的HFile，每个region内的所有HFile原子地一起生效
+	 */
+	void bulkLoad(Configuration conf, Path dir, Connection connection, TableName name) throws IOException {
+		try (Admin admin = connection.getAdmin();
+				 Table table = connection.getTable(name);
+				 RegionLocator locator = connection.getRegionLocator(name)) {
+			new LoadIncrementalHFiles(conf).doBulkLoad(dir, admin, table, locator);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ServiceException("加载HFile失败: " + e.getMessage());
+		}
+	}
+
+	private Iterator<PutInfo> ndjson(InputStream in) throws IOException {
+		MappingIterator<PutInfo> iterator = objectMapper.readerFor(PutInfo.class).readValues(in);
+		return new Iterator<PutInfo>() {
+			@Override
+			public boolean hasNext() {
+				try {
+					return iterator.hasNextValue();
+				} catch (IOException e) {
+					throw new InvalidParameterException("NDJSON格式错误: " + e.getMessage());
+				}
+			}
+
+			@Override
+			public PutInfo next() {
+				try {
+					return iterator.nextValue();
+				} catch (IOException e) {
+					throw new InvalidParameterException("NDJSON格式错误: " + e.getMessage());
+				}
+			}
+		};
+	}
+
+	private static String required(String value, String field, long record) {
+		if (value == null || value.isEmpty()) {
+			throw new InvalidParameterException("第" + record + "条记录的" + field + "不能为空");
+		}
+		return value;
+	}
+
+	/**
+	 * 按批次缓冲KeyValue：超过bufferSize字节后整批交给spill，清空后继续缓冲
+	 * <p>
+	 * 每批的时间戳为baseTimestamp加批次序号，同一单元格在后面的批次中再次出现时版本更新，读取时以后上传的为准。
+	 */
+	static final class SpillBuffer {
+		private final long baseTimestamp;
+		private final long bufferSize;
+		private final Spill spill;
+		private final List<KeyValue> buffer = new ArrayList<>();
+		private long bufferedBytes = 0;
+		private int spills = 0;
+
+		SpillBuffer(long baseTimestamp, long bufferSize, Spill spill) {
+			this.baseTimestamp = baseTimestamp;
+			this.bufferSize = bufferSize;
+			this.spill = spill;
+		}
+
+		/**
+		 * @return 当前批次的时间戳，新建的KeyValue要使用它
+		 */
+		long timestamp() {
+			return baseTimestamp + spills;
+		}
+
+		void add(KeyValue kv) throws IOException {
+			buffer.add(kv);
+			bufferedBytes += kv.heapSize();
+			if (bufferedBytes >= bufferSize) {
+				flush();
+			}
+		}
+
+		/**
+		 * 写出剩余的KeyValue
+		 */
+		void finish() throws IOException {
+			if (!buffer.isEmpty()) {
+				flush();
+			}
+		}
+
+		int getSpills() {
+			return spills;
+		}
+
+		private void flush() throws IOException {
+			spill.spill(buffer);
+			buffer.clear();
+			bufferedBytes = 0;
+			spills++;
+		}
+	}
+
+	/**
+	 * 写出一批KeyValue
+	 */
+	@FunctionalInterface
+	interface Spill {
+		void spill(List<KeyValue> batch) throws IOException;
+	}
+
+	/**
+	 * 稳定排序后去重，按region切分：相同的单元格保持上传顺序，只保留最后一个；每个region的KeyValue有序、连续地交给sink
+	 *
+	 * @param batch     同一批次的KeyValue，会被排序
+	 * @param startKeys 各region的起始键，与RegionLocator.getStartKeys一致
+	 * @param sink
+	 */
+	static void partition(List<KeyValue> batch, byte[][] startKeys, RegionSink sink) throws IOException {
+		batch.sort(KeyValue.COMPARATOR);
+		int region = -1;
+		for (int i = 0; i < batch.size(); i++) {
+			KeyValue kv = batch.get(i);
+			if (i + 1 < batch.size() && CellUtil.matchingRowColumn(kv, batch.get(i + 1))) {
+				continue;
+			}
+			int kvRegion = region(startKeys, kv.getRowArray(), kv.getRowOffset(), kv.getRowLength());
+			if (kvRegion != region) {
+				if (region >= 0) {
+					sink.endRegion(region);
+				}
+				region = kvRegion;
+			}
+			sink.append(region, kv);
+		}
+		if (region >= 0) {
+			sink.endRegion(region);
+		}
+	}
+
+	/**
+	 * @return rowkey所在region的下标：startKeys中最后一个不大于row的
+	 */
+	private static int region(byte[][] startKeys, byte[] row, int offset, int length) {
+		int lo = 0;
+		int hi = startKeys.length - 1;
+		while (lo < hi) {
+			int mid = (lo + hi + 1) >>> 1;
+			if (Bytes.compareTo(startKeys[mid], 0, startKeys[mid].length, row, offset, length) <= 0) {
+				lo = mid;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * partition的输出
+	 */
+	interface RegionSink {
+		void append(int region, KeyValue kv) throws IOException;
+
+		/**
+		 * 一个region的KeyValue已全部交出
+		 */
+		void endRegion(int region) throws IOException;
+	}
+
+	/**
+	 * 一次导入生成的所有HFile，目录结构为dir/列族/HFile，即LoadIncrementalHFiles要求的格式
+	 */
+	private static final class HFileSet {
+		private final Configuration conf;
+		private final CacheConfig cacheConfig;
+		private final FileSystem fs;
+		private final Path dir;
+		private final HTableDescriptor descriptor;
+		private final byte[][] startKeys;
+		private int hfiles;
+		private long cells;
+		private long hfileBytes;
+
+		private HFileSet(Configuration conf, FileSystem fs, Path dir, HTableDescriptor descriptor, byte[][] startKeys) {
+			Configuration writerConf = new Configuration(conf);
+			writerConf.setFloat(HConstants.HFILE_BLOCK_CACHE_SIZE_KEY, 0.0f);  //写HFile不使用块缓存
+			this.conf = writerConf;
+			this.cacheConfig = new CacheConfig(writerConf);
+			this.fs = fs;
+			this.dir = dir;
+			this.descriptor = descriptor;
+			this.startKeys = startKeys;
+		}
+
+		/**
+		 * 每个(region, 列族)写一个HFile
+		 */
+		private void write(List<KeyValue> batch) throws IOException {
+			Map<String, StoreFile.Writer> writers = new LinkedHashMap<>();
+			try {
+				partition(batch, startKeys, new RegionSink() {
+					@Override
+					public void append(int region, KeyValue kv) throws IOException {
+						String family = Bytes.toString(kv.getFamilyArray(), kv.getFamilyOffset(), kv.getFamilyLength());
+						StoreFile.Writer writer = writers.get(family);
+						if (writer == null) {
+							writer = open(descriptor.getFamily(CellUtil.cloneFamily(kv)));
+							writers.put(family, writer);
+						}
+						writer.append(kv);
+						cells++;
+					}
+
+					@Override
+					public void endRegion(int region) throws IOException {
+						closeAll(writers);
+					}
+				});
+			} finally {
+				closeAll(writers);
+			}
+		}
+
+		private StoreFile.Writer open(HColumnDescriptor family) throws IOException {
+			Path familyDir = new Path(dir, family.getNameAsString());
+			fs.mkdirs(familyDir);
+			hfiles++;
+			return new StoreFile.WriterBuilder(conf, cacheConfig, fs)
+							.withOutputDir(familyDir)
+							.withBloomType(family.getBloomFilterType())
+							.withComparator(KeyValue.COMPARATOR)
+							.withFileContext(new HFileContextBuilder()
+											.withCompression(family.getCompressionType())
+											.withBlockSize(family.getBlocksize())
+											.withDataBlockEncoding(family.getDataBlockEncoding())
+											.withIncludesTags(true)
+											.build())
+							.build();
+		}
+
+		private void closeAll(Map<String, StoreFile.Writer> writers) throws IOException {
+			IOException failure = null;
+			for (StoreFile.Writer writer : writers.values()) {
+				try {
+					writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY, Bytes.toBytes(System.currentTimeMillis()));
+					writer.appendFileInfo(StoreFile.MAJOR_COMPACTION_KEY, Bytes.toBytes(false));
+					writer.appendFileInfo(StoreFile.EXCLUDE_FROM_MINOR_COMPACTION_KEY, Bytes.toBytes(false));
+					writer.appendTrackedTimestampsToMetadata();
+					writer.close();
+					hfileBytes += fs.getFileStatus(writer.getPath()).getLen();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+			writers.clear();
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	/**
+	 * 逐条读取CSV记录：rowKey,family,qualifier,value，字段可用双引号括起，引号内的""表示一个引号；第一行与表头相同时跳过
+	 */
+	static final class CsvReader implements Iterator<PutInfo> {
+		private final Reader reader;
+		private final StringBuilder field = new StringBuilder();
+		private long line = 0;
+		private PutInfo next;
+		private boolean first = true;
+
+		CsvReader(InputStream in) {
+			this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == null) {
+				try {
+					next = read();
+				} catch (IOException e) {
+					throw new InvalidParameterException("读取CSV失败: " + e.getMessage());
+				}
+			}
+			return next != null;
+		}
+
+		@Override
+		public PutInfo next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			PutInfo result = next;
+			next = null;
+			return result;
+		}
+
+		private PutInfo read() throws IOException {
+			while (true) {
+				List<String> fields = record();
+				if (fields == null) {
+					return null;
+				}
+				if (fields.size() == 1 && fields.get(0).isEmpty()) {
+					continue;  //空行
+				}
+				if (fields.size() != CSV_HEADER.length) {
+					throw new InvalidParameterException("CSV第" + line + "行应为rowKey,family,qualifier,value四个字段，实际" + fields.size() + "个");
+				}
+				if (first) {
+					first = false;
+					String[] header = fields.stream().map(f -> f.trim().toLowerCase(Locale.ROOT)).toArray(String[]::new);
+					if (Arrays.equals(header, CSV_HEADER)) {
+						continue;
+					}
+				}
+				return new PutInfo(fields.get(0), fields.get(1), fields.get(2), fields.get(3));
+			}
+		}
+
+		/**
+		 * @return 一条记录的字段，输入结束时为null
+		 */
+		private List<String> record() throws IOException {
+			List<String> fields = new ArrayList<>(CSV_HEADER.length);
+			field.setLength(0);
+			boolean quoted = false;
+			int c = reader.read();
+			if (c < 0) {
+				return null;
+			}
+			line++;
+			while (true) {
+				if (quoted) {
+					if (c < 0) {
+						throw new InvalidParameterException("CSV第" + line + "行的引号没有闭合");
+					}
+					if (c == '"') {
+						reader.mark(1);
+						int peek = reader.read();
+						if (peek == '"') {
+							field.append('"');
+						} else {
+							quoted = false;
+							reader.reset();
+						}
+					} else {
+						if (c == '\n') {
+							line++;
+						}
+						field.append((char) c);
+					}
+				} else if (c < 0 || c == '\n') {
+					int end = field.length();
+					if (end > 0 && field.charAt(end - 1) == '\r') {
+						field.setLength(end - 1);
+					}
+					fields.add(field.toString());
+					return fields;
+				} else if (c == ',') {
+					fields.add(field.toString());
+					field.setLength(0);
+				} else if (c == '"' && field.length() == 0) {
+					quoted = true;
+				} else {
+					field.append((char) c);
+				}
+				c = reader.read();
+			}
+		}
+	}
+
+	/**
+	 * 上传的格式
+	 */
+	public enum Format {
+		NDJSON, CSV;
+
+		/**
+		 * @param name 不区分大小写，为空时为NDJSON
+		 * @return
+		 */
+		public static Format of(String name) {
+			if (name == null || name.isEmpty()) {
+				return NDJSON;
+			}
+			try {
+				return valueOf(name.trim().toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new InvalidParameterException("不支持的导入格式: " + name + "，可选ndjson/csv");
+			}
+		}
+	}
+}
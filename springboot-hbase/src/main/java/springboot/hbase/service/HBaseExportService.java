@@ -0,0 +1,700 @@
+package springboot.hbase.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import springboot.hbase.entity.ExportJob;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.entity.ValueEncoding;
+import springboot.hbase.exception.InvalidParameterException;
+import springboot.hbase.exception.ServiceException;
+import springboot.hbase.exception.TooManyRequestsException;
+import springboot.hbase.service.HBaseOperationMetrics.Operation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 导出表或rowkey范围到压缩文件
+ * <p>
+ * 导出任务按region边界（同并行扫描的分片）切分，每个分片由一个线程扫描并直接写入自己的文件part-NNNNN，
+ * 扫描缓存为hbase.export.scan-caching行，文件流式写出，内存占用与表大小无关。分片先写到.tmp文件，完成后改名，
+ * 并记入任务目录下的_manifest.json；任务失败或应用重启后可以恢复，只重新导出未完成的分片。
+ * 文件名按rowkey顺序编号，依次拼接即为有序的全量数据；CSV只有part-00000带表头，拼接后仍只有一行表头。
+ * 结束的任务在内存中保留hbase.export.retention毫秒，之后再查询时从manifest重新加载。
+ * <p>
+ * 每行一个Cell：CSV为rowkey,family,qualifier,value，NDJSON为PutInfo，与批量导入的格式相同，导出的文件可以直接用/bulkLoad导回。
+ * 也可以不落盘，直接把整个范围有序地输出到下载流。
+ **/
+@Slf4j
+@Component
+public class HBaseExportService implements DisposableBean {
+	private static final String RUNNING = "running";
+	private static final String COMPLETED = "completed";
+	private static final String FAILED = "failed";
+	private static final String MANIFEST = "_manifest.json";
+	private static final String TMP_SUFFIX = ".tmp";
+	private static final String CSV_HEADER = "rowkey,family,qualifier,value\n";
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final Pattern JOB_ID = Pattern.compile("[0-9a-f\\-]{36}");
+	private final HBaseTemplate hBaseTemplate;
+	private final HBaseParallelScanner parallelScanner;
+	private final HBaseMetadataCache metadataCache;
+	private final HBaseOperationMetrics metrics;
+	private final ValueEncodingResolver encodingResolver;
+	private final ObjectMapper objectMapper;
+	private final File exportDir;
+	private final int scanCaching;
+	private final int maxJobs;
+	private final long retentionMillis;
+	private final ThreadPoolExecutor executor;
+	private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+	private int running;  //运行中的任务数，只在持有this的锁时读写
+
+	@Autowired
+	public HBaseExportService(HBaseTemplate hBaseTemplate, HBaseParallelScanner parallelScanner, HBaseMetadataCache metadataCache,
+														HBaseOperationMetrics metrics, ValueEncodingResolver encodingResolver, ObjectMapper objectMapper,
+														@Value("${hbase.export.dir:${java.io.tmpdir}/hbase-export}") String exportDir,
+														@Value("${hbase.export.parallelism:4}") int parallelism,
+														@Value("${hbase.export.scan-caching:1000}") int scanCaching,
+														@Value("${hbase.export.max-jobs:2}") int maxJobs,
+														@Value("${hbase.export.retention:3600000}") long retentionMillis) {
+		this.hBaseTemplate = hBaseTemplate;
+		this.parallelScanner = parallelScanner;
+		this.metadataCache = metadataCache;
+		this.metrics = metrics;
+		this.encodingResolver = encodingResolver;
+		this.objectMapper = objectMapper;
+		this.exportDir = new File(exportDir);
+		this.scanCaching = scanCaching;
+		this.maxJobs = maxJobs;
+		this.retentionMillis = retentionMillis;
+		//所有任务共用parallelism个线程，分片排队执行
+		this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<>(),
+						new ThreadFactoryBuilder().setNameFormat("hbase-export-%d").setDaemon(true).build());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * 新建导出任务，立即返回，进度用getJob查询
+	 *
+	 * @param tableName
+	 * @param format
+	 * @param startRow  为空时从表头开始
+	 * @param stopRow   不包含，为空时到表尾
+	 * @param encoding  value的编码，为null时使用表的默认编码
+	 * @param compress  是否gzip压缩
+	 * @return
+	 * @throws IOException
+	 */
+	public ExportJob startJob(String tableName, Format format, String startRow, String stopRow,
+														ValueEncoding encoding, boolean compress) throws IOException {
+		metadataCache.getDescriptor(tableName).orElseThrow(() -> new ServiceException("表不存在！"));
+		Scan range = rangeScan(startRow, stopRow);
+		TableName name = TableName.valueOf(tableName);
+		List<Scan> scans = hBaseTemplate.execute(connection -> parallelScanner.split(connection, name, range));
+
+		Manifest manifest = new Manifest();
+		manifest.setJobId(UUID.randomUUID().toString());
+		manifest.setTableName(tableName);
+		manifest.setFormat(format);
+		manifest.setEncoding(encodingResolver.resolve(tableName, encoding));
+		manifest.setCompress(compress);
+		manifest.setStartRow(startRow);
+		manifest.setStopRow(stopRow);
+		manifest.setCreatedTime(System.currentTimeMillis());
+		List<Slice> slices = new ArrayList<>(scans.size());
+		for (Scan scan : scans) {
+			Slice slice = new Slice();
+			slice.setIndex(slices.size());
+			slice.setStartRow(Base64.getEncoder().encodeToString(scan.getStartRow()));
+			slice.setStopRow(Base64.getEncoder().encodeToString(scan.getStopRow()));
+			slice.setFile(String.format("part-%05d.%s%s", slice.getIndex(), format.extension, compress ? ".gz" : ""));
+			slices.add(slice);
+		}
+		manifest.setSlices(slices);
+
+		File dir = new File(exportDir, manifest.getJobId());
+		if (!dir.mkdirs()) {
+			throw new ServiceException("创建导出目录失败: " + dir);
+		}
+		Job job = new Job(dir, manifest);
+		try {
+			admit(job);
+		} catch (TooManyRequestsException e) {
+			dir.delete();
+			throw e;
+		}
+		run(job);
+		return snapshot(job);
+	}
+
+	/**
+	 * 恢复失败的任务（包括应用重启时中断的任务），已完成的分片不再导出
+	 *
+	 * @param jobId
+	 * @return
+	 * @throws IOException
+	 */
+	public ExportJob resume(String jobId) throws IOException {
+		Job job = find(jobId);
+		synchronized (this) {
+			if (RUNNING.equals(job.status)) {
+				throw new ServiceException("导出任务正在运行: " + jobId);
+			}
+			if (COMPLETED.equals(job.status)) {
+				return snapshot(job);
+			}
+			admit(job);
+		}
+		run(job);
+		return snapshot(job);
+	}
+
+	public ExportJob getJob(String jobId) throws IOException {
+		return snapshot(find(jobId));
+	}
+
+	/**
+	 * @param jobId
+	 * @param fileName 已完成分片的文件名
+	 * @return
+	 * @throws IOException
+	 */
+	public File getFile(String jobId, String fileName) throws IOException {
+		Job job = find(jobId);
+		synchronized (job) {
+			for (Slice slice : job.manifest.getSlices()) {
+				if (slice.isCompleted() && slice.getFile().equals(fileName)) {
+					return new File(job.dir, fileName);
+				}
+			}
+		}
+		throw new ServiceException("文件不存在或尚未导出完成: " + fileName);
+	}
+
+	/**
+	 * 不落盘，按rowkey顺序把整个范围写到输出流，结束后关闭输出流
+	 *
+	 * @param tableName
+	 * @param format
+	 * @param startRow
+	 * @param stopRow
+	 * @param requested value的编码，为null时使用表的默认编码
+	 * @param compress
+	 * @param out
+	 * @throws IOException
+	 */
+	public void export(String tableName, Format format, String startRow, String stopRow, ValueEncoding requested,
+										 boolean compress, OutputStream out) throws IOException {
+		ValueEncoding encoding = encodingResolver.resolve(tableName, requested);
+		Scan scan = rangeScan(startRow, stopRow);
+		long[] counts = {0, 0};
+		metrics.record(Operation.EXPORT, tableName, () -> {
+			try (RowWriter writer = open(format, encoding, out, compress, true)) {
+				parallelScanner.scan(tableName, scan, true, result -> {
+					counts[1] += writer.write(result);
+					counts[0]++;
+					return true;
+				});
+			}
+			return null;
+		});
+		metrics.recordRows(Operation.EXPORT, tableName, counts[0], counts[1]);
+	}
+
+	private Scan rangeScan(String startRow, String stopRow) {
+		Scan scan = new Scan();
+		if (startRow != null && !startRow.isEmpty()) {
+			scan.setStartRow(Bytes.toBytes(startRow));
+		}
+		if (stopRow != null && !stopRow.isEmpty()) {
+			scan.setStopRow(Bytes.toBytes(stopRow));
+		}
+		if (scan.getStopRow().length > 0 && Bytes.compareTo(scan.getStartRow(), scan.getStopRow()) >= 0) {
+			throw new InvalidParameterException("startRow必须小于stopRow");
+		}
+		scan.setCaching(scanCaching);
+		scan.setCacheBlocks(false);  //全表导出不污染块缓存
+		return scan;
+	}
+
+	/**
+	 * 检查运行中的任务数并登记任务，计数和登记在同一把锁内完成，并发提交也不会超过maxJobs
+	 */
+	private synchronized void admit(Job job) {
+		evictFinished();
+		Job current = jobs.get(job.manifest.getJobId());
+		if (current != null && current != job && RUNNING.equals(current.status)) {
+			throw new ServiceException("导出任务正在运行: " + job.manifest.getJobId());  //同一任务被重新加载后又被恢复
+		}
+		if (running >= maxJobs) {
+			throw new TooManyRequestsException("进行中的导出任务已达上限，请稍后重试");
+		}
+		running++;
+		job.status = RUNNING;
+		jobs.put(job.manifest.getJobId(), job);
+	}
+
+	private synchronized void release() {
+		running--;
+	}
+
+	/**
+	 * 移除结束超过retentionMillis的任务，manifest仍在任务目录中，再次查询时重新加载
+	 */
+	private void evictFinished() {
+		long expired = System.currentTimeMillis() - retentionMillis;
+		jobs.values().removeIf(j -> !RUNNING.equals(j.status) && j.endMillis > 0 && j.endMillis < expired);
+	}
+
+	/**
+	 * @return 内存中的任务，不存在时从任务目录的manifest加载
+	 */
+	private Job find(String jobId) throws IOException {
+		Job job = jobs.get(jobId);
+		if (job != null) {
+			return job;
+		}
+		if (jobId == null || !JOB_ID.matcher(jobId).matches()) {
+			throw new InvalidParameterException("导出任务ID格式错误: " + jobId);
+		}
+		File dir = new File(exportDir, jobId);
+		File file = new File(dir, MANIFEST);
+		if (!file.isFile()) {
+			throw new ServiceException("导出任务不存在: " + jobId);
+		}
+		Manifest manifest = objectMapper.readValue(file, Manifest.class);
+		job = new Job(dir, manifest);
+		if (RUNNING.equals(manifest.getStatus())) {
+			job.status = FAILED;
+			job.error = "应用重启，导出中断";
+		} else {
+			job.status = manifest.getStatus();
+			job.error = manifest.getError();
+		}
+		job.endMillis = System.currentTimeMillis();  //从磁盘加载的任务按加载时间计算保留期，startMillis为0，不影响耗时
+		for (Slice slice : manifest.getSlices()) {
+			job.rows.addAndGet(slice.getRows());
+			job.cells.addAndGet(slice.getCells());
+		}
+		evictFinished();
+		Job existing = jobs.putIfAbsent(jobId, job);
+		return existing == null ? job : existing;
+	}
+
+	private void run(Job job) throws IOException {
+		List<Slice> pending = new ArrayList<>();
+		synchronized (job) {
+			long rows = 0;
+			long cells = 0;
+			for (Slice slice : job.manifest.getSlices()) {
+				if (slice.isCompleted()) {
+					rows += slice.getRows();
+					cells += slice.getCells();
+				} else {
+					pending.add(slice);
+				}
+			}
+			job.rows.set(rows);
+			job.cells.set(cells);
+			job.rowsAtStart = rows;
+			job.startMillis = System.currentTimeMillis();
+			job.endMillis = 0;
+			job.error = null;
+			job.pending.set(pending.size());
+			try {
+				saveManifest(job);
+			} catch (IOException e) {
+				job.status = FAILED;
+				job.error = "保存manifest失败: " + e.getMessage();
+				job.endMillis = System.currentTimeMillis();
+				release();
+				throw e;
+			}
+		}
+		if (pending.isEmpty()) {
+			finish(job);
+			return;
+		}
+		log.info("开始导出{}：任务{}，{}个分片待导出", job.manifest.getTableName(), job.manifest.getJobId(), pending.size());
+		for (Slice slice : pending) {
+			try {
+				executor.execute(() -> runSlice(job, slice));
+			} catch (RejectedExecutionException e) {
+				job.fail("导出线程池已关闭");
+				if (job.pending.decrementAndGet() == 0) {
+					finish(job);
+				}
+			}
+		}
+	}
+
+	private void runSlice(Job job, Slice slice) {
+		try {
+			if (job.error == null) {
+				exportSlice(job, slice);
+			}
+		} catch (Exception e) {
+			log.warn("导出任务{}的分片{}失败", job.manifest.getJobId(), slice.getIndex(), e);
+			job.fail("分片" + slice.getIndex() + "导出失败: " + e.getMessage());
+		} finally {
+			if (job.pending.decrementAndGet() == 0) {
+				finish(job);
+			}
+		}
+	}
+
+	private void exportSlice(Job job, Slice slice) throws IOException {
+		Manifest manifest = job.manifest;
+		Scan scan = new Scan();
+		scan.setStartRow(Base64.getDecoder().decode(slice.getStartRow()));
+		scan.setStopRow(Base64.getDecoder().decode(slice.getStopRow()));
+		scan.setCaching(scanCaching);
+		scan.setCacheBlocks(false);
+		File tmp = new File(job.dir, slice.getFile() + TMP_SUFFIX);
+		long[] counts = {0, 0};
+		boolean done = false;
+		try {
+			//只有第一个分片写CSV表头，各分片文件依次拼接后可以直接导回
+			try (RowWriter writer = open(manifest.getFormat(), manifest.getEncoding(), new FileOutputStream(tmp), manifest.isCompress(),
+							slice.getIndex() == 0)) {
+				done = hBaseTemplate.execute(connection -> {
+					try (Table table = connection.getTable(TableName.valueOf(manifest.getTableName()));
+							 ResultScanner scanner = table.getScanner(scan)) {
+						for (Result result : scanner) {
+							if (job.error != null) {
+								return false;  //其他分片已失败，放弃本分片，恢复时重新导出
+							}
+							int cells = writer.write(result);
+							counts[0]++;
+							counts[1] += cells;
+							job.rows.incrementAndGet();
+							job.cells.addAndGet(cells);
+						}
+					}
+					return true;
+				});
+			}
+			if (done) {
+				File file = new File(job.dir, slice.getFile());
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				synchronized (job) {
+					slice.setRows(counts[0]);
+					slice.setCells(counts[1]);
+					slice.setBytes(file.length());
+					slice.setCompleted(true);
+					saveManifest(job);
+				}
+			}
+		} finally {
+			if (!done) {
+				job.rows.addAndGet(-counts[0]);
+				job.cells.addAndGet(-counts[1]);
+				if (!tmp.delete() && tmp.exists()) {
+					log.warn("删除导出临时文件失败: {}", tmp);
+				}
+			}
+		}
+	}
+
+	private void finish(Job job) {
+		synchronized (job) {
+			job.endMillis = System.currentTimeMillis();
+			job.status = job.error == null ? COMPLETED : FAILED;
+			try {
+				saveManifest(job);
+			} catch (IOException e) {
+				log.warn("保存导出任务{}的manifest失败", job.manifest.getJobId(), e);
+			}
+		}
+		release();
+		log.info("导出任务{}结束: {}", job.manifest.getJobId(), snapshot(job));
+	}
+
+	/**
+	 * 先写临时文件再改名，中途崩溃不会留下不完整的manifest
+	 */
+	private void saveManifest(Job job) throws IOException {
+		job.manifest.setStatus(job.status);
+		job.manifest.setError(job.error);
+		File tmp = new File(job.dir, MANIFEST + TMP_SUFFIX);
+		objectMapper.writerWithDefaultPrettyPrinter().writeValue(tmp, job.manifest);
+		Files.move(tmp.toPath(), new File(job.dir, MANIFEST).toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private ExportJob snapshot(Job job) {
+		synchronized (job) {
+			List<String> files = new ArrayList<>();
+			long bytes = 0;
+			for (Slice slice : job.manifest.getSlices()) {
+				if (slice.isCompleted()) {
+					files.add(slice.getFile());
+					bytes += slice.getBytes();
+				}
+			}
+			long rows = job.rows.get();
+			long elapsed = job.startMillis == 0 ? 0 : (job.endMillis > 0 ? job.endMillis : System.currentTimeMillis()) - job.startMillis;
+			return ExportJob.builder()
+							.jobId(job.manifest.getJobId())
+							.tableName(job.manifest.getTableName())
+							.format(job.manifest.getFormat().name().toLowerCase(Locale.ROOT))
+							.status(job.status)
+							.slices(job.manifest.getSlices().size())
+							.completedSlices(files.size())
+							.rows(rows)
+							.cells(job.cells.get())
+							.bytes(bytes)
+							.elapsedMillis(elapsed)
+							.rowsPerSecond(elapsed > 0 ? (rows - job.rowsAtStart) * 1000.0 / elapsed : 0)
+							.directory(job.dir.getAbsolutePath())
+							.files(files)
+							.error(job.error)
+							.build();
+		}
+	}
+
+	/**
+	 * @param header CSV是否写表头，NDJSON忽略
+	 */
+	private RowWriter open(Format format, ValueEncoding encoding, OutputStream out, boolean compress, boolean header) throws IOException {
+		OutputStream stream = new BufferedOutputStream(compress ? new GZIPOutputStream(out, BUFFER_SIZE) : out, BUFFER_SIZE);
+		return format == Format.CSV ? new CsvWriter(stream, encoding, header) : new NdjsonWriter(stream, encoding, objectMapper.writer());
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 导出的格式
+	 */
+	public enum Format {
+		CSV("csv"), NDJSON("ndjson");
+
+		private final String extension;
+
+		Format(String extension) {
+			this.extension = extension;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+
+		/**
+		 * @param name 不区分大小写，为空时为CSV
+		 * @return
+		 */
+		public static Format of(String name) {
+			if (name == null || name.isEmpty()) {
+				return CSV;
+			}
+			try {
+				return valueOf(name.trim().toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new InvalidParameterException("不支持的导出格式: " + name + "，可选csv/ndjson");
+			}
+		}
+	}
+
+	/**
+	 * 任务的运行状态；manifest及其分片只在持有该对象的锁时修改
+	 */
+	private static final class Job {
+		private final File dir;
+		private final Manifest manifest;
+		private final AtomicInteger pending = new AtomicInteger();
+		private final AtomicLong rows = new AtomicLong();
+		private final AtomicLong cells = new AtomicLong();
+		private volatile String status;
+		private volatile String error;
+		private volatile long startMillis;
+		private volatile long endMillis;
+		private volatile long rowsAtStart;
+
+		private Job(File dir, Manifest manifest) {
+			this.dir = dir;
+			this.manifest = manifest;
+		}
+
+		/**
+		 * 只保留第一个错误
+		 */
+		private synchronized void fail(String message) {
+			if (error == null) {
+				error = message;
+			}
+		}
+	}
+
+	/**
+	 * 任务目录下的_manifest.json，恢复任务时据此跳过已完成的分片
+	 */
+	@Data
+	@NoArgsConstructor
+	static class Manifest {
+		private String jobId;
+		private String tableName;
+		private Format format;
+		private ValueEncoding encoding;
+		private boolean compress;
+		private String startRow;
+		private String stopRow;
+		private long createdTime;
+		private String status;
+		private String error;
+		private List<Slice> slices;
+	}
+
+	/**
+	 * 一个分片的key范围（base64）与导出结果
+	 */
+	@Data
+	@NoArgsConstructor
+	static class Slice {
+		private int index;
+		private String startRow;
+		private String stopRow;
+		private String file;
+		private boolean completed;
+		private long rows;
+		private long cells;
+		private long bytes;
+	}
+
+	private interface RowWriter extends Closeable {
+		/**
+		 * @return 写出的Cell数
+		 */
+		int write(Result result) throws IOException;
+	}
+
+	/**
+	 * 每个Cell一行：rowkey,family,qualifier,value，含逗号、引号、换行的字段用双引号括起
+	 */
+	private static final class CsvWriter implements RowWriter {
+		private final Writer writer;
+		private final ValueEncoding encoding;
+
+		private CsvWriter(OutputStream out, ValueEncoding encoding, boolean header) throws IOException {
+			this.writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+			this.encoding = encoding;
+			if (header) {
+				writer.write(CSV_HEADER);
+			}
+		}
+
+		@Override
+		public int write(Result result) throws IOException {
+			Cell[] cells = result.rawCells();
+			if (cells == null) {
+				return 0;
+			}
+			String row = escape(Bytes.toString(result.getRow()));
+			for (Cell cell : cells) {
+				writer.write(row);
+				writer.write(',');
+				writer.write(escape(Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength())));
+				writer.write(',');
+				writer.write(escape(Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength())));
+				writer.write(',');
+				writer.write(escape(encoding.encodeToString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength())));
+				writer.write('\n');
+			}
+			return cells.length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
+
+		private static String escape(String field) {
+			for (int i = 0; i < field.length(); i++) {
+				char c = field.charAt(i);
+				if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+					return '"' + field.replace("\"", "\"\"") + '"';
+				}
+			}
+			return field;
+		}
+	}
+
+	/**
+	 * 每个Cell一行PutInfo
+	 */
+	private static final class NdjsonWriter implements RowWriter {
+		private final OutputStream out;
+		private final ValueEncoding encoding;
+		private final ObjectWriter writer;
+
+		private NdjsonWriter(OutputStream out, ValueEncoding encoding, ObjectWriter writer) {
+			this.out = out;
+			this.encoding = encoding;
+			this.writer = writer;
+		}
+
+		@Override
+		public int write(Result result) throws IOException {
+			Cell[] cells = result.rawCells();
+			if (cells == null) {
+				return 0;
+			}
+			String row = Bytes.toString(result.getRow());
+			for (Cell cell : cells) {
+				out.write(writer.writeValueAsBytes(new PutInfo(row,
+								Bytes.toString(cell.getFamilyArray(), cell.getFamilyOffset(), cell.getFamilyLength()),
+								Bytes.toString(cell.getQualifierArray(), cell.getQualifierOffset(), cell.getQualifierLength()),
+								encoding.encodeToString(cell.getValueArray(), cell.getValueOffset(), cell.getValueLength()))));
+				out.write('\n');
+			}
+			return cells.length;
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+	}
+}
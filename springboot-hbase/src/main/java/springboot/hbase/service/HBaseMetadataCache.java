@@ -0,0 +1,184 @@
+package springboot.hbase.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableNotFoundException;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 表元数据缓存：表是否存在、表描述、表名列表
+ * <p>
+ * 未命中时向Master查询一次并缓存，后台每隔hbase.metadata.refresh-interval毫秒用listTables整体刷新，删除已不存在的表。
+ * 表不存在的结果单独缓存，最多MAX_MISSING_TABLES个、保留一个刷新周期，请求中随意的表名不会让缓存无限增长。
+ * 本节点的建表、删表、增删列族完成后立即失效；其他节点的DDL最多延迟一个刷新周期可见。
+ * hbase.metadata.cache-enabled=false时每次都查询Master。
+ **/
+@Slf4j
+@Component
+public class HBaseMetadataCache implements DisposableBean {
+	private static final int MAX_MISSING_TABLES = 10_000;
+	private final HBaseTemplate hBaseTemplate;
+	private final boolean enabled;
+	private final ConcurrentHashMap<String, HTableDescriptor> descriptors = new ConcurrentHashMap<>();  //存在的表
+	private final Cache<String, Boolean> missing;  //不存在的表
+	private final AtomicLong generation = new AtomicLong(0);  //每次失效加一，加载期间发生过失效的结果不缓存
+	private final ScheduledExecutorService refresher;
+	private volatile List<String> tableNames;
+
+	@Autowired
+	public HBaseMetadataCache(HBaseTemplate hBaseTemplate,
+														@Value("${hbase.metadata.cache-enabled:true}") boolean enabled,
+														@Value("${hbase.metadata.refresh-interval:30000}") long refreshIntervalMillis) {
+		this.hBaseTemplate = hBaseTemplate;
+		this.enabled = enabled;
+		this.missing = Caffeine.newBuilder()
+						.maximumSize(MAX_MISSING_TABLES)
+						.expireAfterWrite(Math.max(1L, refreshIntervalMillis), TimeUnit.MILLISECONDS)
+						.build();
+		this.refresher = Executors.newSingleThreadScheduledExecutor(
+						new ThreadFactoryBuilder().setNameFormat("hbase-metadata-refresher-%d").setDaemon(true).build());
+		if (enabled) {
+			this.refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * @param tableName
+	 * @return 表是否存在
+	 * @throws IOException
+	 */
+	public boolean exists(String tableName) throws IOException {
+		return getDescriptor(tableName).isPresent();
+	}
+
+	/**
+	 * @param tableName
+	 * @return 表描述，表不存在时为空
+	 * @throws IOException
+	 */
+	public Optional<HTableDescriptor> getDescriptor(String tableName) throws IOException {
+		if (!enabled) {
+			return load(tableName);
+		}
+		HTableDescriptor cached = descriptors.get(tableName);
+		if (cached != null) {
+			return Optional.of(cached);
+		}
+		if (missing.getIfPresent(tableName) != null) {
+			return Optional.empty();
+		}
+		long gen = generation.get();
+		Optional<HTableDescriptor> loaded = load(tableName);
+		if (loaded.isPresent()) {
+			descriptors.compute(tableName, (name, old) -> generation.get() == gen ? loaded.get() : old);
+		} else {
+			missing.asMap().compute(tableName, (name, old) -> generation.get() == gen ? Boolean.TRUE : old);
+		}
+		return loaded;
+	}
+
+	/**
+	 * @return 所有表名
+	 * @throws IOException
+	 */
+	public List<String> listTables() throws IOException {
+		List<String> names = tableNames;
+		if (!enabled || names == null) {
+			names = refresh();
+		}
+		return names;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 失效表的元数据，本节点的DDL完成后调用
+	 *
+	 * @param tableName
+	 */
+	public synchronized void invalidate(String tableName) {
+		generation.incrementAndGet();
+		descriptors.remove(tableName);
+		missing.invalidate(tableName);
+		tableNames = null;
+	}
+
+	/**
+	 * 用listTables的结果整体刷新：列表中的表更新描述，已缓存但不在列表中的用户表从缓存中删除
+	 */
+	private List<String> refresh() throws IOException {
+		long gen = generation.get();
+		HTableDescriptor[] listed = hBaseTemplate.withAdmin(admin -> admin.listTables());
+		Map<String, HTableDescriptor> fresh = new HashMap<>();
+		List<String> names = new ArrayList<>(listed.length);
+		for (HTableDescriptor descriptor : listed) {
+			fresh.put(descriptor.getNameAsString(), descriptor);
+			names.add(descriptor.getNameAsString());
+		}
+		names = Collections.unmodifiableList(names);
+		if (enabled && generation.get() == gen) {
+			for (String name : descriptors.keySet()) {
+				//listTables不包含系统表
+				if (TableName.valueOf(name).isSystemTable()) {
+					continue;
+				}
+				descriptors.computeIfPresent(name, (key, old) -> generation.get() == gen ? fresh.get(key) : old);
+			}
+			fresh.forEach((name, descriptor) -> {
+				descriptors.compute(name, (key, old) -> generation.get() == gen ? descriptor : old);
+				missing.invalidate(name);  //其他节点新建的表
+			});
+			synchronized (this) {
+				if (generation.get() == gen) {
+					tableNames = names;
+				}
+			}
+		}
+		return names;
+	}
+
+	private void refreshQuietly() {
+		try {
+			refresh();
+		} catch (Exception e) {
+			log.warn("刷新HBase表元数据失败", e);
+		}
+	}
+
+	private Optional<HTableDescriptor> load(String tableName) throws IOException {
+		return hBaseTemplate.withAdmin(admin -> {
+			try {
+				return Optional.of(admin.getTableDescriptor(TableName.valueOf(tableName)));
+			} catch (TableNotFoundException e) {
+				return Optional.empty();
+			}
+		});
+	}
+
+	@Override
+	public void destroy() {
+		refresher.shutdownNow();
+	}
+}
@@ -0,0 +1,214 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HBaseService每个操作的指标，按operation、table打标签
+ * <ul>
+ * <li>hbase.operation：耗时（Prometheus中为直方图），另带outcome=success/error，吞吐即计数的速率；</li>
+ * <li>hbase.operation.errors：按异常类型（exception）计数；</li>
+ * <li>hbase.operation.rows、hbase.operation.cells：每次扫描、批量查询返回的行数和Cell数。</li>
+ * </ul>
+ * 每个(operation, table标签)的Meter只在第一次出现时创建，之后按operation分组的Map直接查到，热路径上不拼接标签、不创建Meter。
+ * 表的数量超过hbase.metrics.max-tables后，新出现的表（包括请求中写错的表名）归入table=other，避免标签无限增长。
+ **/
+@Component
+public class HBaseOperationMetrics {
+	private static final String NO_TABLE = "none";
+	private static final String OTHER_TABLE = "other";
+	private final MeterRegistry registry;
+	private final boolean enabled;
+	private final int maxTables;
+	private final boolean histogram;
+	private final ConcurrentHashMap<String, Boolean> tables = new ConcurrentHashMap<>();
+	private final AtomicInteger tableCount = new AtomicInteger();
+	@SuppressWarnings("unchecked")
+	private final ConcurrentHashMap<String, OperationMeters>[] meters = new ConcurrentHashMap[Operation.values().length];
+
+	@Autowired
+	public HBaseOperationMetrics(MeterRegistry registry,
+															 @Value("${hbase.metrics.enabled:true}") boolean enabled,
+															 @Value("${hbase.metrics.max-tables:100}") int maxTables,
+															 @Value("${hbase.metrics.histogram:true}") boolean histogram) {
+		this.registry = registry;
+		this.enabled = enabled;
+		this.maxTables = maxTables;
+		this.histogram = histogram;
+		for (int i = 0; i < meters.length; i++) {
+			meters[i] = new ConcurrentHashMap<>();
+		}
+	}
+
+	/**
+	 * 执行一次操作并记录耗时，失败时按异常类型计数后原样抛出
+	 *
+	 * @param operation
+	 * @param tableName 不涉及具体表的操作传null
+	 * @param call
+	 * @return call的返回值
+	 * @throws IOException
+	 */
+	public <T> T record(Operation operation, String tableName, Call<T> call) throws IOException {
+		if (!enabled) {
+			return call.call();
+		}
+		OperationMeters m = meters(operation, tableName);
+		long start = System.nanoTime();
+		try {
+			T result = call.call();
+			m.success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			return result;
+		} catch (IOException | RuntimeException e) {
+			m.error.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			m.errors(e.getClass()).increment();
+			throw e;
+		}
+	}
+
+	/**
+	 * 记录一次扫描或批量查询返回的行数、Cell数
+	 *
+	 * @param operation
+	 * @param tableName
+	 * @param rows
+	 * @param cells
+	 */
+	public void recordRows(Operation operation, String tableName, long rows, long cells) {
+		if (!enabled) {
+			return;
+		}
+		OperationMeters m = meters(operation, tableName);
+		if (m.rows != null) {
+			m.rows.record(rows);
+			m.cells.record(cells);
+		}
+	}
+
+	private OperationMeters meters(Operation operation, String tableName) {
+		ConcurrentHashMap<String, OperationMeters> byTable = meters[operation.ordinal()];
+		//按解析后的标签取Meter：超出上限的表共用table=other的Meter，Map的大小不随表名（包括写错的表名）增长
+		String tag = tableName == null ? NO_TABLE : tableTag(tableName);
+		OperationMeters m = byTable.get(tag);
+		if (m != null) {
+			return m;
+		}
+		return byTable.computeIfAbsent(tag, t -> new OperationMeters(operation, t));
+	}
+
+	private String tableTag(String tableName) {
+		if (NO_TABLE.equals(tableName) || tables.containsKey(tableName)) {
+			return tableName;
+		}
+		if (tableCount.get() >= maxTables) {
+			return OTHER_TABLE;
+		}
+		//名额在computeIfAbsent内占用，同一个表只占一次，并发出现的新表也不会超过上限
+		Boolean registered = tables.computeIfAbsent(tableName, name -> tableCount.getAndIncrement() < maxTables ? Boolean.TRUE : null);
+		return registered == null ? OTHER_TABLE : tableName;
+	}
+
+	/**
+	 * 一个(operation, table)的Meter
+	 */
+	private final class OperationMeters {
+		private final Operation operation;
+		private final String table;
+		private final Timer success;
+		private final Timer error;
+		private final DistributionSummary rows;  //不返回多行的操作为null
+		private final DistributionSummary cells;
+		private final ConcurrentHashMap<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+
+		private OperationMeters(Operation operation, String table) {
+			this.operation = operation;
+			this.table = table;
+			this.success = timer("success");
+			this.error = timer("error");
+			if (operation.multiRow) {
+				this.rows = DistributionSummary.builder("hbase.operation.rows")
+								.description("每次操作返回的行数")
+								.tags("operation", operation.tag, "table", table)
+								.register(registry);
+				this.cells = DistributionSummary.builder("hbase.operation.cells")
+								.description("每次操作返回的Cell数")
+								.tags("operation", operation.tag, "table", table)
+								.register(registry);
+			} else {
+				this.rows = null;
+				this.cells = null;
+			}
+		}
+
+		private Timer timer(String outcome) {
+			return Timer.builder("hbase.operation")
+							.description("HBaseService操作耗时")
+							.tags("operation", operation.tag, "table", table, "outcome", outcome)
+							.publishPercentileHistogram(histogram)
+							.register(registry);
+		}
+
+		private Counter errors(Class<?> type) {
+			Counter counter = errors.get(type);
+			if (counter != null) {
+				return counter;
+			}
+			return errors.computeIfAbsent(type, t -> Counter.builder("hbase.operation.errors")
+							.description("HBaseService操作失败次数")
+							.tags("operation", operation.tag, "table", table, "exception", t.getSimpleName())
+							.register(registry));
+		}
+	}
+
+	/**
+	 * HBaseService的操作，tag为指标中operation标签的值
+	 */
+	public enum Operation {
+		LIST_TABLES("listTables", false),
+		COUNT("count", false),
+		ROW_KEYS("rowKeys", true),
+		STREAM_ROW_KEYS("streamRowKeys", true),
+		GET("get", false),
+		MULTI_GET("multiGet", true),
+		GET_VALUE("getValue", false),
+		SCAN("scan", true),
+		STREAM_SCAN("streamScan", true),
+		QUERY("query", true),
+		PUT("put", false),
+		PUT_ASYNC("putAsync", false),
+		BULK_LOAD("bulkLoad", false),
+		EXPORT("export", true),
+		DELETE("delete", false),
+		DESCRIBE("describe", false),
+		CREATE_TABLE("createTable", false),
+		REMOVE_TABLE("removeTable", false),
+		ADD_FAMILY("addFamily", false),
+		REMOVE_FAMILY("removeFamily", false);
+
+		private final String tag;
+		private final boolean multiRow;  //是否记录返回的行数、Cell数
+
+		Operation(String tag, boolean multiRow) {
+			this.tag = tag;
+			this.multiRow = multiRow;
+		}
+	}
+
+	/**
+	 * 被记录的操作
+	 */
+	@FunctionalInterface
+	public interface Call<T> {
+		T call() throws IOException;
+	}
+}
@@ -0,0 +1,366 @@
+package springboot.hbase.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import springboot.hbase.exception.ServiceException;
+import springboot.hbase.exception.TooManyRequestsException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并行扫描引擎
+ * <p>
+ * 按region（大region可再按key范围切成hbase.scan.splits-per-region段）拆成多个分片，每个分片一个扫描任务，
+ * 结果经有界队列交回调用线程，队列满时扫描任务阻塞，内存占用与表大小无关。
+ * 每次扫描同时最多执行hbase.scan.max-slices-per-job个分片（远小于线程数），下载很慢的客户端只占用这几个线程；
+ * 同时进行的并行扫描数由hbase.scan.max-concurrent-jobs个许可限制（默认parallelism / max-slices-per-job），
+ * 许可用完时立即拒绝（429），慢速客户端即使全部停止读取也不会让后来的扫描在任务队列里无限等待。
+ * <ul>
+ * <li>ordered=false：所有分片共用一个队列，结果按到达顺序回调，吞吐最高；</li>
+ * <li>ordered=true：结果按rowkey有序回调。分片之间key范围互不重叠且有序，k路归并退化为按分片顺序依次消费，
+ * 同时最多预取max-slices-per-job个分片。</li>
+ * </ul>
+ **/
+@Slf4j
+@Component
+public class HBaseParallelScanner implements DisposableBean {
+	private static final Object SLICE_END = new Object();
+	private static final long OFFER_TIMEOUT_MILLIS = 100L;
+	private final HBaseTemplate hBaseTemplate;
+	private final ThreadPoolExecutor executor;
+	private final int queueCapacity;
+	private final int splitsPerRegion;
+	private final int maxSlicesPerJob;
+	private final int maxConcurrentJobs;
+	private final Semaphore jobPermits;
+
+	public HBaseParallelScanner(HBaseTemplate hBaseTemplate, int parallelism, int queueCapacity, int splitsPerRegion,
+															int maxSlicesPerJob) {
+		this(hBaseTemplate, parallelism, queueCapacity, splitsPerRegion, maxSlicesPerJob, 0);
+	}
+
+	/**
+	 * @param maxConcurrentJobs 同时进行的并行扫描数上限，<=0时为parallelism / maxSlicesPerJob，所有扫描的分片恰好占满线程池
+	 */
+	@Autowired
+	public HBaseParallelScanner(HBaseTemplate hBaseTemplate,
+															@Value("${hbase.scan.parallelism:16}") int parallelism,
+															@Value("${hbase.scan.queue-capacity:1000}") int queueCapacity,
+															@Value("${hbase.scan.splits-per-region:1}") int splitsPerRegion,
+															@Value("${hbase.scan.max-slices-per-job:4}") int maxSlicesPerJob,
+															@Value("${hbase.scan.max-concurrent-jobs:0}") int maxConcurrentJobs) {
+		this.hBaseTemplate = hBaseTemplate;
+		this.queueCapacity = queueCapacity;
+		this.splitsPerRegion = splitsPerRegion;
+		this.maxSlicesPerJob = Math.max(1, Math.min(parallelism, maxSlicesPerJob));
+		this.maxConcurrentJobs = maxConcurrentJobs > 0 ? maxConcurrentJobs : Math.max(1, parallelism / this.maxSlicesPerJob);
+		this.jobPermits = new Semaphore(this.maxConcurrentJobs);
+		//任务队列长度由许可数限制（最多maxConcurrentJobs * maxSlicesPerJob个任务）；
+		//不能用CallerRunsPolicy，否则消费线程会去执行生产任务，自己把自己堵死
+		this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+						new LinkedBlockingQueue<>(),
+						new ThreadFactoryBuilder().setNameFormat("hbase-scan-%d").setDaemon(true).build());
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * 并行扫描，在调用线程上逐个回调结果
+	 *
+	 * @param tableName
+	 * @param scan      扫描条件，startRow/stopRow用来裁剪分片，不会被修改
+	 * @param ordered   是否按rowkey有序回调
+	 * @param handler   结果回调，返回false时停止扫描
+	 * @throws IOException
+	 * @throws TooManyRequestsException 需要并行扫描（多个分片）且进行中的并行扫描数达到上限
+	 */
+	public void scan(String tableName, Scan scan, boolean ordered, ResultHandler handler) throws IOException {
+		TableName name = TableName.valueOf(tableName);
+		hBaseTemplate.execute(connection -> {
+			List<Scan> slices = split(connection, name, scan);
+			if (slices.size() <= 1) {
+				//只有一个分片时在调用线程上扫描，不占用扫描线程
+				scanSlice(connection, name, slices.isEmpty() ? scan : slices.get(0), handler);
+				return null;
+			}
+			if (!jobPermits.tryAcquire()) {
+				throw new TooManyRequestsException("进行中的并行扫描数已达上限" + maxConcurrentJobs + "，请稍后重试");
+			}
+			try {
+				new ScanJob(connection, name, slices, ordered).run(handler);
+			} finally {
+				jobPermits.release();
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * @return 进行中的并行扫描数
+	 */
+	public int getActiveJobs() {
+		return maxConcurrentJobs - jobPermits.availablePermits();
+	}
+
+	/**
+	 * 按region边界与扫描范围的交集拆分分片
+	 */
+	List<Scan> split(Connection connection, TableName name, Scan scan) throws IOException {
+		List<Scan> slices = new ArrayList<>();
+		if (scan.isReversed()) {
+			slices.add(scan);
+			return slices;
+		}
+		Pair<byte[][], byte[][]> keys;
+		try (RegionLocator locator = connection.getRegionLocator(name)) {
+			keys = locator.getStartEndKeys();
+		}
+		for (int i = 0; i < keys.getFirst().length; i++) {
+			byte[] lo = max(keys.getFirst()[i], scan.getStartRow());
+			byte[] hi = min(keys.getSecond()[i], scan.getStopRow());
+			if (hi.length > 0 && Bytes.compareTo(lo, hi) >= 0) {
+				continue;
+			}
+			byte[][] bounds = null;
+			if (splitsPerRegion > 1 && lo.length > 0 && hi.length > 0) {
+				bounds = Bytes.split(lo, hi, splitsPerRegion - 1);
+			}
+			if (bounds == null) {
+				bounds = new byte[][]{lo, hi};
+			}
+			for (int j = 0; j < bounds.length - 1; j++) {
+				Scan slice = new Scan(scan);
+				slice.setStartRow(bounds[j]);
+				slice.setStopRow(bounds[j + 1]);
+				slices.add(slice);
+			}
+		}
+		return slices;
+	}
+
+	private static void scanSlice(Connection connection, TableName name, Scan scan, ResultHandler handler) throws IOException {
+		try (Table table = connection.getTable(name); ResultScanner scanner = table.getScanner(scan)) {
+			for (Result result : scanner) {
+				if (!handler.onResult(result)) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * 空数组表示无下界
+	 */
+	private static byte[] max(byte[] regionStart, byte[] scanStart) {
+		if (regionStart.length == 0) {
+			return scanStart;
+		}
+		if (scanStart.length == 0) {
+			return regionStart;
+		}
+		return Bytes.compareTo(regionStart, scanStart) >= 0 ? regionStart : scanStart;
+	}
+
+	/**
+	 * 空数组表示无上界
+	 */
+	private static byte[] min(byte[] regionEnd, byte[] scanStop) {
+		if (regionEnd.length == 0) {
+			return scanStop;
+		}
+		if (scanStop.length == 0) {
+			return regionEnd;
+		}
+		return Bytes.compareTo(regionEnd, scanStop) <= 0 ? regionEnd : scanStop;
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * 一次并行扫描：分片任务生产结果，调用线程消费
+	 */
+	private final class ScanJob {
+		private final Connection connection;
+		private final TableName name;
+		private final List<Scan> slices;
+		private final boolean ordered;
+		private final int window;  //同时执行的分片数
+		private final List<BlockingQueue<Object>> queues = new ArrayList<>();
+		private final Phaser running = new Phaser(1);  //消费线程 + 已提交的分片任务
+		private volatile boolean cancelled = false;
+
+		private ScanJob(Connection connection, TableName name, List<Scan> slices, boolean ordered) {
+			this.connection = connection;
+			this.name = name;
+			this.slices = slices;
+			this.ordered = ordered;
+			this.window = Math.min(maxSlicesPerJob, slices.size());
+			if (ordered) {
+				int capacity = Math.max(1, queueCapacity / window);
+				for (int i = 0; i < slices.size(); i++) {
+					queues.add(new ArrayBlockingQueue<>(capacity));
+				}
+			} else {
+				BlockingQueue<Object> shared = new ArrayBlockingQueue<>(queueCapacity);
+				for (int i = 0; i < slices.size(); i++) {
+					queues.add(shared);
+				}
+			}
+		}
+
+		private void run(ResultHandler handler) throws IOException {
+			try {
+				if (ordered) {
+					consumeOrdered(handler);
+				} else {
+					consumeUnordered(handler);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("并行扫描时线程被中断");
+			} finally {
+				cancelled = true;
+				queues.forEach(BlockingQueue::clear);
+				//等所有分片任务关闭各自的scanner之后再归还连接
+				running.arriveAndAwaitAdvance();
+			}
+		}
+
+		private void consumeUnordered(ResultHandler handler) throws InterruptedException, IOException {
+			int next = 0;
+			for (; next < window; next++) {
+				submit(next);
+			}
+			BlockingQueue<Object> queue = queues.get(0);
+			int finished = 0;
+			while (finished < slices.size()) {
+				Object item = queue.take();
+				if (item == SLICE_END) {
+					finished++;
+					if (next < slices.size()) {
+						submit(next++);
+					}
+				} else if (!accept(item, handler)) {
+					return;
+				}
+			}
+		}
+
+		private void consumeOrdered(ResultHandler handler) throws InterruptedException, IOException {
+			for (int i = 0; i < window; i++) {
+				submit(i);
+			}
+			for (int i = 0; i < slices.size(); i++) {
+				BlockingQueue<Object> queue = queues.get(i);
+				Object item;
+				while ((item = queue.take()) != SLICE_END) {
+					if (!accept(item, handler)) {
+						return;
+					}
+				}
+				if (i + window < slices.size()) {
+					submit(i + window);
+				}
+			}
+		}
+
+		private boolean accept(Object item, ResultHandler handler) throws IOException {
+			if (item instanceof Throwable) {
+				Throwable e = (Throwable) item;
+				if (e instanceof IOException) {
+					throw (IOException) e;
+				}
+				if (e instanceof RuntimeException) {
+					throw (RuntimeException) e;
+				}
+				throw new ServiceException("并行扫描失败: " + e);
+			}
+			return handler.onResult((Result) item);
+		}
+
+		private void submit(int index) {
+			running.register();
+			try {
+				executor.execute(() -> {
+					try {
+						produce(slices.get(index), queues.get(index));
+					} finally {
+						running.arriveAndDeregister();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				running.arriveAndDeregister();
+				throw e;
+			}
+		}
+
+		private void produce(Scan slice, BlockingQueue<Object> queue) {
+			if (cancelled) {
+				return;
+			}
+			try (Table table = connection.getTable(name); ResultScanner scanner = table.getScanner(slice)) {
+				for (Result result : scanner) {
+					if (!offer(queue, result)) {
+						return;
+					}
+				}
+				offer(queue, SLICE_END);
+			} catch (Throwable e) {
+				offer(queue, e);
+			}
+		}
+
+		/**
+		 * 队列满时阻塞等待，消费方已结束时放弃
+		 */
+		private boolean offer(BlockingQueue<Object> queue, Object item) {
+			try {
+				while (!cancelled) {
+					if (queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+						return true;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * 扫描结果回调
+	 */
+	@FunctionalInterface
+	public interface ResultHandler {
+		/**
+		 * @return 是否继续扫描
+		 */
+		boolean onResult(Result result) throws IOException;
+	}
+}
@@ -0,0 +1,282 @@
+package springboot.hbase.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.UnaryOperator;
+
+/**
+ * 进程内读穿透行缓存（hbase.cache.enabled=true时启用）
+ * <p>
+ * 按(table, row)缓存整行或单列的值，不存在的行/列同样缓存。容量按估算的字节数限制，淘汰策略为Caffeine的W-TinyLFU。
+ * 本节点的写入、删除在HBase操作完成后失效对应的行；为防止并发读把旧值写回缓存，每次失效递增所在分段的版本号，
+ * 加载前后版本号不一致的结果不缓存；表中有尚未刷写的异步写入时也不缓存。其他节点的写入只能等TTL过期。
+ **/
+@Component
+public class HBaseRowCache {
+	private static final int STRIPES = 256;
+	private static final int STRING_OVERHEAD = 40;  //String对象头、数组头等的估算字节数
+	private static final int ARRAY_OVERHEAD = 16;  //byte[]数组头的估算字节数
+	private static final int ENTRY_OVERHEAD = 64;  //缓存条目自身的估算字节数
+	private final HBaseWritePipeline writePipeline;
+	private final boolean enabled;
+	private final Cache<RowId, CachedRow> cache;
+	private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+	@Autowired
+	public HBaseRowCache(HBaseWritePipeline writePipeline,
+											 MeterRegistry meterRegistry,
+											 @Value("${hbase.cache.enabled:false}") boolean enabled,
+											 @Value("${hbase.cache.max-weight:67108864}") long maxWeight,
+											 @Value("${hbase.cache.ttl:30000}") long ttlMillis) {
+		this.writePipeline = writePipeline;
+		this.enabled = enabled;
+		this.cache = Caffeine.newBuilder()
+						.maximumWeight(maxWeight)
+						.weigher((RowId key, CachedRow value) -> key.weight + value.weight)
+						.expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+						.recordStats()
+						.build();
+		if (enabled) {
+			CaffeineCacheMetrics.monitor(meterRegistry, cache, "hbaseRowCache");
+			Gauge.builder("hbase.cache.weight", this, HBaseRowCache::getWeightedSize)
+							.baseUnit("bytes")
+							.description("行缓存估算占用的字节数")
+							.register(meterRegistry);
+		}
+	}
+
+	/**
+	 * 读取整行
+	 *
+	 * @param tableName
+	 * @param rowKey
+	 * @param loader    缓存未命中时从HBase读取
+	 * @return 行不存在时为空Result
+	 * @throws IOException
+	 */
+	public Result getRow(String tableName, String rowKey, Loader<Result> loader) throws IOException {
+		if (!enabled) {
+			return loader.load();
+		}
+		RowId id = new RowId(tableName, rowKey);
+		CachedRow cached = cache.getIfPresent(id);
+		if (cached != null && cached.row != null) {
+			return cached.row;
+		}
+		long version = versions.get(id.stripe());
+		boolean cacheable = !writePipeline.hasPendingWrites(tableName);
+		Result row = loader.load();
+		if (cacheable) {
+			fill(id, version, existing -> existing == null ? new CachedRow(row, Collections.emptyMap()) : existing.withRow(row));
+		}
+		return row;
+	}
+
+	/**
+	 * 读取单列的值（原始字节，由调用方按请求的编码转换）
+	 *
+	 * @param tableName
+	 * @param rowKey
+	 * @param family
+	 * @param qualifier
+	 * @param loader    缓存未命中时从HBase读取
+	 * @return 列不存在时为null
+	 * @throws IOException
+	 */
+	public byte[] getValue(String tableName, String rowKey, String family, String qualifier, Loader<byte[]> loader) throws IOException {
+		if (!enabled) {
+			return loader.load();
+		}
+		RowId id = new RowId(tableName, rowKey);
+		String column = family + ":" + qualifier;
+		CachedRow cached = cache.getIfPresent(id);
+		if (cached != null) {
+			if (cached.values.containsKey(column)) {
+				return cached.values.get(column);
+			}
+			if (cached.row != null) {
+				return cached.find(family, qualifier);
+			}
+		}
+		long version = versions.get(id.stripe());
+		boolean cacheable = !writePipeline.hasPendingWrites(tableName);
+		byte[] value = loader.load();
+		if (cacheable) {
+			fill(id, version, existing -> existing == null
+							? new CachedRow(null, Collections.singletonMap(column, value))
+							: existing.withValue(column, value));
+		}
+		return value;
+	}
+
+	/**
+	 * 预先加载若干整行，启动预热时调用；加载期间被失效的行不缓存
+	 *
+	 * @param tableName
+	 * @param loader    从HBase读取要缓存的行
+	 * @return 缓存的行数，未启用缓存时为0
+	 * @throws IOException
+	 */
+	public int preload(String tableName, Loader<? extends Iterable<Result>> loader) throws IOException {
+		if (!enabled || writePipeline.hasPendingWrites(tableName)) {
+			return 0;
+		}
+		long[] snapshot = new long[STRIPES];
+		for (int i = 0; i < STRIPES; i++) {
+			snapshot[i] = versions.get(i);
+		}
+		int loaded = 0;
+		for (Result row : loader.load()) {
+			if (row.isEmpty()) {
+				continue;
+			}
+			RowId id = new RowId(tableName, Bytes.toString(row.getRow()));
+			fill(id, snapshot[id.stripe()], existing -> existing == null
+							? new CachedRow(row, Collections.emptyMap()) : existing.withRow(row));
+			loaded++;
+		}
+		return loaded;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * 失效若干行，在写入或删除完成后调用
+	 *
+	 * @param tableName
+	 * @param rowKeys
+	 */
+	public void invalidateRows(String tableName, Collection<String> rowKeys) {
+		if (!enabled) {
+			return;
+		}
+		for (String rowKey : rowKeys) {
+			RowId id = new RowId(tableName, rowKey);
+			versions.incrementAndGet(id.stripe());
+			cache.invalidate(id);
+		}
+	}
+
+	/**
+	 * 失效整张表，删除表或列族后调用
+	 *
+	 * @param tableName
+	 */
+	public void invalidateTable(String tableName) {
+		if (!enabled) {
+			return;
+		}
+		for (int i = 0; i < STRIPES; i++) {
+			versions.incrementAndGet(i);
+		}
+		cache.asMap().keySet().removeIf(id -> id.tableName.equals(tableName));
+	}
+
+	/**
+	 * @return 缓存估算占用的字节数
+	 */
+	public long getWeightedSize() {
+		return cache.policy().eviction()
+						.map(eviction -> eviction.weightedSize().orElse(0L))
+						.orElse(0L);
+	}
+
+	/**
+	 * 只有加载期间所在分段没有被失效过，才把结果合并进缓存
+	 */
+	private void fill(RowId id, long version, UnaryOperator<CachedRow> merge) {
+		cache.asMap().compute(id, (key, existing) -> versions.get(key.stripe()) == version ? merge.apply(existing) : existing);
+	}
+
+	private static int weight(String s) {
+		return s == null ? 0 : STRING_OVERHEAD + 2 * s.length();
+	}
+
+	private static int weight(byte[] b) {
+		return b == null ? 0 : ARRAY_OVERHEAD + b.length;
+	}
+
+	@EqualsAndHashCode(exclude = "weight")
+	private static final class RowId {
+		private final String tableName;
+		private final String rowKey;
+		private final int weight;
+
+		private RowId(String tableName, String rowKey) {
+			this.tableName = tableName;
+			this.rowKey = rowKey;
+			this.weight = weight(tableName) + weight(rowKey);
+		}
+
+		private int stripe() {
+			return (hashCode() & Integer.MAX_VALUE) % STRIPES;
+		}
+	}
+
+	/**
+	 * 缓存的行，不可修改：row为整行（null表示未缓存整行），values为单列的值（值为null表示列不存在）；
+	 * 返回给调用方的值数组只允许读取
+	 */
+	private static final class CachedRow {
+		private final Result row;
+		private final Map<String, byte[]> values;
+		private final int weight;
+
+		private CachedRow(Result row, Map<String, byte[]> values) {
+			this.row = row;
+			this.values = values;
+			int w = ENTRY_OVERHEAD;
+			if (row != null) {
+				w += (int) Math.min(Integer.MAX_VALUE / 2, Result.getTotalSizeOfCells(row));
+			}
+			for (Map.Entry<String, byte[]> entry : values.entrySet()) {
+				w += weight(entry.getKey()) + weight(entry.getValue());
+			}
+			this.weight = w;
+		}
+
+		private CachedRow withRow(Result row) {
+			return new CachedRow(row, values);
+		}
+
+		private CachedRow withValue(String column, byte[] value) {
+			Map<String, byte[]> copy = new HashMap<>(values);
+			copy.put(column, value);
+			return new CachedRow(row, copy);
+		}
+
+		private byte[] find(String family, String qualifier) {
+			Cell cell = row.getColumnLatestCell(Bytes.toBytes(family), Bytes.toBytes(qualifier));
+			return cell == null ? null : CellUtil.cloneValue(cell);
+		}
+	}
+
+	/**
+	 * 缓存未命中时的加载逻辑
+	 */
+	@FunctionalInterface
+	public interface Loader<T> {
+		T load() throws IOException;
+	}
+}
@@ -0,0 +1,239 @@
+package springboot.hbase.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableNotFoundException;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
+import org.apache.hadoop.hbase.util.Pair;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import springboot.hbase.exception.ServiceException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按region并行统计表的行数
+ * <p>
+ * 每个region一个扫描任务，只取每行第一个cell的key（FirstKeyOnlyFilter + KeyOnlyFilter），
+ * 大批量拉取且不污染RegionServer的BlockCache。结果按表缓存hbase.count.cache-ttl毫秒，
+ * 同一张表同时只会有一次统计在执行，并发请求共享结果。
+ **/
+@Slf4j
+@Component
+public class HBaseRowCounter implements DisposableBean {
+	private static final int REFRESH_THREADS = 2;
+	private static final int REFRESH_QUEUE_CAPACITY = 100;
+	private final HBaseTemplate hBaseTemplate;
+	private final ThreadPoolExecutor executor;
+	private final ThreadPoolExecutor refreshExecutor;
+	private final int scanCaching;
+	private final long cacheTtlMillis;
+	private final ConcurrentHashMap<String, CachedCount> cache = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();
+	private final AtomicLong generation = new AtomicLong(0);  //每次失效加一，统计期间发生过失效的结果不缓存
+
+	@Autowired
+	public HBaseRowCounter(HBaseTemplate hBaseTemplate,
+												 @Value("${hbase.count.parallelism:8}") int parallelism,
+												 @Value("${hbase.count.scan-caching:5000}") int scanCaching,
+												 @Value("${hbase.count.cache-ttl:60000}") long cacheTtlMillis) {
+		this.hBaseTemplate = hBaseTemplate;
+		this.scanCaching = scanCaching;
+		this.cacheTtlMillis = cacheTtlMillis;
+		//队列满时由提交任务的线程自己执行，整体并发不会超过parallelism + 调用线程数
+		this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+						new ArrayBlockingQueue<>(parallelism * 4),
+						new ThreadFactoryBuilder().setNameFormat("hbase-count-%d").setDaemon(true).build(),
+						new ThreadPoolExecutor.CallerRunsPolicy());
+		this.executor.allowCoreThreadTimeOut(true);
+		//后台刷新单独用一个小线程池：刷新任务要等region扫描任务完成，不能与它们共用线程，也不占用ForkJoinPool.commonPool
+		this.refreshExecutor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60L, TimeUnit.SECONDS,
+						new ArrayBlockingQueue<>(REFRESH_QUEUE_CAPACITY),
+						new ThreadFactoryBuilder().setNameFormat("hbase-count-refresh-%d").setDaemon(true).build());
+		this.refreshExecutor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * 统计表的行数
+	 *
+	 * @param tableName
+	 * @param approximate 为true时，只要有缓存（即使已过期）就立即返回，并在后台刷新
+	 * @return 行数
+	 * @throws IOException
+	 */
+	public long count(String tableName, boolean approximate) throws IOException {
+		CachedCount cached = cache.get(tableName);
+		if (cached != null && (approximate || !cached.isExpired(cacheTtlMillis))) {
+			if (cached.isExpired(cacheTtlMillis)) {
+				refresh(tableName, true);
+			}
+			return cached.count;
+		}
+		return await(refresh(tableName, false));
+	}
+
+	/**
+	 * 丢弃表的缓存计数；进行中的统计结果不再缓存，之后的请求重新统计
+	 *
+	 * @param tableName
+	 */
+	public void invalidate(String tableName) {
+		generation.incrementAndGet();
+		cache.remove(tableName);
+		inFlight.remove(tableName);
+	}
+
+	/**
+	 * 发起一次统计，同一张表已有统计在执行时复用它
+	 *
+	 * @param async 为false时在调用线程上统计；为true时在后台刷新线程池中统计
+	 */
+	private CompletableFuture<Long> refresh(String tableName, boolean async) {
+		CompletableFuture<Long> created = new CompletableFuture<>();
+		CompletableFuture<Long> existing = inFlight.putIfAbsent(tableName, created);
+		if (existing != null) {
+			return existing;
+		}
+		long gen = generation.get();
+		Runnable task = () -> {
+			try {
+				long count = countByRegions(tableName);
+				cache.compute(tableName, (name, old) -> generation.get() == gen ? new CachedCount(count, System.currentTimeMillis()) : old);
+				created.complete(count);
+			} catch (Throwable e) {
+				created.completeExceptionally(e);
+			} finally {
+				inFlight.remove(tableName, created);
+			}
+		};
+		if (async) {
+			try {
+				refreshExecutor.execute(task);
+			} catch (RejectedExecutionException e) {
+				//排队的刷新已满，本次继续返回旧的计数，下次请求再刷新
+				inFlight.remove(tableName, created);
+				created.completeExceptionally(e);
+			}
+		} else {
+			task.run();
+		}
+		return created;
+	}
+
+	/**
+	 * 每个region一个扫描任务，并行执行后求和
+	 */
+	long countByRegions(String tableName) throws IOException {
+		TableName name = TableName.valueOf(tableName);
+		return hBaseTemplate.execute(connection -> {
+			Pair<byte[][], byte[][]> keys;
+			try (RegionLocator locator = connection.getRegionLocator(name)) {
+				keys = locator.getStartEndKeys();
+			}
+			if (keys.getFirst().length == 0) {
+				throw new TableNotFoundException(name);  //表不存在时没有region，不能当作0行缓存
+			}
+			List<Future<Long>> futures = new ArrayList<>(keys.getFirst().length);
+			for (int i = 0; i < keys.getFirst().length; i++) {
+				byte[] startRow = keys.getFirst()[i];
+				byte[] stopRow = keys.getSecond()[i];
+				futures.add(executor.submit(() -> countRange(connection, name, startRow, stopRow)));
+			}
+			long total = 0L;
+			try {
+				for (Future<Long> future : futures) {
+					total += future.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("统计行数时线程被中断");
+			} catch (ExecutionException e) {
+				throw unwrap(e.getCause());
+			} finally {
+				futures.forEach(future -> future.cancel(true));
+			}
+			return total;
+		});
+	}
+
+	private long countRange(Connection connection, TableName name, byte[] startRow, byte[] stopRow) throws IOException {
+		Scan scan = new Scan(startRow, stopRow);
+		scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+		scan.setCaching(scanCaching);
+		scan.setCacheBlocks(false);
+		long count = 0L;
+		try (Table table = connection.getTable(name); ResultScanner scanner = table.getScanner(scan)) {
+			for (Result result : scanner) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private long await(CompletableFuture<Long> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("统计行数时线程被中断");
+		} catch (ExecutionException e) {
+			throw unwrap(e.getCause());
+		}
+	}
+
+	private static IOException unwrap(Throwable cause) {
+		if (cause instanceof IOException) {
+			return (IOException) cause;
+		}
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		throw new ServiceException("统计行数失败: " + cause);
+	}
+
+	@Override
+	public void destroy() {
+		refreshExecutor.shutdownNow();
+		executor.shutdownNow();
+	}
+
+	private static final class CachedCount {
+		private final long count;
+		private final long computedAt;
+
+		private CachedCount(long count, long computedAt) {
+			this.count = count;
+			this.computedAt = computedAt;
+		}
+
+		private boolean isExpired(long ttlMillis) {
+			return System.currentTimeMillis() - computedAt > ttlMillis;
+		}
+	}
+}
@@ -3,22 +3,31 @@ package springboot.hbase.service;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.hadoop.hbase.*;
 import org.apache.hadoop.hbase.client.*;
+import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
+import springboot.hbase.entity.MultiGetRow;
 import springboot.hbase.entity.PutInfo;
-import springboot.hbase.entity.ResultInfo;
+import springboot.hbase.entity.ResultCells;
+import springboot.hbase.entity.ScanQuery;
+import springboot.hbase.entity.ScanRow;
+import springboot.hbase.entity.ValueEncoding;
+import springboot.hbase.exception.InvalidParameterException;
 import springboot.hbase.exception.ServiceException;
-import springboot.hbase.util.HBaseConnectionPool;
+import springboot.hbase.service.HBaseOperationMetrics.Operation;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Created by jingdong on 2018-06-26
@@ -26,6 +35,31 @@ import java.util.stream.Stream;
 @Slf4j
 @Service
 public class HBaseService {
+	private static final int STREAM_SCAN_CACHING = 500;  //流式扫描每次RPC拉取的行数
+	private static final int ROW_KEY_SCAN_CACHING = 10000;  //只取rowkey时每行只有一个不带值的Cell，每次RPC可以多拉取
+	private static final int MULTI_GET_MAX_KEYS = 10000;  //批量查询一次最多的行数
+	private static final int MULTI_GET_BATCH_SIZE = 1000;  //批量查询每次Table.get的行数
+	private final HBaseTemplate hBaseTemplate;
+	private final HBaseRowCounter rowCounter;
+	private final HBaseParallelScanner parallelScanner;
+	private final HBaseWritePipeline writePipeline;
+	private final HBaseRowCache rowCache;
+	private final HBaseMetadataCache metadataCache;
+	private final ValueEncodingResolver encodingResolver;
+	private final HBaseOperationMetrics metrics;
+
+	public HBaseService(HBaseTemplate hBaseTemplate, HBaseRowCounter rowCounter, HBaseParallelScanner parallelScanner,
+											HBaseWritePipeline writePipeline, HBaseRowCache rowCache, HBaseMetadataCache metadataCache,
+											ValueEncodingResolver encodingResolver, HBaseOperationMetrics metrics) {
+		this.hBaseTemplate = hBaseTemplate;
+		this.rowCounter = rowCounter;
+		this.parallelScanner = parallelScanner;
+		this.writePipeline = writePipeline;
+		this.rowCache = rowCache;
+		this.metadataCache = metadataCache;
+		this.encodingResolver = encodingResolver;
+		this.metrics = metrics;
+	}
 
 	/**
 	 * 查询HBase中所有表
@@ -34,7 +68,7 @@ public class HBaseService {
 	 * @throws IOException
 	 */
 	public List<String> getListTables() throws IOException {
-		return Stream.of(getAdmin().listTables()).map(HTableDescriptor::getNameAsString).collect(Collectors.toList());
+		return metrics.record(Operation.LIST_TABLES, null, metadataCache::listTables);
 	}
 
 	/**
@@ -44,17 +78,21 @@ public class HBaseService {
 	 * @return
 	 */
 	public long countByTableName(String tableName) throws IOException {
-		long count = 0L;
-		HBaseConnectionPool.getInstance();
-		Connection connection = HBaseConnectionPool.getConnection().getConnection();
-		Table table = connection.getTable(TableName.valueOf(tableName));
-		Scan scan = new Scan();
-		scan.setFilter(new FirstKeyOnlyFilter());
-		ResultScanner scanner = table.getScanner(scan);
-		for (Result result : scanner) {
-			count += result.size();
-		}
-		return count;
+		return countByTableName(tableName, false);
+	}
+
+	/**
+	 * 查询HBase表中数据的数量，按region并行统计，结果会缓存一段时间
+	 *
+	 * @param tableName
+	 * @param approximate 为true时允许直接返回过期的缓存值
+	 * @return
+	 */
+	public long countByTableName(String tableName, boolean approximate) throws IOException {
+		return metrics.record(Operation.COUNT, tableName, () -> {
+			getTableDescriptor(tableName);  //表不存在时抛出，不统计也不缓存
+			return rowCounter.count(tableName, approximate);
+		});
 	}
 
 	/**
@@ -64,14 +102,71 @@ public class HBaseService {
 	 * @return
 	 */
 	public List<String> getRowKeysByTableName(String tableName) throws IOException {
-		List<String> list = new ArrayList<>();
-		Scan scan = new Scan();
-		ResultScanner scanner = getTableByTableName(tableName).getScanner(scan);
-		for (Result result : scanner) {
-			String rowKey = Bytes.toString(result.getRow());
-			list.add(rowKey);
-		}
-		return list;
+		return getRowKeysByTableName(tableName, true);
+	}
+
+	/**
+	 * 查询HBase表中的所有rowkey，按region并行扫描，每行只返回第一个Cell的key
+	 *
+	 * @param tableName
+	 * @param ordered   是否按rowkey排序返回
+	 * @return
+	 */
+	public List<String> getRowKeysByTableName(String tableName, boolean ordered) throws IOException {
+		return metrics.record(Operation.ROW_KEYS, tableName, () -> {
+			Scan scan = rowKeyScan();
+			List<String> list = new ArrayList<>();
+			long[] cells = {0};
+			parallelScanner.scan(tableName, scan, ordered, result -> {
+				cells[0] += result.size();
+				return list.add(Bytes.toString(result.getRow()));
+			});
+			metrics.recordRows(Operation.ROW_KEYS, tableName, list.size(), cells[0]);
+			return list;
+		});
+	}
+
+	/**
+	 * 流式扫描rowkey：按rowkey顺序逐个回调，不在内存中保留结果
+	 *
+	 * @param tableName
+	 * @param startRow     起始rowkey（包含），为空时从表头开始
+	 * @param stopRow      结束rowkey（不包含），为空时扫描到表尾
+	 * @param continuation 上一次扫描返回的续扫令牌，不为空时忽略startRow
+	 * @param limit        最多返回的rowkey数，<=0不限制
+	 * @param handler      rowkey回调
+	 * @return 达到limit时返回续扫令牌，扫描完毕返回null
+	 * @throws IOException
+	 */
+	public String scanRowKeys(String tableName, String startRow, String stopRow, String continuation, int limit,
+														RowKeyHandler handler) throws IOException {
+		return metrics.record(Operation.STREAM_ROW_KEYS, tableName, () -> {
+			Scan scan = rowKeyScan();
+			if (continuation != null && !continuation.isEmpty()) {
+				scan.setStartRow(decodeContinuation(continuation));
+			} else if (startRow != null && !startRow.isEmpty()) {
+				scan.setStartRow(Bytes.toBytes(startRow));
+			}
+			if (stopRow != null && !stopRow.isEmpty()) {
+				scan.setStopRow(Bytes.toBytes(stopRow));
+			}
+			if (limit > 0) {
+				scan.setCaching(Math.min(limit, ROW_KEY_SCAN_CACHING));
+			}
+			int[] rows = {0};
+			byte[][] lastRow = {null};
+			parallelScanner.scan(tableName, scan, true, result -> {
+				rows[0]++;
+				handler.onRowKey(Bytes.toString(result.getRow()));
+				if (limit > 0 && rows[0] >= limit) {
+					lastRow[0] = result.getRow();
+					return false;
+				}
+				return true;
+			});
+			metrics.recordRows(Operation.STREAM_ROW_KEYS, tableName, rows[0], rows[0]);
+			return lastRow[0] == null ? null : encodeContinuation(lastRow[0]);
+		});
 	}
 
 	/**
@@ -82,20 +177,97 @@ public class HBaseService {
 	 * @return
 	 * @throws IOException
 	 */
-	public List<ResultInfo> getResultByRowKey(String tableName, String rowKey) throws IOException {
-		List<ResultInfo> list = new ArrayList<>();
-		Get get = new Get(Bytes.toBytes(rowKey));
-		Result result = getTableByTableName(tableName).get(get);
-		for (Cell cell : result.rawCells()) {
-			ResultInfo info = ResultInfo.builder()
-							.family(Bytes.toString(CellUtil.cloneFamily(cell)))
-							.qualifier(Bytes.toString(CellUtil.cloneQualifier(cell)))
-							.value(Bytes.toString(CellUtil.cloneValue(cell)))
-							.timestamp(cell.getTimestamp())
-							.build();
-			list.add(info);
-		}
-		return list;
+	public ResultCells getResultByRowKey(String tableName, String rowKey) throws IOException {
+		return getResultByRowKey(tableName, rowKey, null);
+	}
+
+	/**
+	 * 根据 rowkey 查询（查询单行数据）
+	 *
+	 * @param tableName
+	 * @param rowKey
+	 * @param encoding  值编码，为null时使用表的默认编码
+	 * @return
+	 * @throws IOException
+	 */
+	public ResultCells getResultByRowKey(String tableName, String rowKey, ValueEncoding encoding) throws IOException {
+		return metrics.record(Operation.GET, tableName, () -> {
+			ValueEncoding resolved = encodingResolver.resolve(tableName, encoding);
+			Get get = new Get(Bytes.toBytes(rowKey));
+			return ResultCells.of(rowCache.getRow(tableName, rowKey, () -> hBaseTemplate.withTable(tableName, table -> table.get(get))), resolved);
+		});
+	}
+
+	/**
+	 * 批量查询多行，结果按请求顺序返回，不存在的行found为false
+	 *
+	 * @param tableName
+	 * @param rowKeys
+	 * @param columns   "family"或"family:qualifier"，为空时返回整行
+	 * @return
+	 * @throws IOException
+	 */
+	public List<MultiGetRow> multiGet(String tableName, List<String> rowKeys, List<String> columns) throws IOException {
+		return multiGet(tableName, rowKeys, columns, null);
+	}
+
+	/**
+	 * 批量查询多行，结果按请求顺序返回，不存在的行found为false
+	 *
+	 * @param tableName
+	 * @param rowKeys
+	 * @param columns   "family"或"family:qualifier"，为空时返回整行
+	 * @param encoding  值编码，为null时使用表的默认编码
+	 * @return
+	 * @throws IOException
+	 */
+	public List<MultiGetRow> multiGet(String tableName, List<String> rowKeys, List<String> columns, ValueEncoding encoding) throws IOException {
+		return metrics.record(Operation.MULTI_GET, tableName, () -> {
+			ValueEncoding resolved = encodingResolver.resolve(tableName, encoding);
+			if (CollectionUtils.isEmpty(rowKeys)) {
+				throw new InvalidParameterException("rowKeys不能为空");
+			}
+			if (rowKeys.size() > MULTI_GET_MAX_KEYS) {
+				throw new InvalidParameterException("一次最多查询" + MULTI_GET_MAX_KEYS + "行");
+			}
+			//去重后按rowkey排序，同一region的Get相邻，客户端再按RegionServer合并成一次multi请求
+			TreeMap<byte[], Get> gets = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+			for (String rowKey : rowKeys) {
+				gets.computeIfAbsent(Bytes.toBytes(rowKey), row -> withColumns(new Get(row), columns));
+			}
+			List<Get> sorted = new ArrayList<>(gets.values());
+			TreeMap<byte[], Result> results = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+			hBaseTemplate.withTable(tableName, table -> {
+				for (int from = 0; from < sorted.size(); from += MULTI_GET_BATCH_SIZE) {
+					List<Get> batch = sorted.subList(from, Math.min(from + MULTI_GET_BATCH_SIZE, sorted.size()));
+					Result[] batchResults = table.get(batch);
+					for (int i = 0; i < batchResults.length; i++) {
+						results.put(batch.get(i).getRow(), batchResults[i]);
+					}
+				}
+				return null;
+			});
+			long found = 0;
+			long cells = 0;
+			for (Result result : results.values()) {
+				if (result != null && !result.isEmpty()) {
+					found++;
+					cells += result.size();
+				}
+			}
+			List<MultiGetRow> rows = new ArrayList<>(rowKeys.size());
+			for (String rowKey : rowKeys) {
+				Result result = results.get(Bytes.toBytes(rowKey));
+				boolean exists = result != null && !result.isEmpty();
+				rows.add(MultiGetRow.builder()
+								.rowKey(rowKey)
+								.found(exists)
+								.cells(ResultCells.of(result, resolved))
+								.build());
+			}
+			metrics.recordRows(Operation.MULTI_GET, tableName, found, cells);
+			return rows;
+		});
 	}
 
 	/**
@@ -104,12 +276,11 @@ public class HBaseService {
 	 * @return
 	 */
 	public List<String> getAllFamiliesByTableName(String tableName) throws IOException {
-		return getTableByTableName(tableName)
-						.getTableDescriptor()
+		return metrics.record(Operation.DESCRIBE, tableName, () -> getTableDescriptor(tableName)
 						.getFamilies()
 						.stream()
 						.map(HColumnDescriptor::getNameAsString)
-						.collect(Collectors.toList());
+						.collect(Collectors.toList()));
 	}
 
 	/**
@@ -119,9 +290,7 @@ public class HBaseService {
 	 * @return
 	 */
 	public String getDescribeTable(String tableName) throws IOException {
-		return getAdmin()
-						.getTableDescriptor(TableName.valueOf(tableName))
-						.toString();
+		return metrics.record(Operation.DESCRIBE, tableName, () -> getTableDescriptor(tableName).toString());
 	}
 
 	/**
@@ -131,18 +300,24 @@ public class HBaseService {
 	 * @param familyNames
 	 */
 	public void createTable(String tableName, String[] familyNames) throws IOException {
-		Admin admin = getAdmin();
-		boolean b = admin.tableExists(TableName.valueOf(tableName));
-		if (b) {
-			throw new ServiceException("表已经存在！");
-		}
+		metrics.record(Operation.CREATE_TABLE, tableName, () -> {
+			hBaseTemplate.withAdmin(admin -> {
+				boolean b = admin.tableExists(TableName.valueOf(tableName));
+				if (b) {
+					throw new ServiceException("表已经存在！");
+				}
 
-		HTableDescriptor tableDescriptor = new HTableDescriptor(TableName.valueOf(tableName));
-		for (String family : familyNames) {
-			tableDescriptor.addFamily(new HColumnDescriptor(family));
-		}
+				HTableDescriptor tableDescriptor = new HTableDescriptor(TableName.valueOf(tableName));
+				for (String family : familyNames) {
+					tableDescriptor.addFamily(new HColumnDescriptor(family));
+				}
 
-		admin.createTable(tableDescriptor);
+				admin.createTable(tableDescriptor);
+				return null;
+			});
+			metadataCache.invalidate(tableName);
+			return null;
+		});
 	}
 
 	/**
@@ -152,12 +327,26 @@ public class HBaseService {
 	 * @throws IOException
 	 */
 	public void removeTable(String tableName) throws IOException {
-		TableName name = TableName.valueOf(tableName);
-		Admin admin = getAdmin();
-		if (admin.tableExists(name)) {
-			admin.disableTable(name);
-			admin.deleteTable(name);
-		}
+		metrics.record(Operation.REMOVE_TABLE, tableName, () -> {
+			TableName name = TableName.valueOf(tableName);
+			//删除期间拒绝写入：元数据缓存失效前写入仍会认为表存在，不能再为它创建BufferedMutator
+			writePipeline.beginDrop(tableName);
+			try {
+				hBaseTemplate.withAdmin(admin -> {
+					if (admin.tableExists(name)) {
+						admin.disableTable(name);
+						admin.deleteTable(name);
+					}
+					return null;
+				});
+				metadataCache.invalidate(tableName);
+			} finally {
+				writePipeline.endDrop(tableName);
+			}
+			rowCounter.invalidate(tableName);
+			rowCache.invalidateTable(tableName);
+			return null;
+		});
 	}
 
 	/**
@@ -168,18 +357,24 @@ public class HBaseService {
 	 * @throws IOException
 	 */
 	public void addNewFamily(String tableName, String[] familyNames) throws IOException {
-		Admin admin = getAdmin();
-		TableName table = TableName.valueOf(tableName);
-		boolean b = admin.tableExists(table);
-		if (!b) {
-			throw new ServiceException("表不存在！");
-		}
+		metrics.record(Operation.ADD_FAMILY, tableName, () -> {
+			TableName table = TableName.valueOf(tableName);
+			hBaseTemplate.withAdmin(admin -> {
+				boolean b = admin.tableExists(table);
+				if (!b) {
+					throw new ServiceException("表不存在！");
+				}
 
-		admin.disableTable(table);
-		for (String family : familyNames) {
-			admin.addColumn(table, new HColumnDescriptor(family));
-		}
-		admin.enableTable(table);
+				admin.disableTable(table);
+				for (String family : familyNames) {
+					admin.addColumn(table, new HColumnDescriptor(family));
+				}
+				admin.enableTable(table);
+				return null;
+			});
+			metadataCache.invalidate(tableName);
+			return null;
+		});
 	}
 
 	/**
@@ -190,23 +385,30 @@ public class HBaseService {
 	 * @throws IOException
 	 */
 	public void removeFamily(String tableName, String[] familyNames) throws IOException {
-		Admin admin = getAdmin();
-		TableName table = TableName.valueOf(tableName);
-		boolean b = admin.tableExists(table);
-		if (!b) {
-			throw new ServiceException("表不存在！");
-		}
+		metrics.record(Operation.REMOVE_FAMILY, tableName, () -> {
+			TableName table = TableName.valueOf(tableName);
+			hBaseTemplate.withAdmin(admin -> {
+				boolean b = admin.tableExists(table);
+				if (!b) {
+					throw new ServiceException("表不存在！");
+				}
 
-		admin.disableTable(table);
-		for (String family : familyNames) {
-			try {
-				admin.deleteColumn(table, Bytes.toBytes(family));
-			} catch (InvalidFamilyOperationException e) {
+				admin.disableTable(table);
+				for (String family : familyNames) {
+					try {
+						admin.deleteColumn(table, Bytes.toBytes(family));
+					} catch (InvalidFamilyOperationException e) {
+						admin.enableTable(table);
+						throw new ServiceException("删除的family: " + family + "不存在");
+					}
+				}
 				admin.enableTable(table);
-				throw new ServiceException("删除的family: " + family + "不存在");
-			}
-		}
-		admin.enableTable(table);
+				return null;
+			});
+			metadataCache.invalidate(tableName);
+			rowCache.invalidateTable(tableName);
+			return null;
+		});
 	}
 
 	/**
@@ -217,15 +419,63 @@ public class HBaseService {
 	 * @throws IOException
 	 */
 	public void addOrUpdateData(String tableName, List<PutInfo> list) throws IOException {
-		isExistTable(tableName);
+		addOrUpdateData(tableName, list, null);
+	}
 
-		Table table = getTableByTableName(tableName);
-		List<Put> puts = list.stream().map(info -> {
-			Put put = new Put(Bytes.toBytes(info.getRowKey()));
-			put.addColumn(Bytes.toBytes(info.getFamily()), Bytes.toBytes(info.getQualifier()), Bytes.toBytes(info.getValue()));
-			return put;
-		}).collect(Collectors.toList());
-		table.put(puts);
+	/**
+	 * HBase表 添加新的数据或修改数据
+	 *
+	 * @param tableName
+	 * @param list
+	 * @param encoding  value的编码，为null时使用表的默认编码
+	 * @throws IOException
+	 */
+	public void addOrUpdateData(String tableName, List<PutInfo> list, ValueEncoding encoding) throws IOException {
+		metrics.record(Operation.PUT, tableName, () -> {
+			writePipeline.write(tableName, list, encodingResolver.resolve(tableName, encoding), false);
+			rowCache.invalidateRows(tableName, rowKeys(list));
+			return null;
+		});
+	}
+
+	/**
+	 * HBase表 异步添加新的数据或修改数据，写入缓冲区后立即返回
+	 *
+	 * @param tableName
+	 * @param list
+	 * @return 批次号，用于查询写入状态
+	 * @throws IOException
+	 */
+	public long addOrUpdateDataAsync(String tableName, List<PutInfo> list) throws IOException {
+		return addOrUpdateDataAsync(tableName, list, null);
+	}
+
+	/**
+	 * HBase表 异步添加新的数据或修改数据，写入缓冲区后立即返回
+	 *
+	 * @param tableName
+	 * @param list
+	 * @param encoding  value的编码，为null时使用表的默认编码
+	 * @return 批次号，用于查询写入状态
+	 * @throws IOException
+	 */
+	public long addOrUpdateDataAsync(String tableName, List<PutInfo> list, ValueEncoding encoding) throws IOException {
+		return metrics.record(Operation.PUT_ASYNC, tableName, () -> {
+			long batchId = writePipeline.write(tableName, list, encodingResolver.resolve(tableName, encoding), true);
+			rowCache.invalidateRows(tableName, rowKeys(list));
+			return batchId;
+		});
+	}
+
+	/**
+	 * 查询异步写入批次的状态
+	 *
+	 * @param tableName
+	 * @param batchId
+	 * @return flushed/pending/failed/unknown
+	 */
+	public String getWriteStatus(String tableName, long batchId) {
+		return writePipeline.getBatchStatus(tableName, batchId);
 	}
 
 	/**
@@ -238,17 +488,35 @@ public class HBaseService {
 	 * @throws IOException
 	 */
 	public String getValueByKey(String tableName, String rowkey, String family, String qualifier) throws IOException {
-		isExistTable(tableName);
-		Table table = getTableByTableName(tableName);
-		Get get = new Get(Bytes.toBytes(rowkey));
-		get.addColumn(Bytes.toBytes(family), Bytes.toBytes(qualifier));
-		Result result = table.get(get);
-		Cell[] cells = result.rawCells();
-		List<String> list = Stream.of(cells).map(cell -> Bytes.toString(CellUtil.cloneValue(cell))).collect(Collectors.toList());
-		if (CollectionUtils.isEmpty(list)) {
-			return null;
-		}
-		return list.get(0);
+		return getValueByKey(tableName, rowkey, family, qualifier, null);
+	}
+
+	/**
+	 * 获取某个限定符的 值
+	 *
+	 * @param tableName
+	 * @param rowkey
+	 * @param family
+	 * @param qualifier
+	 * @param encoding  值编码，为null时使用表的默认编码
+	 * @return 列不存在时为null
+	 * @throws IOException
+	 */
+	public String getValueByKey(String tableName, String rowkey, String family, String qualifier, ValueEncoding encoding) throws IOException {
+		return metrics.record(Operation.GET_VALUE, tableName, () -> {
+			ValueEncoding resolved = encodingResolver.resolve(tableName, encoding);
+			byte[] value = rowCache.getValue(tableName, rowkey, family, qualifier, () -> {
+				Get get = new Get(Bytes.toBytes(rowkey));
+				get.addColumn(Bytes.toBytes(family), Bytes.toBytes(qualifier));
+				//表不存在时get抛出TableNotFoundException，不再单独调用tableExists
+				Result result = hBaseTemplate.withTable(tableName, table -> table.get(get));
+				if (result.isEmpty()) {
+					return null;
+				}
+				return CellUtil.cloneValue(result.rawCells()[0]);
+			});
+			return value == null ? null : resolved.encodeToString(value, 0, value.length);
+		});
 	}
 
 	/**
@@ -258,35 +526,131 @@ public class HBaseService {
 	 * @return
 	 * @throws IOException
 	 */
-	public Map<String, List<ResultInfo>> scanTable(String tableName) throws IOException {
-		isExistTable(tableName);
-		Map<String, List<ResultInfo>> map = new HashMap<>();
-		Table table = getTableByTableName(tableName);
-		Scan scan = new Scan();
-		ResultScanner resultScanner = table.getScanner(scan);
-		for (Result result : resultScanner) {
-			List<Cell> cells = result.listCells();
-			for (Cell cell : cells) {
-				ResultInfo info = ResultInfo.builder()
-								.family(Bytes.toString(CellUtil.cloneFamily(cell)))
-								.qualifier(Bytes.toString(CellUtil.cloneQualifier(cell)))
-								.value(Bytes.toString(CellUtil.cloneValue(cell)))
-								.timestamp(cell.getTimestamp())
-								.build();
-
-				String key = Bytes.toString(CellUtil.cloneRow(cell));
-				if (map.containsKey(key)) {
-					List<ResultInfo> resultInfos = map.get(key);
-					resultInfos.add(info);
-				} else {
-					List<ResultInfo> resultInfos = new ArrayList<>();
-					resultInfos.add(info);
-					map.put(key, resultInfos);
-				}
+	public Map<String, ResultCells> scanTable(String tableName) throws IOException {
+		return scanTable(tableName, (ValueEncoding) null);
+	}
 
+	/**
+	 * 扫描全表
+	 *
+	 * @param tableName
+	 * @param encoding  值编码，为null时使用表的默认编码
+	 * @return
+	 * @throws IOException
+	 */
+	public Map<String, ResultCells> scanTable(String tableName, ValueEncoding encoding) throws IOException {
+		return metrics.record(Operation.SCAN, tableName, () -> {
+			ValueEncoding resolved = encodingResolver.resolve(tableName, encoding);
+			isExistTable(tableName);
+			Scan scan = new Scan();
+			scan.setCaching(STREAM_SCAN_CACHING);
+			Map<String, ResultCells> map = new HashMap<>();
+			long[] cells = {0};
+			//结果放进HashMap，顺序无关，用无序模式；一个Result就是一整行，不需要逐个cell按rowkey归并
+			parallelScanner.scan(tableName, scan, false, result -> {
+				cells[0] += result.size();
+				map.put(Bytes.toString(result.getRow()), ResultCells.of(result, resolved));
+				return true;
+			});
+			metrics.recordRows(Operation.SCAN, tableName, map.size(), cells[0]);
+			return map;
+		});
+	}
+
+	/**
+	 * 流式扫描：逐行回调，不在内存中保留结果
+	 *
+	 * @param tableName
+	 * @param startRow     起始rowkey（包含），为空时从表头开始
+	 * @param stopRow      结束rowkey（不包含），为空时扫描到表尾
+	 * @param continuation 上一次扫描返回的续扫令牌，不为空时忽略startRow
+	 * @param limit        最多返回的行数，<=0不限制
+	 * @param handler      行回调
+	 * @return 达到limit时返回续扫令牌，扫描完毕返回null
+	 * @throws IOException
+	 */
+	public String scanTable(String tableName, String startRow, String stopRow, String continuation, int limit, RowHandler handler) throws IOException {
+		return scanTable(tableName, startRow, stopRow, continuation, limit, null, handler);
+	}
+
+	/**
+	 * 流式扫描：逐行回调，不在内存中保留结果
+	 *
+	 * @param tableName
+	 * @param startRow     起始rowkey（包含），为空时从表头开始
+	 * @param stopRow      结束rowkey（不包含），为空时扫描到表尾
+	 * @param continuation 上一次扫描返回的续扫令牌，不为空时忽略startRow
+	 * @param limit        最多返回的行数，<=0不限制
+	 * @param encoding     值编码，为null时使用表的默认编码
+	 * @param handler      行回调
+	 * @return 达到limit时返回续扫令牌，扫描完毕返回null
+	 * @throws IOException
+	 */
+	public String scanTable(String tableName, String startRow, String stopRow, String continuation, int limit,
+													ValueEncoding encoding, RowHandler handler) throws IOException {
+		return metrics.record(Operation.STREAM_SCAN, tableName, () -> {
+			ValueEncoding resolved = encodingResolver.resolve(tableName, encoding);
+			Scan scan = new Scan();
+			if (continuation != null && !continuation.isEmpty()) {
+				scan.setStartRow(decodeContinuation(continuation));
+			} else if (startRow != null && !startRow.isEmpty()) {
+				scan.setStartRow(Bytes.toBytes(startRow));
 			}
-		}
-		return map;
+			if (stopRow != null && !stopRow.isEmpty()) {
+				scan.setStopRow(Bytes.toBytes(stopRow));
+			}
+			return streamScan(Operation.STREAM_SCAN, tableName, scan, limit, resolved, handler);
+		});
+	}
+
+	/**
+	 * 条件查询：前缀、范围、列投影、列值条件、时间范围、版本数、列分页都在RegionServer上执行，逐行回调匹配的结果
+	 *
+	 * @param tableName
+	 * @param query
+	 * @param encoding  条件中value和返回值的编码，为null时使用表的默认编码
+	 * @param handler   行回调
+	 * @return 达到limit时返回续扫令牌，扫描完毕返回null
+	 * @throws IOException
+	 */
+	public String query(String tableName, ScanQuery query, ValueEncoding encoding, RowHandler handler) throws IOException {
+		return metrics.record(Operation.QUERY, tableName, () -> {
+			ValueEncoding resolved = encodingResolver.resolve(tableName, encoding);
+			Scan scan = ScanQueryBuilder.toScan(query, resolved);
+			if (query.getContinuation() != null && !query.getContinuation().isEmpty()) {
+				scan.setStartRow(decodeContinuation(query.getContinuation()));
+			}
+			return streamScan(Operation.QUERY, tableName, scan, query.getLimit(), resolved, handler);
+		});
+	}
+
+	/**
+	 * 按rowkey有序扫描，逐行回调，最多limit行
+	 *
+	 * @return 达到limit时返回续扫令牌，扫描完毕返回null
+	 */
+	private String streamScan(Operation operation, String tableName, Scan scan, int limit,
+														ValueEncoding encoding, RowHandler handler) throws IOException {
+		scan.setCaching(limit > 0 ? Math.min(limit, STREAM_SCAN_CACHING) : STREAM_SCAN_CACHING);
+		//续扫令牌依赖rowkey顺序，必须用有序模式
+		int[] rows = {0};
+		long[] cells = {0};
+		byte[][] lastRow = {null};
+		parallelScanner.scan(tableName, scan, true, result -> {
+			rows[0]++;
+			cells[0] += result.size();
+			handler.onRow(ScanRow.builder()
+							.rowKey(Bytes.toString(result.getRow()))
+							.cells(ResultCells.of(result, encoding))
+							.build());
+			if (limit > 0 && rows[0] >= limit) {
+				lastRow[0] = result.getRow();
+				return false;
+			}
+			return true;
+		});
+		metrics.recordRows(operation, tableName, rows[0], cells[0]);
+		return lastRow[0] == null ? null : encodeContinuation(lastRow[0]);
 	}
 
 	/**
@@ -296,32 +660,96 @@ public class HBaseService {
 	 * @param rowKeyList
 	 */
 	public void removeRow(String tableName, List<String> rowKeyList) throws IOException {
-		Table table = getTableByTableName(tableName);
-		List<Delete> list = rowKeyList.stream().map(r -> new Delete(r.getBytes())).collect(Collectors.toList());
-		table.delete(list);
+		metrics.record(Operation.DELETE, tableName, () -> {
+			List<Delete> list = rowKeyList.stream().map(r -> new Delete(Bytes.toBytes(r))).collect(Collectors.toList());
+			//Delete直接发给RegionServer，先刷写异步写入缓冲区中的Put，保证先写后删的顺序
+			writePipeline.flush(tableName);
+			hBaseTemplate.withTable(tableName, table -> {
+				table.delete(list);
+				return null;
+			});
+			rowCache.invalidateRows(tableName, rowKeyList);
+			return null;
+		});
+	}
+
+
+	/**
+	 * 检查表是否存在，不存在时抛出ServiceException
+	 *
+	 * @param tableName
+	 * @throws IOException
+	 */
+	public void isExistTable(String tableName) throws IOException {
+		getTableDescriptor(tableName);
+	}
+
+	/**
+	 * 从元数据缓存获取表描述，表不存在时抛出ServiceException
+	 */
+	private HTableDescriptor getTableDescriptor(String tableName) throws IOException {
+		return metadataCache.getDescriptor(tableName).orElseThrow(() -> new ServiceException("表不存在！"));
 	}
 
+	/**
+	 * 只取rowkey的扫描：FirstKeyOnlyFilter每行只返回第一个Cell，KeyOnlyFilter去掉它的值，宽行也只传输一个key
+	 */
+	private static Scan rowKeyScan() {
+		Scan scan = new Scan();
+		scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+		scan.setCaching(ROW_KEY_SCAN_CACHING);
+		scan.setCacheBlocks(false);
+		return scan;
+	}
+
+	private static Set<String> rowKeys(List<PutInfo> list) {
+		return list.stream().map(PutInfo::getRowKey).collect(Collectors.toSet());
+	}
 
-	private void isExistTable(String tableName) throws IOException {
-		Admin admin = getAdmin();
-		TableName tableN = TableName.valueOf(tableName);
-		boolean b = admin.tableExists(tableN);
-		if (!b) {
-			throw new ServiceException("表不存在！");
+	private static Get withColumns(Get get, List<String> columns) {
+		if (columns == null) {
+			return get;
 		}
+		for (String column : columns) {
+			byte[][] parsed = ScanQueryBuilder.parseColumn(column);
+			if (parsed[1] == null) {
+				get.addFamily(parsed[0]);
+			} else {
+				get.addColumn(parsed[0], parsed[1]);
+			}
+		}
+		return get;
+	}
+
+	/**
+	 * 续扫令牌：最后一行rowkey后追加0x00（即紧随其后的最小rowkey），URL安全的Base64编码
+	 */
+	private static String encodeContinuation(byte[] lastRow) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(Bytes.add(lastRow, new byte[]{0}));
 	}
 
+	private static byte[] decodeContinuation(String continuation) {
+		try {
+			return Base64.getUrlDecoder().decode(continuation);
+		} catch (IllegalArgumentException e) {
+			throw new InvalidParameterException("continuation无效: " + continuation);
+		}
+	}
 
-	private Admin getAdmin() throws IOException {
-		HBaseConnectionPool.getInstance();
-		Connection connection = HBaseConnectionPool.getConnection().getConnection();
-		return connection.getAdmin();
+	/**
+	 * 流式扫描的行回调
+	 */
+	@FunctionalInterface
+	public interface RowHandler {
+		void onRow(ScanRow row) throws IOException;
 	}
 
-	private Table getTableByTableName(String tableName) throws IOException {
-		HBaseConnectionPool.getInstance();
-		Connection connection = HBaseConnectionPool.getConnection().getConnection();
-		return connection.getTable(TableName.valueOf(tableName));
+	/**
+	 * 流式扫描rowkey的回调
+	 */
+	@FunctionalInterface
+	public interface RowKeyHandler {
+		void onRowKey(String rowKey) throws IOException;
 	}
 
 }
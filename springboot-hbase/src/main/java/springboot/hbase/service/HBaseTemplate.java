@@ -0,0 +1,90 @@
+package springboot.hbase.service;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Table;
+import org.springframework.stereotype.Component;
+import springboot.hbase.util.HBaseConnectionLease;
+import springboot.hbase.util.HBaseConnectionProvider;
+
+import java.io.IOException;
+
+/**
+ * HBase资源模板：租借连接、获取Table/Admin/BufferedMutator、执行回调、关闭资源并归还连接都在这里完成，
+ * 回调中不要把Table/Admin/ResultScanner带出作用域。
+ **/
+@Component
+public class HBaseTemplate {
+	private final HBaseConnectionProvider connectionProvider;
+
+	public HBaseTemplate(HBaseConnectionProvider connectionProvider) {
+		this.connectionProvider = connectionProvider;
+	}
+
+	/**
+	 * 在一次租约内执行回调，适合需要在同一连接上先后使用Admin和Table的操作
+	 */
+	public <T> T execute(ConnectionCallback<T> action) throws IOException {
+		try (HBaseConnectionLease lease = connectionProvider.lease()) {
+			return action.doInConnection(lease.getConnection());
+		}
+	}
+
+	public <T> T withTable(String tableName, TableCallback<T> action) throws IOException {
+		return execute(connection -> withTable(connection, tableName, action));
+	}
+
+	public <T> T withAdmin(AdminCallback<T> action) throws IOException {
+		return execute(connection -> withAdmin(connection, action));
+	}
+
+	public void withMutator(String tableName, MutatorCallback action) throws IOException {
+		execute(connection -> {
+			withMutator(connection, tableName, action);
+			return null;
+		});
+	}
+
+	public static <T> T withTable(Connection connection, String tableName, TableCallback<T> action) throws IOException {
+		try (Table table = connection.getTable(TableName.valueOf(tableName))) {
+			return action.doInTable(table);
+		}
+	}
+
+	public static <T> T withAdmin(Connection connection, AdminCallback<T> action) throws IOException {
+		try (Admin admin = connection.getAdmin()) {
+			return action.doInAdmin(admin);
+		}
+	}
+
+	/**
+	 * close()时会flush缓冲区，返回即写入完成
+	 */
+	public static void withMutator(Connection connection, String tableName, MutatorCallback action) throws IOException {
+		try (BufferedMutator mutator = connection.getBufferedMutator(TableName.valueOf(tableName))) {
+			action.doInMutator(mutator);
+		}
+	}
+
+	@FunctionalInterface
+	public interface ConnectionCallback<T> {
+		T doInConnection(Connection connection) throws IOException;
+	}
+
+	@FunctionalInterface
+	public interface TableCallback<T> {
+		T doInTable(Table table) throws IOException;
+	}
+
+	@FunctionalInterface
+	public interface AdminCallback<T> {
+		T doInAdmin(Admin admin) throws IOException;
+	}
+
+	@FunctionalInterface
+	public interface MutatorCallback {
+		void doInMutator(BufferedMutator mutator) throws IOException;
+	}
+}
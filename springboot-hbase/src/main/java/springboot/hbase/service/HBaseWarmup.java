@@ -0,0 +1,214 @@
+package springboot.hbase.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+import springboot.hbase.exception.ConnectionAcquireTimeoutException;
+import springboot.hbase.util.HBaseConnectionLease;
+import springboot.hbase.util.HBaseConnectionProvider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 启动预热：应用就绪后在后台线程执行，完成前健康检查（/actuator/health）报告OUT_OF_SERVICE（HTTP 503），
+ * 负载均衡或探针据此在预热完成后才导入流量
+ * <ol>
+ * <li>建立连接，连接池模式下并行创建初始连接（hbase.pool.init-parallelism）；</li>
+ * <li>对hbase.warmup.tables中的热点表，在每个连接上按region起始键各定位一次，填充连接的region位置缓存，
+ * 第一个请求不再需要查询hbase:meta；</li>
+ * <li>元数据缓存启用时加载表名列表与热点表的描述；</li>
+ * <li>行缓存启用时加载每张热点表的前hbase.warmup.rows行。</li>
+ * </ol>
+ * 预热失败只记录日志，健康检查照常报告就绪并在details中带上失败原因，不阻止应用对外服务。
+ **/
+@Slf4j
+@Component("hbaseWarmup")
+public class HBaseWarmup implements ApplicationListener<ApplicationReadyEvent>, HealthIndicator {
+	private final HBaseConnectionProvider connectionProvider;
+	private final HBaseTemplate hBaseTemplate;
+	private final HBaseMetadataCache metadataCache;
+	private final HBaseRowCache rowCache;
+	private final boolean enabled;
+	private final List<String> tables;  //热点表
+	private final int rows;  //每张热点表预先加载到行缓存的行数
+	private final int parallelism;  //预热region位置的线程数
+	private final CountDownLatch done = new CountDownLatch(1);
+	private volatile long durationMillis = -1;
+	private volatile String failure;
+
+	@Autowired
+	public HBaseWarmup(HBaseConnectionProvider connectionProvider,
+										 HBaseTemplate hBaseTemplate,
+										 HBaseMetadataCache metadataCache,
+										 HBaseRowCache rowCache,
+										 @Value("${hbase.warmup.enabled:true}") boolean enabled,
+										 @Value("${hbase.warmup.tables:}") String tables,
+										 @Value("${hbase.warmup.rows:0}") int rows,
+										 @Value("${hbase.warmup.parallelism:8}") int parallelism) {
+		this.connectionProvider = connectionProvider;
+		this.hBaseTemplate = hBaseTemplate;
+		this.metadataCache = metadataCache;
+		this.rowCache = rowCache;
+		this.enabled = enabled;
+		this.tables = tables == null || tables.trim().isEmpty() ? Collections.emptyList()
+						: Arrays.stream(tables.split(",")).map(String::trim).filter(t -> !t.isEmpty()).collect(Collectors.toList());
+		this.rows = rows;
+		this.parallelism = Math.max(1, parallelism);
+		if (!enabled) {
+			done.countDown();
+		}
+	}
+
+	@Override
+	public void onApplicationEvent(ApplicationReadyEvent event) {
+		if (!enabled || done.getCount() == 0) {
+			return;
+		}
+		Thread thread = new Thread(this::warmUp, "hbase-warmup");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * 执行预热，完成（或失败）后报告就绪
+	 */
+	public void warmUp() {
+		long start = System.currentTimeMillis();
+		try {
+			int regions = primeRegionLocations();
+			if (metadataCache.isEnabled()) {
+				metadataCache.listTables();
+				for (String table : tables) {
+					metadataCache.getDescriptor(table);
+				}
+			}
+			int cachedRows = 0;
+			if (rowCache.isEnabled() && rows > 0) {
+				for (String table : tables) {
+					cachedRows += rowCache.preload(table, () -> scanFirstRows(table));
+				}
+			}
+			log.info("HBase预热完成：{}个连接，{}个region位置，{}行缓存", connectionProvider.getConnectionCount(), regions, cachedRows);
+		} catch (Exception e) {
+			failure = e.toString();
+			log.warn("HBase预热失败", e);
+		} finally {
+			durationMillis = System.currentTimeMillis() - start;
+			done.countDown();
+			log.info("HBase预热耗时{}ms", durationMillis);
+		}
+	}
+
+	/**
+	 * @param timeout
+	 * @param unit
+	 * @return 等待期间预热是否完成
+	 * @throws InterruptedException
+	 */
+	public boolean awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+		return done.await(timeout, unit);
+	}
+
+	@Override
+	public Health health() {
+		if (done.getCount() > 0) {
+			return Health.outOfService().withDetail("warmup", "running").build();
+		}
+		Health.Builder builder = Health.up()
+						.withDetail("warmup", !enabled ? "disabled" : failure == null ? "done" : "failed")
+						.withDetail("durationMs", durationMillis);
+		if (failure != null) {
+			builder.withDetail("error", failure);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * 同时租借所有连接（第一次租借时创建共享连接或连接池），在每个连接上预热热点表的region位置
+	 *
+	 * @return 预热的region位置数
+	 */
+	private int primeRegionLocations() throws IOException, InterruptedException, ExecutionException {
+		List<HBaseConnectionLease> leases = new ArrayList<>();
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism,
+						new ThreadFactoryBuilder().setNameFormat("hbase-warmup-%d").setDaemon(true).build());
+		try {
+			leases.add(connectionProvider.leaseLongLived());
+			int count = connectionProvider.getConnectionCount();
+			for (int i = 1; i < count; i++) {
+				try {
+					leases.add(connectionProvider.leaseLongLived());
+				} catch (ConnectionAcquireTimeoutException e) {
+					break;  //其余连接正被请求使用
+				}
+			}
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (HBaseConnectionLease lease : leases) {
+				for (String table : tables) {
+					futures.add(executor.submit(() -> primeRegionLocations(lease.getConnection(), table)));
+				}
+			}
+			int regions = 0;
+			for (Future<Integer> future : futures) {
+				regions += future.get();
+			}
+			return regions;
+		} finally {
+			executor.shutdownNow();
+			for (HBaseConnectionLease lease : leases) {
+				lease.close();
+			}
+		}
+	}
+
+	/**
+	 * getStartKeys扫描一次hbase:meta，再按起始键逐个定位，位置进入连接的region位置缓存
+	 */
+	private static int primeRegionLocations(Connection connection, String table) throws IOException {
+		try (RegionLocator locator = connection.getRegionLocator(TableName.valueOf(table))) {
+			byte[][] startKeys = locator.getStartKeys();
+			for (byte[] startKey : startKeys) {
+				locator.getRegionLocation(startKey);
+			}
+			return startKeys.length;
+		}
+	}
+
+	private List<Result> scanFirstRows(String table) throws IOException {
+		return hBaseTemplate.withTable(table, t -> {
+			Scan scan = new Scan();
+			scan.setCaching(Math.min(rows, 1000));
+			List<Result> results = new ArrayList<>(rows);
+			try (ResultScanner scanner = t.getScanner(scan)) {
+				Result result;
+				while (results.size() < rows && (result = scanner.next()) != null) {
+					results.add(result);
+				}
+			}
+			return results;
+		});
+	}
+}
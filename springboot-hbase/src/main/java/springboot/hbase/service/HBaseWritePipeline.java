@@ -0,0 +1,506 @@
+package springboot.hbase.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.BufferedMutatorParams;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RetriesExhaustedWithDetailsException;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.entity.ValueEncoding;
+import springboot.hbase.exception.ServiceException;
+import springboot.hbase.exception.WriteBufferFullException;
+import springboot.hbase.util.HBaseConnectionLease;
+import springboot.hbase.util.HBaseConnectionProvider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 写入管道
+ * <p>
+ * 同一请求中rowkey相同的PutInfo合并成一个Put，交给按表常驻的BufferedMutator；
+ * 缓冲区达到hbase.write.buffer-size或每隔hbase.write.flush-interval毫秒刷写一次。
+ * 所有表未刷写的数据超过hbase.write.max-pending-bytes时拒绝新的写入。
+ * 每次写入分配一个按表递增的批次号，异步模式下可以据此查询批次是否已刷写。
+ **/
+@Slf4j
+@Component
+public class HBaseWritePipeline implements DisposableBean {
+	private static final int MAX_FAILED_RANGES = 1024;
+	private final HBaseConnectionProvider connectionProvider;
+	private final HBaseMetadataCache metadataCache;
+	private final MeterRegistry meterRegistry;
+	private final long writeBufferSize;
+	private final long maxPendingBytes;
+	private final ScheduledExecutorService flusher;
+	private final ConcurrentHashMap<String, TableWriter> writers = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, TableMeters> tableMeters = new ConcurrentHashMap<>();
+	private final Set<String> dropping = ConcurrentHashMap.newKeySet();  //正在删除的表，拒绝写入
+	private final AtomicLong totalPendingBytes = new AtomicLong(0);
+	private final ReentrantLock lock = new ReentrantLock();  //创建BufferedMutator、获取连接时加锁，不用synchronized，避免钉住虚拟线程
+	private volatile HBaseConnectionLease lease;
+
+	@Autowired
+	public HBaseWritePipeline(HBaseConnectionProvider connectionProvider,
+														HBaseMetadataCache metadataCache,
+														MeterRegistry meterRegistry,
+														@Value("${hbase.write.buffer-size:2097152}") long writeBufferSize,
+														@Value("${hbase.write.flush-interval:1000}") long flushIntervalMillis,
+														@Value("${hbase.write.max-pending-bytes:67108864}") long maxPendingBytes) {
+		this.connectionProvider = connectionProvider;
+		this.metadataCache = metadataCache;
+		this.meterRegistry = meterRegistry;
+		this.writeBufferSize = writeBufferSize;
+		this.maxPendingBytes = maxPendingBytes;
+		this.flusher = Executors.newSingleThreadScheduledExecutor(
+						new ThreadFactoryBuilder().setNameFormat("hbase-write-flusher-%d").setDaemon(true).build());
+		this.flusher.scheduleWithFixedDelay(this::flushAll, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+		Gauge.builder("hbase.write.pending.bytes.total", totalPendingBytes, AtomicLong::get)
+						.description("所有表已写入缓冲区但尚未刷写的字节数")
+						.register(meterRegistry);
+	}
+
+	/**
+	 * 写入数据
+	 *
+	 * @param tableName
+	 * @param list
+	 * @param async     为false时等待刷写完成再返回；为true时写入缓冲区后立即返回
+	 * @return 批次号
+	 * @throws IOException
+	 */
+	public long write(String tableName, List<PutInfo> list, boolean async) throws IOException {
+		return write(tableName, list, ValueEncoding.STRING, async);
+	}
+
+	/**
+	 * 写入数据，value按指定编码解码成字节
+	 *
+	 * @param tableName
+	 * @param list
+	 * @param encoding  value的编码
+	 * @param async     为false时等待刷写完成再返回；为true时写入缓冲区后立即返回
+	 * @return 批次号
+	 * @throws IOException
+	 */
+	public long write(String tableName, List<PutInfo> list, ValueEncoding encoding, boolean async) throws IOException {
+		List<Put> puts = coalesce(list, encoding);
+		long bytes = 0L;
+		for (Put put : puts) {
+			bytes += put.heapSize();
+		}
+		//先占用额度再写入，并发写入不会一起通过检查而超过上限
+		long pending = totalPendingBytes.addAndGet(bytes);
+		if (pending > maxPendingBytes) {
+			totalPendingBytes.addAndGet(-bytes);
+			throw new WriteBufferFullException("写入缓冲区已满，未刷写数据" + (pending - bytes) + "字节，请稍后重试");
+		}
+		TableWriter writer;
+		long batchId;
+		try {
+			writer = getWriter(tableName);
+			batchId = writer.write(puts, bytes);
+		} catch (IOException | RuntimeException e) {
+			totalPendingBytes.addAndGet(-bytes);
+			throw e;
+		}
+		if (!async) {
+			writer.flush();
+			writer.checkFailed(batchId);
+		} else if (writer.pendingBytes.get() >= writeBufferSize) {
+			writer.scheduleFlush();
+		}
+		return batchId;
+	}
+
+	/**
+	 * 查询批次状态
+	 *
+	 * @param tableName
+	 * @param batchId
+	 * @return flushed/pending/failed/unknown
+	 */
+	public String getBatchStatus(String tableName, long batchId) {
+		TableWriter writer = writers.get(tableName);
+		if (writer == null || batchId <= 0 || batchId > writer.submittedSeq.get()) {
+			return "unknown";
+		}
+		if (writer.isFailed(batchId)) {
+			return "failed";
+		}
+		return batchId <= writer.flushedSeq ? "flushed" : "pending";
+	}
+
+	/**
+	 * @param tableName
+	 * @return 表是否有已写入缓冲区但尚未刷写的数据
+	 */
+	public boolean hasPendingWrites(String tableName) {
+		TableWriter writer = writers.get(tableName);
+		return writer != null && writer.submittedSeq.get() != writer.flushedSeq;
+	}
+
+	/**
+	 * 刷写表缓冲区中的数据并等待完成；删除行前调用，缓冲区中较早的Put不会在Delete之后才到达而使行复活
+	 *
+	 * @param tableName
+	 * @throws IOException
+	 */
+	public void flush(String tableName) throws IOException {
+		TableWriter writer = writers.get(tableName);
+		if (writer != null) {
+			writer.flush();
+		}
+	}
+
+	/**
+	 * 删除表前调用：拒绝该表新的写入，刷写并关闭表的BufferedMutator；删除完成后必须调用{@link #endDrop}。
+	 * 标记和关闭在创建writer的锁内完成，删除期间不会有写入再为该表创建BufferedMutator
+	 *
+	 * @param tableName
+	 */
+	public void beginDrop(String tableName) {
+		lock.lock();
+		try {
+			dropping.add(tableName);
+			close(tableName);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * 表删除结束（无论成功与否），恢复写入；之后的写入由元数据缓存判断表是否存在
+	 *
+	 * @param tableName
+	 */
+	public void endDrop(String tableName) {
+		dropping.remove(tableName);
+	}
+
+	/**
+	 * 刷写并关闭表的BufferedMutator
+	 *
+	 * @param tableName
+	 */
+	public void close(String tableName) {
+		TableWriter writer = writers.remove(tableName);
+		if (writer != null) {
+			writer.close();
+		}
+	}
+
+	/**
+	 * 合并rowkey相同的PutInfo，每行一个Put，保持rowkey首次出现的顺序
+	 */
+	static List<Put> coalesce(List<PutInfo> list) {
+		return coalesce(list, ValueEncoding.STRING);
+	}
+
+	static List<Put> coalesce(List<PutInfo> list, ValueEncoding encoding) {
+		Map<String, Put> rows = new LinkedHashMap<>();
+		for (PutInfo info : list) {
+			Put put = rows.computeIfAbsent(info.getRowKey(), rowKey -> new Put(Bytes.toBytes(rowKey)));
+			put.addColumn(Bytes.toBytes(info.getFamily()), Bytes.toBytes(info.getQualifier()), encoding.decode(info.getValue()));
+		}
+		return new ArrayList<>(rows.values());
+	}
+
+	private TableWriter getWriter(String tableName) throws IOException {
+		//表元数据有缓存，每次写入都检查，表被删除后不会继续写入残留的BufferedMutator
+		if (!metadataCache.exists(tableName)) {
+			throw new ServiceException("表不存在！");
+		}
+		TableWriter writer = writers.get(tableName);
+		if (writer != null && !writer.isBroken()) {
+			return writer;
+		}
+		lock.lock();
+		try {
+			if (dropping.contains(tableName)) {
+				throw new ServiceException("表正在删除！");
+			}
+			writer = writers.get(tableName);
+			if (writer == null) {
+				writer = new TableWriter(tableName);
+				writers.put(tableName, writer);
+			} else if (writer.isBroken()) {
+				writer.reconnect();
+			}
+			return writer;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * BufferedMutator常驻，使用不参与泄漏检测的长期租约；租约每次取连接时返回当前可用的连接，连接失效后据此重建BufferedMutator
+	 */
+	private HBaseConnectionLease getLease() throws IOException {
+		HBaseConnectionLease current = lease;
+		if (current == null) {
+			lock.lock();
+			try {
+				if (lease == null) {
+					lease = connectionProvider.leaseLongLived();
+				}
+				current = lease;
+			} finally {
+				lock.unlock();
+			}
+		}
+		return current;
+	}
+
+	private void flushAll() {
+		for (TableWriter writer : writers.values()) {
+			try {
+				writer.flush();
+			} catch (Exception e) {
+				log.error("定时刷写表{}失败", writer.tableName, e);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		flusher.shutdown();
+		for (String tableName : new ArrayList<>(writers.keySet())) {
+			close(tableName);
+		}
+		if (lease != null) {
+			lease.close();
+		}
+	}
+
+	/**
+	 * 单张表的写入状态
+	 */
+	private final class TableWriter {
+		private final String tableName;
+		private final BufferedMutatorParams params;
+		private volatile Connection connection;  //创建mutator的连接
+		private volatile BufferedMutator mutator;
+		private final AtomicLong submittedSeq = new AtomicLong(0);  //已写入缓冲区的最大批次号
+		private final AtomicLong pendingBytes = new AtomicLong(0);  //已写入缓冲区但尚未刷写的字节数
+		private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+		private final ReentrantLock flushLock = new ReentrantLock();  //刷写期间等待RPC，不用synchronized
+		private final TableMeters meters;
+		private final TreeMap<Long, Long> failedRanges = new TreeMap<>();  //失败的批次区间(key, value]，互不重叠
+		private final ReentrantLock failureLock = new ReentrantLock();
+		private volatile long flushedSeq = 0L;  //已刷写的最大批次号
+
+		private TableWriter(String tableName) throws IOException {
+			this.tableName = tableName;
+			this.params = new BufferedMutatorParams(TableName.valueOf(tableName))
+							.writeBufferSize(writeBufferSize)
+							.listener(this::onFailure);
+			this.connection = getLease().getConnection();
+			this.mutator = connection.getBufferedMutator(params);
+			this.meters = tableMeters.computeIfAbsent(tableName, TableMeters::new);
+			meters.writer = this;
+		}
+
+		private long write(List<Put> puts, long bytes) throws IOException {
+			//先写入缓冲区再分配批次号，保证刷写时读到的批次号对应的数据都已在缓冲区中；totalPendingBytes已由调用方占用
+			mutator.mutate(puts);
+			pendingBytes.addAndGet(bytes);
+			return submittedSeq.incrementAndGet();
+		}
+
+		private void flush() throws IOException {
+			flushLock.lock();
+			try {
+				long seq = submittedSeq.get();
+				long bytes = pendingBytes.get();
+				if (seq == flushedSeq) {
+					return;
+				}
+				long start = System.nanoTime();
+				try {
+					mutator.flush();
+				} catch (IOException | RuntimeException e) {
+					markFailed(seq);
+					throw e;
+				} finally {
+					meters.flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+					flushedSeq = seq;
+					pendingBytes.addAndGet(-bytes);
+					totalPendingBytes.addAndGet(-bytes);
+				}
+			} finally {
+				flushLock.unlock();
+			}
+		}
+
+		private boolean isBroken() {
+			return connection.isClosed() || connection.isAborted();
+		}
+
+		/**
+		 * 连接已关闭或已abort时（如ZooKeeper会话过期），在新连接上重建BufferedMutator；
+		 * 批次号和失败区间保留在本对象中，重建前已提交的批次仍能查到状态，旧缓冲区中未刷写的批次记为失败
+		 */
+		private void reconnect() throws IOException {
+			flushLock.lock();
+			try {
+				if (!isBroken()) {
+					return;
+				}
+				BufferedMutator old = mutator;
+				try {
+					flush();
+				} catch (IOException | RuntimeException e) {
+					log.warn("表{}的连接已失效，缓冲区中的数据写入失败", tableName, e);
+				}
+				try {
+					old.close();
+				} catch (IOException | RuntimeException e) {
+					log.warn("关闭表{}失效的BufferedMutator失败", tableName, e);
+				}
+				Connection conn = getLease().getConnection();
+				mutator = conn.getBufferedMutator(params);
+				connection = conn;
+				log.info("表{}的连接已失效，已在新连接上重建BufferedMutator", tableName);
+			} finally {
+				flushLock.unlock();
+			}
+		}
+
+		private void scheduleFlush() {
+			if (flushScheduled.compareAndSet(false, true)) {
+				flusher.execute(() -> {
+					flushScheduled.set(false);
+					try {
+						flush();
+					} catch (Exception e) {
+						log.error("刷写表{}失败", tableName, e);
+					}
+				});
+			}
+		}
+
+		private void onFailure(RetriesExhaustedWithDetailsException e, BufferedMutator mutator) {
+			meters.failedMutations.increment(e.getNumExceptions());
+			markFailed(submittedSeq.get());
+			log.error("表{}写入失败{}条", tableName, e.getNumExceptions(), e);
+		}
+
+		/**
+		 * 记录失败的批次区间(flushedSeq, upTo]，与已有的重叠区间合并，之前失败的批次不会因为后来的刷写变成已刷写。
+		 * 区间数超过MAX_FAILED_RANGES时合并最早的两个区间，宁可把中间成功的批次报告为失败，也不丢失失败记录
+		 */
+		private void markFailed(long upTo) {
+			failureLock.lock();
+			try {
+				long after = flushedSeq;
+				long to = upTo;
+				Map.Entry<Long, Long> overlapping = failedRanges.floorEntry(to);
+				while (overlapping != null && overlapping.getValue() >= after) {
+					after = Math.min(after, overlapping.getKey());
+					to = Math.max(to, overlapping.getValue());
+					failedRanges.remove(overlapping.getKey());
+					overlapping = failedRanges.floorEntry(to);
+				}
+				failedRanges.put(after, to);
+				if (failedRanges.size() > MAX_FAILED_RANGES) {
+					Map.Entry<Long, Long> first = failedRanges.pollFirstEntry();
+					Map.Entry<Long, Long> second = failedRanges.pollFirstEntry();
+					failedRanges.put(first.getKey(), second.getValue());
+				}
+			} finally {
+				failureLock.unlock();
+			}
+		}
+
+		private boolean isFailed(long batchId) {
+			failureLock.lock();
+			try {
+				Map.Entry<Long, Long> range = failedRanges.lowerEntry(batchId);
+				return range != null && batchId <= range.getValue();
+			} finally {
+				failureLock.unlock();
+			}
+		}
+
+		private void checkFailed(long batchId) {
+			if (isFailed(batchId)) {
+				throw new ServiceException("写入失败，批次号: " + batchId);
+			}
+		}
+
+		private void close() {
+			if (meters.writer == this) {
+				meters.writer = null;  //表被删除后指标归零，同名的表重新创建时接着使用
+			}
+			try {
+				flush();
+				mutator.close();
+			} catch (IOException e) {
+				log.error("关闭表{}的BufferedMutator失败", tableName, e);
+			}
+		}
+	}
+
+	/**
+	 * 单张表的指标，注册后随管道存活，不随TableWriter关闭：Micrometer按名称和标签复用已注册的Meter，
+	 * 表被删除后重新创建时，Gauge仍读取这里的当前writer，而不是已关闭的旧writer
+	 */
+	private final class TableMeters {
+		private final Timer flushTimer;
+		private final Counter failedMutations;
+		private volatile TableWriter writer;  //表当前的writer，表被删除后为null
+
+		private TableMeters(String tableName) {
+			this.flushTimer = Timer.builder("hbase.write.flush")
+							.tag("table", tableName)
+							.description("BufferedMutator刷写耗时")
+							.register(meterRegistry);
+			this.failedMutations = Counter.builder("hbase.write.failed.mutations")
+							.tag("table", tableName)
+							.description("重试耗尽后写入失败的Put数")
+							.register(meterRegistry);
+			Gauge.builder("hbase.write.pending.bytes", this, TableMeters::pendingBytes)
+							.tag("table", tableName)
+							.register(meterRegistry);
+			Gauge.builder("hbase.write.pending.batches", this, TableMeters::pendingBatches)
+							.tag("table", tableName)
+							.description("已写入缓冲区但尚未刷写的批次数")
+							.register(meterRegistry);
+		}
+
+		private double pendingBytes() {
+			TableWriter w = writer;
+			return w == null ? 0 : w.pendingBytes.get();
+		}
+
+		private double pendingBatches() {
+			TableWriter w = writer;
+			return w == null ? 0 : w.submittedSeq.get() - w.flushedSeq;
+		}
+	}
+}
@@ -0,0 +1,178 @@
+package springboot.hbase.service;
+
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.BinaryComparator;
+import org.apache.hadoop.hbase.filter.BinaryPrefixComparator;
+import org.apache.hadoop.hbase.filter.ByteArrayComparable;
+import org.apache.hadoop.hbase.filter.ColumnPaginationFilter;
+import org.apache.hadoop.hbase.filter.ColumnPrefixFilter;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.springframework.util.CollectionUtils;
+import springboot.hbase.entity.ScanCondition;
+import springboot.hbase.entity.ScanQuery;
+import springboot.hbase.entity.ValueEncoding;
+import springboot.hbase.exception.InvalidParameterException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * 把条件查询请求转换成Scan
+ * <ul>
+ * <li>prefix、startRow、stopRow转换成扫描的起止范围，只扫描相关的region，不使用从表头开始逐行判断的PrefixFilter；</li>
+ * <li>columns转换成Scan的列投影，条件中引用的列不在投影中时会加入投影（会随结果返回），否则SingleColumnValueFilter看不到该列；</li>
+ * <li>Filter的顺序为列值条件、ColumnPrefixFilter、ColumnPaginationFilter：MUST_PASS_ALL的FilterList中前一个Filter
+ * 跳过的Cell后面的Filter看不到，列值条件要在qualifierPrefix之前才能看到条件列，分页只对最终返回的列计数。</li>
+ * </ul>
+ **/
+final class ScanQueryBuilder {
+
+	private ScanQueryBuilder() {
+	}
+
+	/**
+	 * @param query
+	 * @param encoding 条件中value的编码
+	 * @return 未设置caching，continuation由调用方处理
+	 * @throws IOException
+	 */
+	static Scan toScan(ScanQuery query, ValueEncoding encoding) throws IOException {
+		Scan scan = new Scan();
+		if (query.getPrefix() != null && !query.getPrefix().isEmpty()) {
+			scan.setRowPrefixFilter(Bytes.toBytes(query.getPrefix()));
+		}
+		if (query.getStartRow() != null && !query.getStartRow().isEmpty()) {
+			byte[] startRow = Bytes.toBytes(query.getStartRow());
+			if (Bytes.compareTo(startRow, scan.getStartRow()) > 0) {
+				scan.setStartRow(startRow);
+			}
+		}
+		if (query.getStopRow() != null && !query.getStopRow().isEmpty()) {
+			byte[] stopRow = Bytes.toBytes(query.getStopRow());
+			if (scan.getStopRow().length == 0 || Bytes.compareTo(stopRow, scan.getStopRow()) < 0) {
+				scan.setStopRow(stopRow);
+			}
+		}
+		if (query.getMinTimestamp() != null || query.getMaxTimestamp() != null) {
+			scan.setTimeRange(query.getMinTimestamp() == null ? 0L : query.getMinTimestamp(),
+							query.getMaxTimestamp() == null ? Long.MAX_VALUE : query.getMaxTimestamp());
+		}
+		if (query.getMaxVersions() > 1) {
+			scan.setMaxVersions(query.getMaxVersions());
+		}
+
+		if (!CollectionUtils.isEmpty(query.getColumns())) {
+			for (String column : query.getColumns()) {
+				byte[][] parsed = parseColumn(column);
+				if (parsed[1] == null) {
+					scan.addFamily(parsed[0]);
+				} else {
+					scan.addColumn(parsed[0], parsed[1]);
+				}
+			}
+		}
+
+		List<Filter> filters = new ArrayList<>();
+		if (!CollectionUtils.isEmpty(query.getConditions())) {
+			FilterList conditions = new FilterList(query.isMatchAny() ? FilterList.Operator.MUST_PASS_ONE : FilterList.Operator.MUST_PASS_ALL);
+			for (ScanCondition condition : query.getConditions()) {
+				conditions.addFilter(toFilter(scan, condition, encoding));
+			}
+			filters.add(conditions.getFilters().size() == 1 ? conditions.getFilters().get(0) : conditions);
+		}
+		if (query.getQualifierPrefix() != null && !query.getQualifierPrefix().isEmpty()) {
+			filters.add(new ColumnPrefixFilter(Bytes.toBytes(query.getQualifierPrefix())));
+		}
+		if (query.getColumnOffset() > 0 || query.getColumnLimit() > 0) {
+			if (query.getColumnOffset() < 0) {
+				throw new InvalidParameterException("columnOffset不能小于0");
+			}
+			int columnLimit = query.getColumnLimit() > 0 ? query.getColumnLimit() : Integer.MAX_VALUE;
+			filters.add(new ColumnPaginationFilter(columnLimit, query.getColumnOffset()));
+		}
+		if (filters.size() == 1) {
+			scan.setFilter(filters.get(0));
+		} else if (filters.size() > 1) {
+			scan.setFilter(new FilterList(FilterList.Operator.MUST_PASS_ALL, filters));
+		}
+		return scan;
+	}
+
+	/**
+	 * @param column "family"或"family:qualifier"
+	 * @return {family, qualifier}，只有family时qualifier为null
+	 */
+	static byte[][] parseColumn(String column) {
+		int colon = column.indexOf(':');
+		if (colon < 0) {
+			return new byte[][]{Bytes.toBytes(column), null};
+		}
+		if (colon == 0) {
+			throw new InvalidParameterException("列格式应为family或family:qualifier: " + column);
+		}
+		return new byte[][]{Bytes.toBytes(column.substring(0, colon)), Bytes.toBytes(column.substring(colon + 1))};
+	}
+
+	private static Filter toFilter(Scan scan, ScanCondition condition, ValueEncoding encoding) {
+		if (condition.getColumn() == null || condition.getValue() == null) {
+			throw new InvalidParameterException("条件的column和value不能为空");
+		}
+		byte[][] column = parseColumn(condition.getColumn());
+		if (column[1] == null) {
+			throw new InvalidParameterException("条件的列格式应为family:qualifier: " + condition.getColumn());
+		}
+		byte[] value = encoding.decode(condition.getValue());
+		CompareOp op;
+		ByteArrayComparable comparator = new BinaryComparator(value);
+		switch (condition.getOp() == null ? "=" : condition.getOp().trim().toLowerCase(Locale.ROOT)) {
+			case "=":
+			case "==":
+			case "eq":
+				op = CompareOp.EQUAL;
+				break;
+			case "!=":
+			case "ne":
+				op = CompareOp.NOT_EQUAL;
+				break;
+			case "<":
+			case "lt":
+				op = CompareOp.LESS;
+				break;
+			case "<=":
+			case "le":
+				op = CompareOp.LESS_OR_EQUAL;
+				break;
+			case ">":
+			case "gt":
+				op = CompareOp.GREATER;
+				break;
+			case ">=":
+			case "ge":
+				op = CompareOp.GREATER_OR_EQUAL;
+				break;
+			case "prefix":
+				op = CompareOp.EQUAL;
+				comparator = new BinaryPrefixComparator(value);
+				break;
+			default:
+				throw new InvalidParameterException("不支持的比较方式: " + condition.getOp());
+		}
+		//有投影时条件列必须在投影中；整个列族已在投影中时不能再addColumn，否则投影会缩小到这一列
+		Map<byte[], NavigableSet<byte[]>> familyMap = scan.getFamilyMap();
+		if (!familyMap.isEmpty() && (!familyMap.containsKey(column[0]) || familyMap.get(column[0]) != null)) {
+			scan.addColumn(column[0], column[1]);
+		}
+		SingleColumnValueFilter filter = new SingleColumnValueFilter(column[0], column[1], op, comparator);
+		filter.setFilterIfMissing(!condition.isIncludeMissing());
+		filter.setLatestVersionOnly(true);
+		return filter;
+	}
+}
@@ -0,0 +1,66 @@
+package springboot.hbase.service;
+
+import org.apache.hadoop.hbase.TableName;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import springboot.hbase.entity.ValueEncoding;
+import springboot.hbase.exception.InvalidParameterException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 确定请求使用的值编码：请求参数 > 表的默认编码（hbase.value-encoding.tables） > string
+ * <p>
+ * 表的默认编码格式为"表名=编码"，逗号分隔，如"metrics=long,ns:blobs=base64"。
+ **/
+@Component
+public class ValueEncodingResolver {
+	private final Map<String, ValueEncoding> tableEncodings;
+
+	public ValueEncodingResolver(@Value("${hbase.value-encoding.tables:}") String tables) {
+		this.tableEncodings = parse(tables);
+	}
+
+	/**
+	 * @param tableName
+	 * @param requested 请求指定的编码，可以为null
+	 * @return
+	 */
+	public ValueEncoding resolve(String tableName, ValueEncoding requested) {
+		if (requested != null) {
+			return requested;
+		}
+		return tableEncodings.getOrDefault(normalize(tableName), ValueEncoding.STRING);
+	}
+
+	private static Map<String, ValueEncoding> parse(String tables) {
+		if (tables == null || tables.trim().isEmpty()) {
+			return Collections.emptyMap();
+		}
+		Map<String, ValueEncoding> map = new HashMap<>();
+		for (String entry : tables.split(",")) {
+			if (entry.trim().isEmpty()) {
+				continue;
+			}
+			int eq = entry.indexOf('=');
+			if (eq <= 0) {
+				throw new InvalidParameterException("hbase.value-encoding.tables格式应为表名=编码: " + entry);
+			}
+			ValueEncoding encoding = ValueEncoding.of(entry.substring(eq + 1).trim());
+			if (encoding == null) {
+				throw new InvalidParameterException("hbase.value-encoding.tables缺少编码: " + entry);
+			}
+			map.put(normalize(entry.substring(0, eq).trim()), encoding);
+		}
+		return Collections.unmodifiableMap(map);
+	}
+
+	/**
+	 * "default:t"与"t"是同一张表
+	 */
+	private static String normalize(String tableName) {
+		return TableName.valueOf(tableName).getNameAsString();
+	}
+}
@@ -0,0 +1,230 @@
+package springboot.hbase.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HBase客户端批量操作（multi get/put按RegionServer拆分后的并行RPC）使用的线程池，所有Connection共享
+ * <p>
+ * 生命周期独立于任何一个Connection：只在应用关闭、所有连接关闭之后才关闭。
+ * 核心/最大线程数、有界队列长度、拒绝策略可配置；队列满且线程数达到最大时，caller-runs由提交任务的线程自己执行，
+ * abort抛出RejectedExecutionException（HBase客户端会按失败重试）。
+ * 指标：hbase.client.batch.active/queued/pool.size、hbase.client.batch.rejected、
+ * hbase.client.batch.queue.wait（排队时间）、hbase.client.batch.task（执行时间）。
+ * hbase.execution.mode=virtual时每个任务一个虚拟线程，不排队。
+ **/
+@Slf4j
+@Component
+public class HBaseBatchExecutor implements MeterBinder, DisposableBean {
+	private final ThreadPoolExecutor pool;  //虚拟线程模式下为null
+	private final ExecutorService delegate;
+	private final ExecutorService executorService;
+	private final AtomicInteger active = new AtomicInteger(0);
+	private final AtomicLong rejected = new AtomicLong(0);
+	private volatile Timer queueWaitTimer;
+	private volatile Timer taskTimer;
+
+	public HBaseBatchExecutor(@Value("${hbase.client.batch.core-size:30}") int coreSize,
+														@Value("${hbase.client.batch.max-size:30}") int maxSize,
+														@Value("${hbase.client.batch.queue-capacity:1000}") int queueCapacity,
+														@Value("${hbase.client.batch.rejection-policy:caller-runs}") String rejectionPolicy,
+														@Value("${hbase.execution.mode:platform}") String executionMode) {
+		if (VirtualThreads.enabled(executionMode)) {
+			this.pool = null;
+			this.delegate = VirtualThreads.newThreadPerTaskExecutor("hbase-batch-");
+			log.info("HBase客户端批量操作使用虚拟线程");
+		} else {
+			if (coreSize < 1 || maxSize < coreSize || queueCapacity < 1) {
+				throw new IllegalArgumentException("hbase.client.batch要求1 <= core-size <= max-size，queue-capacity >= 1");
+			}
+			this.pool = new ThreadPoolExecutor(coreSize, maxSize, 60L, TimeUnit.SECONDS,
+							new ArrayBlockingQueue<>(queueCapacity),
+							new ThreadFactoryBuilder().setNameFormat("hbase-batch-%d").setDaemon(true).build(),
+							rejectionHandler(rejectionPolicy));
+			this.pool.allowCoreThreadTimeOut(true);
+			this.delegate = pool;
+		}
+		this.executorService = new InstrumentedExecutorService();
+	}
+
+	/**
+	 * @return 传给ConnectionFactory.createConnection的线程池，Connection关闭时不能关闭它
+	 */
+	public ExecutorService getExecutorService() {
+		return executorService;
+	}
+
+	/**
+	 * 调整线程数，运行中生效
+	 *
+	 * @param coreSize
+	 * @param maxSize
+	 */
+	public void resize(int coreSize, int maxSize) {
+		if (pool == null) {
+			throw new IllegalStateException("虚拟线程模式不需要调整线程数");
+		}
+		if (coreSize < 1 || maxSize < coreSize) {
+			throw new IllegalArgumentException("要求1 <= coreSize <= maxSize");
+		}
+		//先放宽再收紧，任何时刻都满足core <= max
+		if (maxSize >= pool.getMaximumPoolSize()) {
+			pool.setMaximumPoolSize(maxSize);
+			pool.setCorePoolSize(coreSize);
+		} else {
+			pool.setCorePoolSize(coreSize);
+			pool.setMaximumPoolSize(maxSize);
+		}
+		log.info("HBase客户端批量操作线程池调整为core={}, max={}", coreSize, maxSize);
+	}
+
+	/**
+	 * @return 正在执行的任务数
+	 */
+	public int getActiveCount() {
+		return active.get();
+	}
+
+	/**
+	 * @return 排队中的任务数
+	 */
+	public int getQueueSize() {
+		return pool == null ? 0 : pool.getQueue().size();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("hbase.client.batch.active", this, HBaseBatchExecutor::getActiveCount)
+						.description("HBase客户端批量操作正在执行的任务数")
+						.register(registry);
+		Gauge.builder("hbase.client.batch.queued", this, HBaseBatchExecutor::getQueueSize)
+						.description("HBase客户端批量操作排队中的任务数")
+						.register(registry);
+		if (pool != null) {
+			Gauge.builder("hbase.client.batch.pool.size", pool, ThreadPoolExecutor::getPoolSize)
+							.description("HBase客户端批量操作线程池当前线程数")
+							.register(registry);
+		}
+		FunctionCounter.builder("hbase.client.batch.rejected", rejected, AtomicLong::get)
+						.description("队列已满被拒绝（或由调用线程执行）的任务数")
+						.register(registry);
+		queueWaitTimer = Timer.builder("hbase.client.batch.queue.wait")
+						.description("任务从提交到开始执行的时间")
+						.register(registry);
+		taskTimer = Timer.builder("hbase.client.batch.task")
+						.description("任务执行时间")
+						.register(registry);
+	}
+
+	/**
+	 * 应用关闭时调用；依赖本组件的连接工厂先于本组件销毁，此时所有连接都已关闭
+	 */
+	@Override
+	public void destroy() {
+		delegate.shutdown();
+		try {
+			if (!delegate.awaitTermination(10, TimeUnit.SECONDS)) {
+				delegate.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			delegate.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private RejectedExecutionHandler rejectionHandler(String policy) {
+		switch (policy.trim().toLowerCase(Locale.ROOT)) {
+			case "caller-runs":
+				return (task, executor) -> {
+					rejected.incrementAndGet();
+					if (!executor.isShutdown()) {
+						task.run();
+					}
+				};
+			case "abort":
+				return (task, executor) -> {
+					rejected.incrementAndGet();
+					throw new RejectedExecutionException("HBase客户端批量操作队列已满，排队" + executor.getQueue().size() + "个任务");
+				};
+			default:
+				throw new IllegalArgumentException("hbase.client.batch.rejection-policy只支持caller-runs、abort: " + policy);
+		}
+	}
+
+	private Runnable instrument(Runnable task) {
+		long submitted = System.nanoTime();
+		return () -> {
+			long start = System.nanoTime();
+			Timer queueWait = queueWaitTimer;
+			if (queueWait != null) {
+				queueWait.record(start - submitted, TimeUnit.NANOSECONDS);
+			}
+			active.incrementAndGet();
+			try {
+				task.run();
+			} finally {
+				active.decrementAndGet();
+				Timer timer = taskTimer;
+				if (timer != null) {
+					timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+				}
+			}
+		};
+	}
+
+	/**
+	 * 交给HBase客户端的线程池视图：任务经instrument包装；shutdown是空操作，只有destroy才真正关闭
+	 */
+	private final class InstrumentedExecutorService extends AbstractExecutorService {
+		@Override
+		public void execute(Runnable command) {
+			delegate.execute(instrument(command));
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			log.warn("忽略对HBase客户端批量操作线程池的shutdownNow，线程池由HBaseBatchExecutor管理");
+			return Collections.emptyList();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return delegate.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return delegate.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return delegate.awaitTermination(timeout, unit);
+		}
+	}
+}
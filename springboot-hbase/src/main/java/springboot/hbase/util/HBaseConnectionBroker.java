@@ -0,0 +1,371 @@
+package springboot.hbase.util;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hbase.client.Connection;
+import springboot.hbase.exception.ConnectionAcquireTimeoutException;
+import springboot.hbase.util.HBaseConnectionPool.HBaseConnectionEntity;
+import springboot.hbase.util.HBaseConnectionPool.HBaseConnectionStatus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * HBase连接租借器
+ * <p>
+ * 空闲连接放在无锁栈中（后进先出，优先复用刚归还的连接），
+ * 同时租出的连接数由信号量限制在maxSize以内，获取超时后快速失败，不会无限等待。
+ * 由后台线程定期调用{@link #maintain(int, long)}校验、淘汰、补充空闲连接，租借时不需要为失效连接或重连付出代价。
+ **/
+@Slf4j
+public class HBaseConnectionBroker {
+	private final ConcurrentLinkedDeque<HBaseConnectionEntity> idleConnections = new ConcurrentLinkedDeque<>();  //空闲连接
+	private final AtomicInteger idleSize = new AtomicInteger(0);  //空闲连接数
+	private final AtomicInteger activeSize = new AtomicInteger(0);  //活跃连接数
+	private final Semaphore permits;  //租约许可，数量等于maxSize
+	private final int maxSize;  //最大同时租出的连接数
+	private final long acquireTimeoutMillis;  //获取连接的超时时间，<=0时连接耗尽立即失败
+	private final Supplier<Connection> connectionFactory;
+	private final Predicate<Connection> validator;  //空闲连接校验，只做本地检查，不发RPC
+	private final AtomicLong createdCount = new AtomicLong(0);  //累计创建的连接数
+	private final AtomicLong evictedCount = new AtomicLong(0);  //累计因空闲超时淘汰的连接数
+	private final AtomicLong brokenCount = new AtomicLong(0);  //累计校验失败移除的连接数
+	private final AtomicLong validationCount = new AtomicLong(0);  //累计校验次数
+	private final AtomicLong validationNanos = new AtomicLong(0);  //累计校验耗时
+	private volatile boolean isShutdown = false;
+
+	public HBaseConnectionBroker(int maxSize, long acquireTimeoutMillis, Supplier<Connection> connectionFactory) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize必须大于等于1");
+		}
+		this.maxSize = maxSize;
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+		this.connectionFactory = connectionFactory;
+		this.validator = conn -> !conn.isClosed() && !conn.isAborted();
+		this.permits = new Semaphore(maxSize, true);
+	}
+
+	/**
+	 * 预先创建空闲连接
+	 *
+	 * @param initSize 初始化连接数，超过maxSize时按maxSize创建
+	 */
+	public void initConnections(int initSize) {
+		initConnections(initSize, 1);
+	}
+
+	/**
+	 * 用parallelism个线程并行预先创建空闲连接，每个连接的创建都要访问ZooKeeper，串行创建时启动耗时随连接数线性增长
+	 *
+	 * @param initSize    初始化连接数，超过maxSize时按maxSize创建
+	 * @param parallelism 并行创建的线程数，<=1时在当前线程串行创建
+	 */
+	public void initConnections(int initSize, int parallelism) {
+		int size = Math.min(initSize, maxSize);
+		if (parallelism <= 1 || size <= 1) {
+			for (int i = 0; i < size; i++) {
+				addIdle(connectionFactory.get());
+			}
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, size),
+						new ThreadFactoryBuilder().setNameFormat("hbase-pool-init-%d").setDaemon(true).build());
+		try {
+			List<Future<?>> futures = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				futures.add(executor.submit(() -> addIdle(connectionFactory.get())));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("初始化HBase连接时线程被中断", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("初始化HBase连接失败", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void addIdle(Connection conn) {
+		if (conn == null) {
+			return;
+		}
+		createdCount.incrementAndGet();
+		idleConnections.offerFirst(newEntity(conn, HBaseConnectionStatus.idle));
+		idleSize.incrementAndGet();
+	}
+
+	/**
+	 * 维护空闲连接：移除校验失败（已关闭或已abort）的连接，淘汰空闲超过maxIdleTimeMillis的连接（保留minIdle个），
+	 * 再补充新连接直到空闲连接数达到minIdle（空闲+活跃不超过maxSize）
+	 *
+	 * @param minIdle           最少保持的空闲连接数
+	 * @param maxIdleTimeMillis 最大空闲时间，<=0时不按空闲时间淘汰
+	 */
+	public void maintain(int minIdle, long maxIdleTimeMillis) {
+		if (isShutdown) {
+			return;
+		}
+		//原地从栈底（最久未使用）向栈顶校验，不把连接取出栈：校验期间租借方仍能拿到这些连接，不会因为看不到空闲连接而新建，
+		//使连接总数超过maxSize。要关闭的连接先从栈中移除，移除失败说明已被租出，跳过
+		long now = System.currentTimeMillis();
+		int idle = idleSize.get();
+		Iterator<HBaseConnectionEntity> iterator = idleConnections.descendingIterator();
+		while (iterator.hasNext() && !isShutdown) {
+			HBaseConnectionEntity entity = iterator.next();
+			if (!validate(entity.getConnection())) {
+				if (removeIdle(entity)) {
+					brokenCount.incrementAndGet();
+					idle--;
+				}
+			} else if (maxIdleTimeMillis > 0 && idle > minIdle && now - entity.getLastUsedTime() > maxIdleTimeMillis) {
+				if (removeIdle(entity)) {
+					evictedCount.incrementAndGet();
+					idle--;
+				}
+			}
+		}
+
+		int missing = Math.min(minIdle - idleSize.get(), maxSize - idleSize.get() - activeSize.get());
+		for (int i = 0; i < missing && !isShutdown; i++) {
+			Connection conn = connectionFactory.get();
+			if (conn == null) {
+				log.warn("补充空闲HBase连接失败");
+				break;
+			}
+			createdCount.incrementAndGet();
+			idleConnections.offerLast(newEntity(conn, HBaseConnectionStatus.idle));
+			idleSize.incrementAndGet();
+		}
+		if (isShutdown) {
+			shutdown();  //维护期间关闭了租借器，关闭放回的连接
+		}
+	}
+
+	/**
+	 * 租借连接，使用完毕后必须调用{@link Lease#close()}归还，推荐配合try-with-resources使用
+	 *
+	 * @return 连接租约
+	 */
+	public Lease acquire() {
+		checkShutdown();
+		if (!tryAcquirePermit()) {
+			throw new ConnectionAcquireTimeoutException("获取HBase连接超时，当前活跃连接数: " + activeSize.get() + "，最大连接数: " + maxSize);
+		}
+		try {
+			checkShutdown();
+			HBaseConnectionEntity entity = pollIdle();
+			if (entity == null) {
+				entity = createEntity();
+			}
+			entity.setStatus(HBaseConnectionStatus.active);
+			activeSize.incrementAndGet();
+			return new Lease(entity);
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	/**
+	 * 关闭租借器，关闭所有空闲连接；已租出的连接在归还时关闭
+	 */
+	public void shutdown() {
+		isShutdown = true;
+		HBaseConnectionEntity entity;
+		while ((entity = idleConnections.pollFirst()) != null) {
+			idleSize.decrementAndGet();
+			closeQuietly(entity.getConnection());
+		}
+	}
+
+	public int getIdleSize() {
+		return idleSize.get();
+	}
+
+	public int getActiveSize() {
+		return activeSize.get();
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return 正在等待获取连接的线程数（估计值）
+	 */
+	public int getPendingSize() {
+		return permits.getQueueLength();
+	}
+
+	public long getCreatedCount() {
+		return createdCount.get();
+	}
+
+	public long getEvictedCount() {
+		return evictedCount.get();
+	}
+
+	public long getBrokenCount() {
+		return brokenCount.get();
+	}
+
+	public long getValidationCount() {
+		return validationCount.get();
+	}
+
+	/**
+	 * @return 累计校验耗时（纳秒）
+	 */
+	public long getValidationNanos() {
+		return validationNanos.get();
+	}
+
+	private boolean tryAcquirePermit() {
+		if (acquireTimeoutMillis <= 0) {
+			return permits.tryAcquire();
+		}
+		try {
+			return permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConnectionAcquireTimeoutException("等待HBase连接时线程被中断");
+		}
+	}
+
+	/**
+	 * 从空闲栈中移除并关闭连接
+	 *
+	 * @return 是否由本次调用移除，连接已被租出时为false
+	 */
+	private boolean removeIdle(HBaseConnectionEntity entity) {
+		if (!idleConnections.removeFirstOccurrence(entity)) {
+			return false;
+		}
+		idleSize.decrementAndGet();
+		entity.setStatus(HBaseConnectionStatus.close);
+		closeQuietly(entity.getConnection());
+		return true;
+	}
+
+	private HBaseConnectionEntity pollIdle() {
+		HBaseConnectionEntity entity;
+		while ((entity = idleConnections.pollFirst()) != null) {
+			idleSize.decrementAndGet();
+			if (!entity.getConnection().isClosed()) {
+				return entity;
+			}
+			brokenCount.incrementAndGet();
+		}
+		return null;
+	}
+
+	private HBaseConnectionEntity createEntity() {
+		Connection conn = connectionFactory.get();
+		if (conn == null) {
+			throw new RuntimeException("创建HBase连接失败");
+		}
+		createdCount.incrementAndGet();
+		return newEntity(conn, HBaseConnectionStatus.active);
+	}
+
+	private HBaseConnectionEntity newEntity(Connection conn, HBaseConnectionStatus status) {
+		return new HBaseConnectionEntity(UUID.randomUUID().toString(), conn, status, System.currentTimeMillis());
+	}
+
+	private boolean validate(Connection conn) {
+		long start = System.nanoTime();
+		try {
+			return validator.test(conn);
+		} catch (RuntimeException e) {
+			log.warn("校验HBase连接失败", e);
+			return false;
+		} finally {
+			validationCount.incrementAndGet();
+			validationNanos.addAndGet(System.nanoTime() - start);
+		}
+	}
+
+	private void release(HBaseConnectionEntity entity) {
+		activeSize.decrementAndGet();
+		try {
+			if (isShutdown || entity.getConnection().isClosed()) {
+				entity.setStatus(HBaseConnectionStatus.close);
+				closeQuietly(entity.getConnection());
+			} else {
+				entity.setStatus(HBaseConnectionStatus.idle);
+				entity.setLastUsedTime(System.currentTimeMillis());
+				idleConnections.offerFirst(entity);
+				idleSize.incrementAndGet();
+			}
+		} finally {
+			permits.release();
+		}
+	}
+
+	private void checkShutdown() {
+		if (isShutdown) {
+			throw new RuntimeException("pool is shutdown.");
+		}
+	}
+
+	private static void closeQuietly(Connection connection) {
+		if (connection == null || connection.isClosed()) {
+			return;
+		}
+		try {
+			connection.close();
+		} catch (IOException e) {
+			log.warn("关闭HBase连接失败", e);
+		}
+	}
+
+	/**
+	 * 连接租约，close()时归还连接，重复close只归还一次
+	 */
+	public final class Lease implements HBaseConnectionLease {
+		private final HBaseConnectionEntity entity;
+		private final AtomicBoolean released = new AtomicBoolean(false);
+
+		private Lease(HBaseConnectionEntity entity) {
+			this.entity = entity;
+		}
+
+		@Override
+		public Connection getConnection() {
+			return entity.getConnection();
+		}
+
+		public HBaseConnectionEntity getEntity() {
+			return entity;
+		}
+
+		public String getId() {
+			return entity.getId();
+		}
+
+		@Override
+		public void close() {
+			if (released.compareAndSet(false, true)) {
+				release(entity);
+			}
+		}
+	}
+}
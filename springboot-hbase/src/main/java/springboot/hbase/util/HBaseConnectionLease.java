@@ -0,0 +1,16 @@
+package springboot.hbase.util;
+
+import org.apache.hadoop.hbase.client.Connection;
+
+import java.io.Closeable;
+
+/**
+ * 连接租约，close()时归还连接，重复close只归还一次
+ **/
+public interface HBaseConnectionLease extends Closeable {
+
+	Connection getConnection();
+
+	@Override
+	void close();
+}
@@ -1,5 +1,6 @@
 package springboot.hbase.util;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -9,18 +10,16 @@ import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -28,104 +27,56 @@ import java.util.concurrent.locks.ReentrantLock;
  * <p>
  * Created by jingdong on 2018-07-04
  **/
+@Slf4j
 public class HBaseConnectionPool {
-	private static ConcurrentHashMap<String, HBaseConnectionEntity> idleConnections = null;  //空闲连接
-	private static ConcurrentHashMap<String, HBaseConnectionEntity> activeConnections = null;  //活跃连接
-	private static int initSize;  //初始化连接数
-	private static int maxSize;    //连接池中最大连接数
-	private static AtomicInteger idleSize = new AtomicInteger(0);  //空闲连接数
-	private static AtomicInteger activeSize = new AtomicInteger(0);  //活跃连接数
+	private static HBaseConnectionBroker broker = null;
+	private static ConcurrentHashMap<String, HBaseConnectionBroker.Lease> activeLeases = new ConcurrentHashMap<>();  //通过getConnection()租出、按id归还的连接
 	private static HBaseConnectionPool instance = null;
-	private static Lock lock = new ReentrantLock();
 	private static volatile boolean isShutdown = false;
+	private static final ReentrantLock initLock = new ReentrantLock();  //初始化时要创建连接，不用synchronized，避免钉住虚拟线程
+	private final ScheduledExecutorService maintainer;  //定期校验、淘汰、补充空闲连接
 
-	private HBaseConnectionPool(int initSize, int maxSize) {
-		HBaseConnectionPool.initSize = initSize;
-		HBaseConnectionPool.maxSize = maxSize;
-		idleConnections = new ConcurrentHashMap<>();
-		activeConnections = new ConcurrentHashMap<>();
-		initConnections();
-		new HBaseDetectFailConnection().start();
+	private HBaseConnectionPool(int initSize, int maxSize, long acquireTimeoutMillis) {
+		long start = System.currentTimeMillis();
+		broker = new HBaseConnectionBroker(maxSize, acquireTimeoutMillis, HBaseConnectionFactory::getConnection);
+		broker.initConnections(initSize, HBaseConnectionFactory.initParallelism);
+		log.info("初始化HBase连接池完成，{}个连接耗时{}ms", broker.getIdleSize(), System.currentTimeMillis() - start);
+		maintainer = Executors.newSingleThreadScheduledExecutor(
+						new ThreadFactoryBuilder().setNameFormat("hbase-pool-maintainer").setDaemon(true).build());
+		long interval = HBaseConnectionFactory.maintenanceIntervalMillis;
+		maintainer.scheduleWithFixedDelay(this::maintain, interval, interval, TimeUnit.MILLISECONDS);
 	}
 
-	/**
-	 * 初始化连接池
-	 */
-	private void initConnections() {
-		for (int i = 0; i < HBaseConnectionPool.initSize; i++) {
-			HBaseConnectionEntity entity = new HBaseConnectionEntity();
-			String id = UUID.randomUUID().toString();
-			entity.setId(id);
-			Connection conn = HBaseConnectionFactory.getConnection();
-			if (conn == null) {
-				continue;
-			}
-			entity.setConnection(conn);
-			entity.setStatus(HBaseConnectionStatus.idle);
-			idleConnections.put(id, entity);
-			idleSize.getAndAdd(1);
+	private void maintain() {
+		try {
+			broker.maintain(HBaseConnectionFactory.minIdle, HBaseConnectionFactory.maxIdleTimeMillis);
+		} catch (RuntimeException e) {
+			//异常会终止后续调度，只记录日志
+			log.warn("维护HBase连接池失败", e);
 		}
 	}
 
 	/**
-	 * 从连接池获取连接
+	 * 从连接池获取连接，使用完毕后需调用{@link #releaseConnection(String)}归还
 	 *
 	 * @return HBase连接实体
 	 */
 	public static HBaseConnectionEntity getConnection() {
-		if (isShutdown) {
-			throw new RuntimeException("pool is shutdown.");
-		}
-		lock.lock();
-		try {
-			if (idleSize.get() > 0) {
-				if (idleConnections.size() <= 0) {
-					throw new RuntimeException("当前没有空闲连接");
-				}
-				Map.Entry<String, HBaseConnectionEntity> entry = idleConnections.entrySet().iterator().next();
-				String key = entry.getKey();
-				HBaseConnectionEntity entity = entry.getValue();
-				entity.setStatus(HBaseConnectionStatus.active);
-				idleConnections.remove(key);
-				idleSize.decrementAndGet();
-				if (entity.getConnection().isClosed()) {
-					return getConnection();
-				}
-				activeConnections.put(key, entity);
-				activeSize.incrementAndGet();
-				return entity;
-			}
-		} finally {
-			lock.unlock();
-		}
-
-		if (activeSize.get() > maxSize) {
-			throw new RuntimeException("活跃数量大于最大值");
-		}
-		if (activeSize.get() <= maxSize) {
-			synchronized (HBaseConnectionPool.class) {
-				try {
-					HBaseConnectionPool.class.wait();
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-			return getConnection();
-		}
+		HBaseConnectionBroker.Lease lease = lease();
+		activeLeases.put(lease.getId(), lease);
+		return lease.getEntity();
+	}
 
+	/**
+	 * 从连接池租借连接，close()时自动归还
+	 *
+	 * @return 连接租约
+	 */
+	public static HBaseConnectionBroker.Lease lease() {
 		if (isShutdown) {
 			throw new RuntimeException("pool is shutdown.");
 		}
-
-		Connection conn = HBaseConnectionFactory.getConnection();
-		String id = UUID.randomUUID().toString();
-		HBaseConnectionEntity entity = new HBaseConnectionEntity();
-		entity.setId(id);
-		entity.setConnection(conn);
-		entity.setStatus(HBaseConnectionStatus.active);
-		activeConnections.put(id, entity);
-		activeSize.incrementAndGet();
-		return entity;
+		return getInstance().getBroker().acquire();
 	}
 
 	/**
@@ -140,7 +91,7 @@ public class HBaseConnectionPool {
 		if (instance != null) {
 			return instance;
 		}
-		return getInstance(20, 20);
+		return getInstance(HBaseConnectionFactory.initSize, HBaseConnectionFactory.maxSize);
 	}
 
 	public static HBaseConnectionPool getInstance(int initSize, int maxSize) {
@@ -153,10 +104,13 @@ public class HBaseConnectionPool {
 		if (initSize > maxSize) {
 			initSize = maxSize;
 		}
-		synchronized (HBaseConnectionPool.class) {
+		initLock.lock();
+		try {
 			if (instance == null) {
-				instance = new HBaseConnectionPool(initSize, maxSize);
+				instance = new HBaseConnectionPool(initSize, maxSize, HBaseConnectionFactory.acquireTimeoutMillis);
 			}
+		} finally {
+			initLock.unlock();
 		}
 		return instance;
 	}
@@ -167,21 +121,9 @@ public class HBaseConnectionPool {
 	 * @param id
 	 */
 	public void releaseConnection(String id) {
-		if (isShutdown) {
-			throw new RuntimeException("pool is shutdown.");
-		}
-		if (idleSize.get() == maxSize) {
-			HBaseConnectionFactory.closeConnection(activeConnections.remove(id).getConnection());
-		} else {
-			HBaseConnectionEntity entity = activeConnections.remove(id);
-			entity.setStatus(HBaseConnectionStatus.idle);
-			idleConnections.put(id, entity);
-			idleSize.incrementAndGet();
-			activeSize.decrementAndGet();
-			synchronized (HBaseConnectionPool.class) {
-				HBaseConnectionPool.class.notify();
-			}
-
+		HBaseConnectionBroker.Lease lease = activeLeases.remove(id);
+		if (lease != null) {
+			lease.close();
 		}
 	}
 
@@ -190,56 +132,20 @@ public class HBaseConnectionPool {
 	 */
 	public void shutdown() {
 		isShutdown = true;
-		synchronized (HBaseConnectionPool.class) {
-			HBaseConnectionPool.class.notifyAll();
-		}
-		for (String key : idleConnections.keySet()) {
-			HBaseConnectionEntity entity = idleConnections.get(key);
-			HBaseConnectionFactory.closeConnection(entity.getConnection());
-		}
-		for (String key : activeConnections.keySet()) {
-			HBaseConnectionEntity entity = activeConnections.get(key);
-			HBaseConnectionFactory.closeConnection(entity.getConnection());
-		}
-		initSize = 0;
-		maxSize = 0;
-		idleSize = new AtomicInteger(0);
-		activeSize = new AtomicInteger(0);
+		maintainer.shutdownNow();
+		broker.shutdown();
 	}
 
 	public int getidleSize() {
-		return HBaseConnectionPool.idleSize.get();
+		return broker.getIdleSize();
 	}
 
 	public int getActiveSize() {
-		return HBaseConnectionPool.activeSize.get();
+		return broker.getActiveSize();
 	}
 
-	class HBaseDetectFailConnection extends Thread {
-		@Override
-		public void run() {
-			Iterator<String> itIdle = idleConnections.keySet().iterator();
-			handleConnections(itIdle, idleConnections, idleSize);
-
-			Iterator<String> itActive = activeConnections.keySet().iterator();
-			handleConnections(itActive, activeConnections, activeSize);
-			try {
-				Thread.sleep(10000);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
-	}
-
-	private void handleConnections(Iterator<String> itIdle, ConcurrentHashMap<String, HBaseConnectionEntity> idleConnections, AtomicInteger idleSize) {
-		while (itIdle.hasNext()) {
-			String key = itIdle.next();
-			HBaseConnectionEntity entity = idleConnections.get(key);
-			if (entity.getConnection().isClosed()) {
-				idleConnections.remove(key);
-				idleSize.decrementAndGet();
-			}
-		}
+	HBaseConnectionBroker getBroker() {
+		return broker;
 	}
 
 	@Slf4j
@@ -256,33 +162,71 @@ public class HBaseConnectionPool {
 
 		@Value("${zookeeper.znode.parent}")
 		private String znode;
+
+		@Value("${hbase.pool.init-size:20}")
+		private int poolInitSize;
+
+		@Value("${hbase.pool.max-size:20}")
+		private int poolMaxSize;
+
+		@Value("${hbase.pool.acquire-timeout:3000}")
+		private long poolAcquireTimeout;
+
+		@Value("${hbase.pool.init-parallelism:8}")
+		private int poolInitParallelism;
+
+		@Value("${hbase.pool.min-idle:5}")
+		private int poolMinIdle;
+
+		@Value("${hbase.pool.max-idle-time:600000}")
+		private long poolMaxIdleTime;
+
+		@Value("${hbase.pool.maintenance-interval:10000}")
+		private long poolMaintenanceInterval;
+
+		@Autowired
+		private HBaseBatchExecutor batchExecutor;
+
+		private static int initSize = 20;  //初始化连接数
+		private static int maxSize = 20;  //连接池中最大连接数
+		private static long acquireTimeoutMillis = 3000L;  //获取连接的超时时间（毫秒）
+		private static int initParallelism = 8;  //并行创建初始连接的线程数
+		private static int minIdle = 5;  //最少保持的空闲连接数
+		private static long maxIdleTimeMillis = 600000L;  //空闲超过该时间的连接被淘汰（毫秒）
+		private static long maintenanceIntervalMillis = 10000L;  //维护空闲连接的间隔（毫秒）
 		private static Configuration conf = HBaseConfiguration.create();
-		private static ExecutorService poolx = Executors.newFixedThreadPool(30);
+		private static volatile ExecutorService poolx;  //所有连接共享的批量操作线程池，由HBaseBatchExecutor管理，关闭连接时不能关闭
+
+		/**
+		 * 按当前HBase配置创建一个新连接，失败时重试
+		 *
+		 * @return 新连接，重试后仍失败返回null
+		 */
+		public Connection createConnection() {
+			return getConnection();
+		}
 
 		private static Connection getConnection() {
-			int i = 0;
-			Connection conn = null;
-			do {
+			long backoffMillis = 100L;
+			for (int i = 1; ; i++) {
 				try {
-					conn = ConnectionFactory.createConnection(conf, poolx);
-					if (conn != null) {
-						break;
+					//poolx为null时（未经Spring初始化）由每个Connection自建线程池
+					return ConnectionFactory.createConnection(conf, poolx);
+				} catch (IOException e) {
+					log.warn("创建HBase连接失败，第{}次", i, e);
+					if (i >= 5) {
+						return null;
 					}
-					Thread.sleep(100);
-					i++;
-				} catch (InterruptedException | IOException e) {
-					e.printStackTrace();
 				}
-			} while (i < 5);
-			return conn;
-		}
-
-		private static void closeConnection(Connection connection) {
-			try {
-				connection.close();
-				poolx.shutdownNow();
-			} catch (IOException e) {
-				e.printStackTrace();
+				//ZooKeeper或Master短暂不可用时逐次加倍等待（100ms、200ms、400ms、800ms），避免连续重试
+				try {
+					Thread.sleep(backoffMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					log.warn("创建HBase连接时线程被中断");
+					return null;
+				}
+				backoffMillis *= 2;
 			}
 		}
 
@@ -292,6 +236,14 @@ public class HBaseConnectionPool {
 			conf.set("hbase.zookeeper.property.clientPort", zkPort);
 			conf.set("zookeeper.znode.parent", znode);
 			conf.set("hbase.master", hBaseMaster);
+			initSize = poolInitSize;
+			maxSize = poolMaxSize;
+			acquireTimeoutMillis = poolAcquireTimeout;
+			initParallelism = poolInitParallelism;
+			minIdle = poolMinIdle;
+			maxIdleTimeMillis = poolMaxIdleTime;
+			maintenanceIntervalMillis = poolMaintenanceInterval;
+			poolx = batchExecutor.getExecutorService();
 
 			log.info("加载hbase配置success!");
 		}
@@ -310,5 +262,6 @@ public class HBaseConnectionPool {
 		private String id;
 		private Connection connection;
 		private HBaseConnectionStatus status;
+		private long lastUsedTime;  //创建或最近一次归还的时间
 	}
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package springboot.hbase.util;
+
+import java.io.IOException;
+
+/**
+ * 租借HBase连接，调用方使用完毕后必须close()租约，推荐通过HBaseTemplate使用
+ * <p>
+ * 通过hbase.connection.mode选择实现：shared（默认，整个JVM共用一个Connection）或pool（连接池）
+ **/
+public interface HBaseConnectionProvider {
+
+	HBaseConnectionLease lease() throws IOException;
+
+	/**
+	 * 租借随组件整个生命周期持有的连接（如常驻的BufferedMutator），不参与泄漏检测
+	 */
+	HBaseConnectionLease leaseLongLived() throws IOException;
+
+	/**
+	 * @return 当前持有的连接数；每个连接有自己的region位置缓存，预热时逐个预热
+	 */
+	default int getConnectionCount() {
+		return 1;
+	}
+}
@@ -0,0 +1,146 @@
+package springboot.hbase.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hbase.client.Connection;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 连接租约泄漏检测
+ * <p>
+ * 记录所有未归还的租约，持有时间超过hbase.leak-detection-threshold（毫秒）的租约打印租借时的调用栈，
+ * 并通过hbase.lease.outstanding/hbase.lease.leaked/hbase.lease.leaks.detected指标暴露。
+ * <p>
+ * 启用后每次租借都要采集一次调用栈，默认关闭（阈值为0，只统计未归还的租约数），排查泄漏时再临时打开。
+ * 流式扫描（/scanTable/{tableName}/stream、/query、/getRowKeys/{tableName}/stream）和导出分片在整个扫描期间持有租约，
+ * 下载较慢时会超过阈值被报告为泄漏，阈值要大于最长的流式请求耗时。
+ **/
+@Slf4j
+@Component
+public class HBaseLeaseLeakDetector implements MeterBinder, DisposableBean {
+	private final ConcurrentHashMap<Long, TrackedLease> outstanding = new ConcurrentHashMap<>();  //未归还的租约
+	private final AtomicLong sequence = new AtomicLong(0);
+	private final AtomicLong detectedLeaks = new AtomicLong(0);  //累计发现的泄漏数
+	private final long thresholdMillis;
+	private final ScheduledExecutorService scheduler;
+
+	public HBaseLeaseLeakDetector(@Value("${hbase.leak-detection-threshold:0}") long thresholdMillis) {
+		this.thresholdMillis = thresholdMillis;
+		if (thresholdMillis > 0) {
+			long period = Math.max(1000L, thresholdMillis / 2);
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "hbase-lease-leak-detector");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleWithFixedDelay(this::detectLeaks, period, period, TimeUnit.MILLISECONDS);
+		} else {
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * 登记租约，返回的租约close()时注销
+	 *
+	 * @param lease 原始租约
+	 * @return 登记后的租约
+	 */
+	public HBaseConnectionLease track(HBaseConnectionLease lease) {
+		Long id = sequence.incrementAndGet();
+		Throwable origin = thresholdMillis > 0 ? new Throwable("租借位置") : null;
+		outstanding.put(id, new TrackedLease(System.currentTimeMillis(), Thread.currentThread().getName(), origin));
+		return new HBaseConnectionLease() {
+			private final AtomicBoolean closed = new AtomicBoolean(false);
+
+			@Override
+			public Connection getConnection() {
+				return lease.getConnection();
+			}
+
+			@Override
+			public void close() {
+				if (closed.compareAndSet(false, true)) {
+					outstanding.remove(id);
+					lease.close();
+				}
+			}
+		};
+	}
+
+	/**
+	 * 检查持有时间超过阈值的租约，每个租约只报告一次
+	 */
+	void detectLeaks() {
+		long now = System.currentTimeMillis();
+		for (TrackedLease lease : outstanding.values()) {
+			if (!lease.reported && now - lease.acquiredAt > thresholdMillis) {
+				lease.reported = true;
+				detectedLeaks.incrementAndGet();
+				log.warn("HBase连接租约已被线程{}持有{}ms，可能发生泄漏", lease.threadName, now - lease.acquiredAt, lease.origin);
+			}
+		}
+	}
+
+	/**
+	 * @return 未归还的租约数
+	 */
+	public int getOutstandingCount() {
+		return outstanding.size();
+	}
+
+	/**
+	 * @return 已被判定为泄漏且仍未归还的租约数
+	 */
+	public long getLeakedCount() {
+		return outstanding.values().stream().filter(lease -> lease.reported).count();
+	}
+
+	public long getDetectedLeaks() {
+		return detectedLeaks.get();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("hbase.lease.outstanding", this, HBaseLeaseLeakDetector::getOutstandingCount)
+						.description("未归还的HBase连接租约数")
+						.register(registry);
+		Gauge.builder("hbase.lease.leaked", this, HBaseLeaseLeakDetector::getLeakedCount)
+						.description("持有时间超过泄漏阈值且仍未归还的租约数")
+						.register(registry);
+		FunctionCounter.builder("hbase.lease.leaks.detected", this, HBaseLeaseLeakDetector::getDetectedLeaks)
+						.description("累计发现的租约泄漏数")
+						.register(registry);
+	}
+
+	@Override
+	public void destroy() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+	}
+
+	private static final class TrackedLease {
+		private final long acquiredAt;
+		private final String threadName;
+		private final Throwable origin;
+		private volatile boolean reported = false;
+
+		private TrackedLease(long acquiredAt, String threadName, Throwable origin) {
+			this.acquiredAt = acquiredAt;
+			this.threadName = threadName;
+			this.origin = origin;
+		}
+	}
+}
@@ -0,0 +1,180 @@
+package springboot.hbase.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.hadoop.hbase.client.Connection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 连接池模式：每次调用从HBaseConnectionPool租借一个Connection，调用结束后归还
+ * <p>
+ * 指标：hbase.pool.idle/active/pending（等待获取连接的线程数）、hbase.pool.checkout（获取连接的等待时间）、
+ * hbase.pool.lease（连接从租出到归还的时间）、hbase.pool.connections.created/evicted/broken（连接池变动）、
+ * hbase.pool.validation（空闲连接校验耗时）
+ **/
+@Component
+@ConditionalOnProperty(name = "hbase.connection.mode", havingValue = "pool")
+public class PooledConnectionProvider implements HBaseConnectionProvider, MeterBinder {
+	private final Supplier<HBaseConnectionBroker> broker;
+	private final HBaseLeaseLeakDetector leakDetector;
+	private volatile Timer checkoutTimer;
+	private volatile Timer leaseTimer;
+
+	@Autowired
+	public PooledConnectionProvider(HBaseLeaseLeakDetector leakDetector) {
+		this(() -> HBaseConnectionPool.getInstance().getBroker(), leakDetector);
+	}
+
+	public PooledConnectionProvider(Supplier<HBaseConnectionBroker> broker, HBaseLeaseLeakDetector leakDetector) {
+		this.broker = broker;
+		this.leakDetector = leakDetector;
+	}
+
+	@Override
+	public HBaseConnectionLease lease() {
+		HBaseConnectionLease lease = acquire();
+		Timer timer = leaseTimer;
+		return leakDetector.track(timer == null ? lease : new TimedLease(lease, timer));
+	}
+
+	/**
+	 * 长期租约占用一个连接，连接池的维护不会校验它；每次取连接时检查，连接已关闭或已abort时归还并重新租借
+	 */
+	@Override
+	public HBaseConnectionLease leaseLongLived() {
+		return new LongLivedLease(acquire());
+	}
+
+	@Override
+	public int getConnectionCount() {
+		HBaseConnectionBroker b = broker.get();
+		return b.getIdleSize() + b.getActiveSize();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("hbase.pool.idle", broker, b -> b.get().getIdleSize())
+						.description("连接池空闲连接数")
+						.register(registry);
+		Gauge.builder("hbase.pool.active", broker, b -> b.get().getActiveSize())
+						.description("连接池租出的连接数")
+						.register(registry);
+		Gauge.builder("hbase.pool.pending", broker, b -> b.get().getPendingSize())
+						.description("等待获取连接的线程数")
+						.register(registry);
+		checkoutTimer = Timer.builder("hbase.pool.checkout")
+						.description("获取连接的等待时间（包括超时失败）")
+						.publishPercentileHistogram()
+						.register(registry);
+		leaseTimer = Timer.builder("hbase.pool.lease")
+						.description("连接从租出到归还的时间，不含常驻连接")
+						.publishPercentileHistogram()
+						.register(registry);
+		FunctionCounter.builder("hbase.pool.connections.created", broker, b -> b.get().getCreatedCount())
+						.description("累计创建的连接数")
+						.register(registry);
+		FunctionCounter.builder("hbase.pool.connections.evicted", broker, b -> b.get().getEvictedCount())
+						.description("累计因空闲超时淘汰的连接数")
+						.register(registry);
+		FunctionCounter.builder("hbase.pool.connections.broken", broker, b -> b.get().getBrokenCount())
+						.description("累计校验失败（已关闭或已abort）移除的连接数")
+						.register(registry);
+		FunctionTimer.builder("hbase.pool.validation", broker, b -> b.get().getValidationCount(),
+						b -> b.get().getValidationNanos(), TimeUnit.NANOSECONDS)
+						.description("空闲连接校验耗时")
+						.register(registry);
+	}
+
+	private HBaseConnectionLease acquire() {
+		Timer timer = checkoutTimer;
+		if (timer == null) {
+			return broker.get().acquire();
+		}
+		long start = System.nanoTime();
+		try {
+			return broker.get().acquire();
+		} finally {
+			timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private final class LongLivedLease implements HBaseConnectionLease {
+		private final ReentrantLock lock = new ReentrantLock();  //重新租借可能等待连接池，不用synchronized，避免钉住虚拟线程
+		private volatile HBaseConnectionLease current;
+		private volatile boolean closed;
+
+		private LongLivedLease(HBaseConnectionLease current) {
+			this.current = current;
+		}
+
+		@Override
+		public Connection getConnection() {
+			Connection conn = current.getConnection();
+			if (closed || !isBroken(conn)) {
+				return conn;
+			}
+			lock.lock();
+			try {
+				if (!closed && isBroken(current.getConnection())) {
+					current.close();  //已关闭的连接归还时由连接池关闭，已abort的由维护线程校验后移除
+					current = acquire();
+				}
+				return current.getConnection();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void close() {
+			lock.lock();
+			try {
+				if (!closed) {
+					closed = true;
+					current.close();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private boolean isBroken(Connection conn) {
+			return conn.isClosed() || conn.isAborted();
+		}
+	}
+
+	/**
+	 * 归还时记录租借时长；外层的泄漏检测保证只close一次
+	 */
+	private static final class TimedLease implements HBaseConnectionLease {
+		private final HBaseConnectionLease delegate;
+		private final Timer timer;
+		private final long start = System.nanoTime();
+
+		private TimedLease(HBaseConnectionLease delegate, Timer timer) {
+			this.delegate = delegate;
+			this.timer = timer;
+		}
+
+		@Override
+		public Connection getConnection() {
+			return delegate.getConnection();
+		}
+
+		@Override
+		public void close() {
+			timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			delegate.close();
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package springboot.hbase.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hbase.client.Connection;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 共享连接模式：HBase的Connection是线程安全的重量级对象（持有ZooKeeper会话和region位置缓存），
+ * 整个JVM只创建一个，租约close()时不关闭连接，Table/Admin/BufferedMutator由调用方在调用结束后关闭。
+ **/
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "hbase.connection.mode", havingValue = "shared", matchIfMissing = true)
+public class SharedConnectionProvider implements HBaseConnectionProvider, DisposableBean {
+	private final Supplier<Connection> connectionFactory;
+	private final HBaseLeaseLeakDetector leakDetector;
+	private final ReentrantLock lock = new ReentrantLock();  //创建连接要访问ZooKeeper，不用synchronized，避免钉住虚拟线程
+	private volatile Connection connection;
+
+	@Autowired
+	public SharedConnectionProvider(HBaseConnectionPool.HBaseConnectionFactory connectionFactory, HBaseLeaseLeakDetector leakDetector) {
+		this(connectionFactory::createConnection, leakDetector);
+	}
+
+	public SharedConnectionProvider(Supplier<Connection> connectionFactory, HBaseLeaseLeakDetector leakDetector) {
+		this.connectionFactory = connectionFactory;
+		this.leakDetector = leakDetector;
+	}
+
+	@Override
+	public HBaseConnectionLease lease() {
+		return leakDetector.track(leaseLongLived());
+	}
+
+	/**
+	 * 租约每次取连接时都取当前的共享连接，连接被abort重建后，长期持有租约的一方也会拿到新连接
+	 */
+	@Override
+	public HBaseConnectionLease leaseLongLived() {
+		getConnection();  //租借时就创建连接，创建失败在租借时抛出
+		return new HBaseConnectionLease() {
+			@Override
+			public Connection getConnection() {
+				return SharedConnectionProvider.this.getConnection();
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	/**
+	 * 获取共享连接，第一次调用时创建；连接被关闭（如abort）后重新创建
+	 *
+	 * @return 共享连接
+	 */
+	public Connection getConnection() {
+		Connection conn = connection;
+		if (conn != null && !conn.isClosed()) {
+			return conn;
+		}
+		lock.lock();
+		try {
+			if (connection == null || connection.isClosed()) {
+				long start = System.currentTimeMillis();
+				Connection created = connectionFactory.get();
+				if (created == null) {
+					throw new RuntimeException("创建HBase连接失败");
+				}
+				log.info("创建HBase共享连接耗时{}ms", System.currentTimeMillis() - start);
+				connection = created;
+			}
+			return connection;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void destroy() throws IOException {
+		Connection conn = connection;
+		if (conn != null && !conn.isClosed()) {
+			conn.close();
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package springboot.hbase.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 虚拟线程（JDK 21+）的反射入口，项目按JDK 8编译，不能直接引用Thread.ofVirtual()
+ * <p>
+ * 虚拟线程在synchronized块内阻塞时会钉住（pin）载体线程，JDK 24之前无法卸载；
+ * 因此连接创建、BufferedMutator刷写等可能阻塞的临界区都用ReentrantLock而不是synchronized。
+ **/
+@Slf4j
+public final class VirtualThreads {
+	private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+	//通过公开接口Thread.Builder调用，实现类不在导出包中，不能反射调用其方法
+	private static final Class<?> BUILDER = builderClass();
+	private static final Method BUILDER_NAME = BUILDER == null ? null : method(BUILDER, "name", String.class, long.class);
+	private static final Method BUILDER_FACTORY = BUILDER == null ? null : method(BUILDER, "factory");
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR = method(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+	private VirtualThreads() {
+	}
+
+	/**
+	 * @return 当前JVM是否支持虚拟线程
+	 */
+	public static boolean isSupported() {
+		return OF_VIRTUAL != null && BUILDER_NAME != null && BUILDER_FACTORY != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+	}
+
+	/**
+	 * @param prefix 线程名前缀，后接从0开始的序号
+	 * @return 虚拟线程工厂
+	 * @throws UnsupportedOperationException 当前JVM不支持虚拟线程
+	 */
+	public static ThreadFactory factory(String prefix) {
+		if (!isSupported()) {
+			throw new UnsupportedOperationException("虚拟线程需要JDK 21及以上，当前为" + System.getProperty("java.version"));
+		}
+		try {
+			Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), prefix, 0L);
+			return (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("创建虚拟线程工厂失败", e);
+		}
+	}
+
+	/**
+	 * 每个任务一个新的虚拟线程，不需要也不应该池化
+	 *
+	 * @param prefix 线程名前缀
+	 * @return
+	 * @throws UnsupportedOperationException 当前JVM不支持虚拟线程
+	 */
+	public static ExecutorService newThreadPerTaskExecutor(String prefix) {
+		ThreadFactory factory = factory(prefix);
+		try {
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("创建虚拟线程执行器失败", e);
+		}
+	}
+
+	/**
+	 * 解析hbase.execution.mode，virtual在不支持的JVM上退回platform
+	 *
+	 * @param mode platform或virtual
+	 * @return 是否使用虚拟线程
+	 */
+	public static boolean enabled(String mode) {
+		if (!"virtual".equalsIgnoreCase(mode)) {
+			return false;
+		}
+		if (!isSupported()) {
+			log.warn("hbase.execution.mode=virtual需要JDK 21及以上，当前为{}，使用平台线程", System.getProperty("java.version"));
+			return false;
+		}
+		return true;
+	}
+
+	private static Class<?> builderClass() {
+		try {
+			return Class.forName("java.lang.Thread$Builder");
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+		try {
+			return type.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package springboot.hbase.controller;
+
+import org.junit.Test;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import springboot.hbase.exception.TooManyRequestsException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.fail;
+
+public class StreamLimiterTest {
+
+	@Test
+	public void rejectsBeyondPermitsAndReleasesAfterWrite() throws Exception {
+		StreamLimiter limiter = new StreamLimiter(1);
+		StreamingResponseBody first = limiter.limit(out -> out.write('a'));
+		try {
+			limiter.limit(out -> out.write('b'));
+			fail("许可用完时应拒绝");
+		} catch (TooManyRequestsException e) {
+			//预期
+		}
+
+		first.writeTo(new ByteArrayOutputStream());
+		limiter.limit(out -> out.write('c')).writeTo(new ByteArrayOutputStream());
+	}
+
+	@Test
+	public void releasesPermitWhenBodyFails() throws Exception {
+		StreamLimiter limiter = new StreamLimiter(1);
+		try {
+			limiter.limit(out -> {
+				throw new IOException("客户端断开");
+			}).writeTo(new ByteArrayOutputStream());
+			fail();
+		} catch (IOException e) {
+			//预期
+		}
+
+		limiter.limit(out -> out.write('a')).writeTo(new ByteArrayOutputStream());
+	}
+}
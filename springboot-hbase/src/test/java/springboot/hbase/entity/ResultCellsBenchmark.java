@@ -0,0 +1,108 @@
+package springboot.hbase.entity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扫描结果序列化：复制成ResultInfo再序列化 vs ResultCells直接从Cell底层数组序列化
+ * <p>
+ * 用-prof gc查看每次操作分配的字节数（gc.alloc.rate.norm），GC停顿用JFR记录，命令见README。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultCellsBenchmark {
+	private static final OutputStream DISCARD = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+
+	@Param({"1000"})
+	public int rows;
+
+	@Param({"10"})
+	public int cellsPerRow;
+
+	@Param({"100"})
+	public int valueSize;
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private List<Result> results;
+
+	@Setup
+	public void setUp() {
+		byte[] value = new byte[valueSize];
+		Arrays.fill(value, (byte) 'v');
+		results = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			byte[] row = Bytes.toBytes(String.format("row-%08d", i));
+			Cell[] cells = new Cell[cellsPerRow];
+			for (int j = 0; j < cellsPerRow; j++) {
+				cells[j] = new KeyValue(row, Bytes.toBytes("f"), Bytes.toBytes("q" + j), 1L, value);
+			}
+			results.add(Result.create(cells));
+		}
+	}
+
+	/**
+	 * 原scanTable：每个Cell复制family/qualifier/value并创建String和ResultInfo
+	 */
+	@Benchmark
+	public void resultInfos() throws IOException {
+		Map<String, List<ResultInfo>> map = new HashMap<>();
+		for (Result result : results) {
+			List<ResultInfo> list = new ArrayList<>();
+			for (Cell cell : result.rawCells()) {
+				list.add(ResultInfo.builder()
+								.family(Bytes.toString(CellUtil.cloneFamily(cell)))
+								.qualifier(Bytes.toString(CellUtil.cloneQualifier(cell)))
+								.value(Bytes.toString(CellUtil.cloneValue(cell)))
+								.timestamp(cell.getTimestamp())
+								.build());
+			}
+			map.put(Bytes.toString(result.getRow()), list);
+		}
+		objectMapper.writeValue(DISCARD, map);
+	}
+
+	@Benchmark
+	public void resultCells() throws IOException {
+		Map<String, ResultCells> map = new HashMap<>();
+		for (Result result : results) {
+			map.put(Bytes.toString(result.getRow()), ResultCells.of(result));
+		}
+		objectMapper.writeValue(DISCARD, map);
+	}
+}
@@ -0,0 +1,103 @@
+package springboot.hbase.entity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Test;
+import springboot.hbase.config.SmileConfig;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ResultCellsTest {
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final Result result = Result.create(new Cell[]{
+					new KeyValue(Bytes.toBytes("row-1"), Bytes.toBytes("f"), Bytes.toBytes("q1"), 1L, Bytes.toBytes("普通值")),
+					new KeyValue(Bytes.toBytes("row-1"), Bytes.toBytes("f"), Bytes.toBytes("q2"), 2L, Bytes.toBytes("需要\"转义\"\n的值"))
+	});
+
+	@Test
+	public void byteOutputMatchesResultInfoJson() throws Exception {
+		ResultCells cells = ResultCells.of(result);
+		String expected = objectMapper.writeValueAsString(cells.toResultInfos());
+
+		assertEquals(expected, new String(objectMapper.writeValueAsBytes(cells), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void writerOutputMatchesResultInfoJson() throws Exception {
+		ResultCells cells = ResultCells.of(result);
+
+		assertEquals(objectMapper.writeValueAsString(cells.toResultInfos()), objectMapper.writeValueAsString(cells));
+	}
+
+	@Test
+	public void invalidUtf8IsReplacedInsteadOfCorruptingJson() throws Exception {
+		byte[] qualifier = {'q', (byte) 0xFF};
+		byte[] value = {(byte) 0xC3, 'a', (byte) 0xED, (byte) 0xA0, (byte) 0x80, (byte) 0xFF};
+		Result binaryRow = Result.create(new Cell[]{
+						new KeyValue(Bytes.toBytes("row-1"), Bytes.toBytes("f"), qualifier, 1L, value)
+		});
+		ResultCells cells = ResultCells.of(binaryRow);
+
+		JsonNode parsed = objectMapper.readTree(objectMapper.writeValueAsBytes(cells));
+		assertEquals(Bytes.toString(qualifier), parsed.get(0).get("qualifier").asText());
+		assertEquals(Bytes.toString(value), parsed.get(0).get("value").asText());
+		assertEquals(objectMapper.writeValueAsString(cells.toResultInfos()),
+						new String(objectMapper.writeValueAsBytes(cells), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void emptyResultIsEmptyArray() throws Exception {
+		assertEquals("[]", objectMapper.writeValueAsString(ResultCells.of(Result.EMPTY_RESULT)));
+	}
+
+	@Test
+	public void smileCarriesValuesAsRawBytes() throws Exception {
+		ObjectMapper smileMapper = new ObjectMapper(SmileConfig.smileFactory());
+		byte[] binary = {0, (byte) 0xFF, 0x7F, (byte) 0x80};
+		Result binaryRow = Result.create(new Cell[]{
+						new KeyValue(Bytes.toBytes("row-1"), Bytes.toBytes("f"), Bytes.toBytes("q1"), 1L, binary)
+		});
+
+		JsonNode cells = smileMapper.readTree(smileMapper.writeValueAsBytes(ResultCells.of(binaryRow)));
+		assertEquals("f", cells.get(0).get("family").asText());
+		assertTrue(cells.get(0).get("value").isBinary());
+		assertArrayEquals(binary, cells.get(0).get("value").binaryValue());
+	}
+
+	@Test
+	public void binaryValuesRoundTripThroughJson() throws Exception {
+		byte[] binary = {0, (byte) 0xFF, 0x7F, (byte) 0x80, (byte) 0xC3};
+		Result binaryRow = Result.create(new Cell[]{
+						new KeyValue(Bytes.toBytes("row-1"), Bytes.toBytes("f"), Bytes.toBytes("q1"), 1L, binary)
+		});
+
+		for (ValueEncoding encoding : new ValueEncoding[]{ValueEncoding.RAW, ValueEncoding.BASE64, ValueEncoding.HEX}) {
+			JsonNode cells = objectMapper.readTree(objectMapper.writeValueAsBytes(ResultCells.of(binaryRow, encoding)));
+			assertArrayEquals(encoding.name(), binary, encoding.decode(cells.get(0).get("value").asText()));
+		}
+		assertEquals("00ff7f80c3", ResultCells.of(binaryRow, ValueEncoding.HEX).toResultInfos().get(0).getValue());
+	}
+
+	@Test
+	public void numericValuesAreWrittenAsNumbers() throws Exception {
+		Result numbers = Result.create(new Cell[]{
+						new KeyValue(Bytes.toBytes("row-1"), Bytes.toBytes("f"), Bytes.toBytes("q1"), 1L, Bytes.toBytes(42L)),
+						new KeyValue(Bytes.toBytes("row-1"), Bytes.toBytes("f"), Bytes.toBytes("q2"), 1L, Bytes.toBytes("abc"))
+		});
+
+		JsonNode cells = objectMapper.readTree(objectMapper.writeValueAsBytes(ResultCells.of(numbers, ValueEncoding.LONG)));
+		assertEquals(42L, cells.get(0).get("value").longValue());
+		//长度不是8字节的值退回为base64
+		assertEquals("YWJj", cells.get(1).get("value").asText());
+		assertArrayEquals(Bytes.toBytes(42L), ValueEncoding.LONG.decode("42"));
+	}
+}
@@ -0,0 +1,36 @@
+package springboot.hbase.entity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class RowKeyEncodingTest {
+
+	@Test
+	public void frontCodingRoundTrip() {
+		List<String> keys = Arrays.asList("user-0001", "user-0002", "user-0010", "user-0010a", "v", "v😀a", "v😁b");
+		List<String> lines = new ArrayList<>();
+		String previous = null;
+		for (String key : keys) {
+			lines.add(RowKeyEncoding.FRONT.encode(previous, key));
+			previous = key;
+		}
+		assertEquals("0\tuser-0001", lines.get(0));
+		assertEquals("8\t2", lines.get(1));
+		assertEquals("9\ta", lines.get(3));
+		//两个emoji的高位代理相同，共享前缀不能停在代理对中间
+		assertEquals("1\t😁b", lines.get(6));
+
+		List<String> decoded = new ArrayList<>();
+		previous = null;
+		for (String line : lines) {
+			previous = RowKeyEncoding.FRONT.decode(previous, line);
+			decoded.add(previous);
+		}
+		assertEquals(keys, decoded);
+	}
+}
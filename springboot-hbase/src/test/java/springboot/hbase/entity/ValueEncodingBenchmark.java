@@ -0,0 +1,89 @@
+package springboot.hbase.entity;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import springboot.hbase.config.SmileConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个1KB/64KB值按不同编码序列化、以及写入接口解码的吞吐（ops/s乘以valueSize即字节吞吐），用-prof gc对照每次操作的分配量
+ * <p>
+ * string编码的值是可打印ASCII，其他编码的值是随机字节。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueEncodingBenchmark {
+	private static final OutputStream DISCARD = new OutputStream() {
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	};
+
+	@Param({"1024", "65536"})
+	public int valueSize;
+
+	@Param({"STRING", "RAW", "BASE64", "HEX"})
+	public ValueEncoding encoding;
+
+	private final ObjectMapper jsonMapper = new ObjectMapper();
+	private final ObjectMapper smileMapper = new ObjectMapper(SmileConfig.smileFactory());
+	private ResultCells cells;
+	private String encoded;
+
+	@Setup
+	public void setUp() {
+		byte[] value = new byte[valueSize];
+		if (encoding == ValueEncoding.STRING) {
+			for (int i = 0; i < valueSize; i++) {
+				value[i] = (byte) ('a' + ThreadLocalRandom.current().nextInt(26));
+			}
+		} else {
+			ThreadLocalRandom.current().nextBytes(value);
+		}
+		cells = ResultCells.of(Result.create(new Cell[]{
+						new KeyValue(Bytes.toBytes("row-1"), Bytes.toBytes("f"), Bytes.toBytes("q"), 1L, value)
+		}), encoding);
+		encoded = encoding.encodeToString(value, 0, value.length);
+	}
+
+	@Benchmark
+	public void encodeJson() throws IOException {
+		jsonMapper.writeValue(DISCARD, cells);
+	}
+
+	@Benchmark
+	public void encodeSmile() throws IOException {
+		smileMapper.writeValue(DISCARD, cells);
+	}
+
+	@Benchmark
+	public byte[] decode() {
+		return encoding.decode(encoded);
+	}
+}
@@ -0,0 +1,100 @@
+package springboot.hbase.entity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import springboot.hbase.config.SmileConfig;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 典型扫描响应（/scanTable）的编码、解码吞吐：JSON vs Smile
+ * <p>
+ * 响应大小在Setup中打印。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+	@Param({"1000"})
+	public int rows;
+
+	@Param({"10"})
+	public int cellsPerRow;
+
+	@Param({"32"})
+	public int valueSize;
+
+	private final ObjectMapper jsonMapper = new ObjectMapper();
+	private final ObjectMapper smileMapper = new ObjectMapper(SmileConfig.smileFactory());
+	private ResponseBody response;
+	private byte[] json;
+	private byte[] smile;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		Map<String, ResultCells> values = new LinkedHashMap<>();
+		for (int i = 0; i < rows; i++) {
+			byte[] row = Bytes.toBytes(String.format("row-%08d", i));
+			Cell[] cells = new Cell[cellsPerRow];
+			for (int j = 0; j < cellsPerRow; j++) {
+				byte[] value = new byte[valueSize];
+				for (int k = 0; k < valueSize; k++) {
+					value[k] = (byte) ('a' + ThreadLocalRandom.current().nextInt(26));
+				}
+				cells[j] = new KeyValue(row, Bytes.toBytes("info"), Bytes.toBytes("column-" + j), System.currentTimeMillis(), value);
+			}
+			values.put(Bytes.toString(row), ResultCells.of(Result.create(cells)));
+		}
+		response = ResponseBody.builder().code(200).msg("success")
+						.data(Collections.singletonMap("values", values)).build();
+		json = jsonMapper.writeValueAsBytes(response);
+		smile = smileMapper.writeValueAsBytes(response);
+		System.out.printf("%n响应大小: JSON %d 字节, Smile %d 字节 (%.1f%%)%n",
+						json.length, smile.length, 100.0 * smile.length / json.length);
+	}
+
+	@Benchmark
+	public byte[] encodeJson() throws IOException {
+		return jsonMapper.writeValueAsBytes(response);
+	}
+
+	@Benchmark
+	public byte[] encodeSmile() throws IOException {
+		return smileMapper.writeValueAsBytes(response);
+	}
+
+	@Benchmark
+	public JsonNode decodeJson() throws IOException {
+		return jsonMapper.readTree(json);
+	}
+
+	@Benchmark
+	public JsonNode decodeSmile() throws IOException {
+		return smileMapper.readTree(smile);
+	}
+}
@@ -0,0 +1,126 @@
+package springboot.hbase.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+import springboot.hbase.util.VirtualThreads;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1k/10k个并发请求经阻塞的HBaseService访问HBase替身（每次RPC sleep 10ms），测量一批请求全部完成的耗时
+ * <ul>
+ * <li>platform：200个平台线程的池，与Tomcat默认的max-threads相同；</li>
+ * <li>platform-per-request：每个请求一个平台线程；</li>
+ * <li>virtual：每个请求一个虚拟线程（hbase.execution.mode=virtual），需要在JDK 21+上运行，否则该组参数报错。</li>
+ * </ul>
+ * 吞吐为concurrency除以每批耗时。TearDown打印峰值线程数与堆占用，平台线程另有-Xss大小的栈预留；分配量用-prof gc查看。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xss512k")
+public class ExecutionModeBenchmark {
+	private static final int TOMCAT_MAX_THREADS = 200;
+
+	@Param({"platform", "platform-per-request", "virtual"})
+	public String mode;
+
+	@Param({"1000", "10000"})
+	public int concurrency;
+
+	@Param({"10000"})
+	public long rpcLatencyMicros;
+
+	private HBaseLeaseLeakDetector leakDetector;
+	private SharedConnectionProvider provider;
+	private HBaseRowCounter rowCounter;
+	private HBaseParallelScanner parallelScanner;
+	private HBaseWritePipeline writePipeline;
+	private HBaseMetadataCache metadataCache;
+	private HBaseService service;
+	private ExecutorService executor;
+	private int peakThreads;
+	private long peakHeap;
+
+	@Setup
+	public void setUp() {
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		provider = new SharedConnectionProvider(StubHBase.cluster(1000, 1, rpcLatencyMicros, true)::connect, leakDetector);
+		HBaseTemplate template = new HBaseTemplate(provider);
+		rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		parallelScanner = new HBaseParallelScanner(template, 2, 16, 1, 4);
+		metadataCache = new HBaseMetadataCache(template, true, 30_000L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						2L * 1024 * 1024, 1000L, 64L * 1024 * 1024);
+		HBaseRowCache rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), false, 0L, 0L);
+		service = new HBaseService(template, rowCounter, parallelScanner, writePipeline, rowCache, metadataCache,
+						new ValueEncodingResolver(""), new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true));
+		switch (mode) {
+			case "platform":
+				executor = Executors.newFixedThreadPool(TOMCAT_MAX_THREADS,
+								new ThreadFactoryBuilder().setNameFormat("http-nio-exec-%d").setDaemon(true).build());
+				break;
+			case "platform-per-request":
+				executor = Executors.newCachedThreadPool(
+								new ThreadFactoryBuilder().setNameFormat("http-per-request-%d").setDaemon(true).build());
+				break;
+			default:
+				executor = VirtualThreads.newThreadPerTaskExecutor("http-vt-");
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		System.out.printf("%n%s, %d并发: 峰值线程数%d, 峰值堆占用%dMB%n", mode, concurrency, peakThreads, peakHeap >> 20);
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+		writePipeline.destroy();
+		metadataCache.destroy();
+		parallelScanner.destroy();
+		rowCounter.destroy();
+		provider.destroy();
+		leakDetector.destroy();
+	}
+
+	@Benchmark
+	public void requests() throws Exception {
+		CountDownLatch done = new CountDownLatch(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			String rowKey = String.format("row-%08d", i % 1000);
+			executor.execute(() -> {
+				try {
+					service.getResultByRowKey("t", rowKey);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+		//虚拟线程不计入ThreadMXBean，平台线程数只反映载体线程
+		peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+		peakHeap = Math.max(peakHeap, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		done.await();
+	}
+}
@@ -0,0 +1,93 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import springboot.hbase.exception.TooManyRequestsException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 异步接口执行器的许可与线程数上限；阻塞/异步两种模式的并发容量、内存对比见HBaseAsyncLoadBenchmark
+ **/
+public class HBaseAsyncExecutorTest {
+	private CountDownLatch gate;
+	private HBaseAsyncExecutor executor;
+
+	@Before
+	public void setUp() {
+		gate = new CountDownLatch(1);
+		executor = new HBaseAsyncExecutor(new SimpleMeterRegistry(), 2, 5);
+	}
+
+	@After
+	public void tearDown() {
+		gate.countDown();
+		executor.destroy();
+	}
+
+	@Test
+	public void asyncRejectsBeyondPermits() {
+		for (int i = 0; i < 5; i++) {
+			executor.submit(() -> gate.await(1, TimeUnit.MINUTES));
+		}
+		try {
+			executor.submit(() -> null);
+			throw new AssertionError("超过许可数的请求应被拒绝");
+		} catch (TooManyRequestsException expected) {
+			assertEquals(5, executor.getInFlight());
+		}
+	}
+
+	@Test
+	public void acceptedRequestsBeyondThreadsWaitInQueue() throws Exception {
+		AtomicInteger running = new AtomicInteger(0);
+		CountDownLatch started = new CountDownLatch(2);
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			futures.add(executor.submit(() -> {
+				running.incrementAndGet();
+				started.countDown();
+				try {
+					return gate.await(1, TimeUnit.MINUTES);
+				} finally {
+					running.decrementAndGet();
+				}
+			}));
+		}
+		assertTrue(started.await(1, TimeUnit.MINUTES));
+		//两个执行线程都阻塞在gate上，其余三个请求只能排队
+		assertEquals(2, running.get());
+		assertEquals(5, executor.getInFlight());
+
+		gate.countDown();
+		CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(1, TimeUnit.MINUTES);
+		assertEquals(0, executor.getInFlight());
+	}
+
+	@Test
+	public void permitIsReleasedWhenCallFails() throws Exception {
+		CompletableFuture<Object> future = executor.submit(() -> {
+			throw new IOException("rpc failed");
+		});
+		try {
+			future.get(1, TimeUnit.MINUTES);
+			throw new AssertionError("调用失败时future应异常结束");
+		} catch (ExecutionException e) {
+			//原始异常不包装成CompletionException
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertEquals(0, executor.getInFlight());
+	}
+}
@@ -0,0 +1,151 @@
+package springboot.hbase.service;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import springboot.hbase.exception.TooManyRequestsException;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 阻塞接口与异步接口（/async/**）在突发请求下的并发容量对比
+ * <p>
+ * Servlet容器用与Tomcat默认值相同的200个线程、100个等待队列模拟；HBase用每次RPC延迟20ms的替身。
+ * 每次调用同时发出clients个请求，等到全部完成或被拒绝：
+ * <ul>
+ * <li>blocking：请求在Servlet线程上等待RPC，超过线程数+等待队列的请求被拒绝；</li>
+ * <li>async：Servlet线程只向HBaseAsyncExecutor提交任务，超过hbase.async.max-in-flight的请求返回429。</li>
+ * </ul>
+ * TearDown打印接受/拒绝的请求数与峰值线程数、堆占用；每个请求的分配量用-prof gc查看。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HBaseAsyncLoadBenchmark {
+	private static final int SERVLET_THREADS = 200;
+	private static final int ACCEPT_COUNT = 100;
+	private static final int ASYNC_THREADS = 32;
+
+	@Param({"blocking", "async"})
+	public String mode;
+
+	@Param({"2000"})
+	public int clients;
+
+	@Param({"20000"})
+	public long rpcLatencyMicros;
+
+	private HBaseLeaseLeakDetector leakDetector;
+	private SharedConnectionProvider provider;
+	private HBaseRowCounter rowCounter;
+	private HBaseParallelScanner parallelScanner;
+	private HBaseWritePipeline writePipeline;
+	private HBaseMetadataCache metadataCache;
+	private HBaseService service;
+	private HBaseAsyncExecutor asyncExecutor;
+	private ThreadPoolExecutor servletPool;
+	private final AtomicInteger accepted = new AtomicInteger(0);
+	private final AtomicInteger rejected = new AtomicInteger(0);
+	private int peakThreads;
+	private long peakHeap;
+
+	@Setup
+	public void setUp() {
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		provider = new SharedConnectionProvider(StubHBase.cluster(1000, 1, rpcLatencyMicros, true)::connect, leakDetector);
+		HBaseTemplate template = new HBaseTemplate(provider);
+		rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		parallelScanner = new HBaseParallelScanner(template, 2, 16, 1, 4);
+		metadataCache = new HBaseMetadataCache(template, false, 0L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						2L * 1024 * 1024, 1000L, 64L * 1024 * 1024);
+		service = new HBaseService(template, rowCounter, parallelScanner, writePipeline,
+						new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), false, 0L, 0L), metadataCache,
+						new ValueEncodingResolver(""), new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true));
+		asyncExecutor = new HBaseAsyncExecutor(new SimpleMeterRegistry(), ASYNC_THREADS, clients);
+		servletPool = new ThreadPoolExecutor(SERVLET_THREADS, SERVLET_THREADS, 60L, TimeUnit.SECONDS,
+						new ArrayBlockingQueue<>(ACCEPT_COUNT),
+						new ThreadFactoryBuilder().setNameFormat("http-nio-exec-%d").setDaemon(true).build());
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.printf("%n%s, %d并发: 接受%d个，拒绝%d个，峰值线程数%d, 峰值堆占用%dMB%n",
+						mode, clients, accepted.get(), rejected.get(), peakThreads, peakHeap >> 20);
+		servletPool.shutdownNow();
+		asyncExecutor.destroy();
+		writePipeline.destroy();
+		metadataCache.destroy();
+		parallelScanner.destroy();
+		rowCounter.destroy();
+		provider.destroy();
+		leakDetector.destroy();
+	}
+
+	@Benchmark
+	public void requests() throws Exception {
+		CountDownLatch done = new CountDownLatch(clients);
+		for (int i = 0; i < clients; i++) {
+			String rowKey = String.format("row-%08d", i % 1000);
+			try {
+				if ("blocking".equals(mode)) {
+					servletPool.execute(() -> blocking(rowKey, done));
+				} else {
+					servletPool.execute(() -> async(rowKey, done));
+				}
+			} catch (RejectedExecutionException e) {
+				rejected.incrementAndGet();
+				done.countDown();
+			}
+		}
+		peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+		peakHeap = Math.max(peakHeap, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		done.await();
+	}
+
+	private void blocking(String rowKey, CountDownLatch done) {
+		try {
+			service.getResultByRowKey("t", rowKey);
+			accepted.incrementAndGet();
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		} finally {
+			done.countDown();
+		}
+	}
+
+	private void async(String rowKey, CountDownLatch done) {
+		//与HBaseAsyncOperationController相同：提交后立即归还Servlet线程
+		try {
+			asyncExecutor.submit(() -> service.getResultByRowKey("t", rowKey))
+							.whenComplete((result, e) -> done.countDown());
+			accepted.incrementAndGet();
+		} catch (TooManyRequestsException e) {
+			rejected.incrementAndGet();
+			done.countDown();
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package springboot.hbase.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import springboot.hbase.entity.BulkLoadResult;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.exception.InvalidParameterException;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HBaseBulkLoaderTest {
+	private static final byte[] FAMILY = StubHBase.Cluster.FAMILY;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private StubHBase.Cluster cluster;
+	private HBaseLeaseLeakDetector leakDetector;
+	private SharedConnectionProvider provider;
+	private HBaseRowCounter rowCounter;
+	private HBaseMetadataCache metadataCache;
+	private HBaseWritePipeline writePipeline;
+	private HBaseRowCache rowCache;
+
+	@Before
+	public void setUp() {
+		cluster = StubHBase.cluster(1000, 4, 0L);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		provider = new SharedConnectionProvider(cluster::connect, leakDetector);
+		HBaseTemplate template = new HBaseTemplate(provider);
+		rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		metadataCache = new HBaseMetadataCache(template, true, 30_000L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						1024L * 1024, 60_000L, 64L * 1024 * 1024);
+		rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), true, 1024L * 1024, 60_000L);
+	}
+
+	@After
+	public void tearDown() {
+		writePipeline.destroy();
+		metadataCache.destroy();
+		rowCounter.destroy();
+		provider.destroy();
+		leakDetector.destroy();
+	}
+
+	@Test
+	public void csvReaderHandlesHeaderQuotesAndLineEndings() {
+		String csv = "rowKey,family,qualifier,value\r\n"
+						+ "row-1,f,q1,plain\r\n"
+						+ "\n"
+						+ "row-2,f,q2,\"带,逗号和\"\"引号\"\"\n的值\"\n"
+						+ "row-3,f,q3,";
+		List<PutInfo> records = read(csv);
+
+		assertEquals(3, records.size());
+		assertEquals(new PutInfo("row-1", "f", "q1", "plain"), records.get(0));
+		assertEquals(new PutInfo("row-2", "f", "q2", "带,逗号和\"引号\"\n的值"), records.get(1));
+		assertEquals(new PutInfo("row-3", "f", "q3", ""), records.get(2));
+	}
+
+	@Test(expected = InvalidParameterException.class)
+	public void csvReaderRejectsWrongFieldCount() {
+		read("row-1,f,q1\n");
+	}
+
+	@Test
+	public void partitionKeepsLastUploadOfDuplicateCells() throws Exception {
+		List<KeyValue> batch = new ArrayList<>(Arrays.asList(
+						kv("row-2", "q1", "a", 1L),
+						kv("row-1", "q1", "x", 1L),
+						kv("row-2", "q1", "b", 1L),
+						kv("row-2", "q2", "y", 1L),
+						kv("row-2", "q1", "c", 1L)));
+		List<String> out = new ArrayList<>();
+		HBaseBulkLoader.partition(batch, new byte[][]{new byte[0]}, recorder(out));
+
+		//同一批次的时间戳相同，稳定排序保持上传顺序，重复的单元格只保留最后一个
+		assertEquals(Arrays.asList("0:row-1/q1=x", "0:row-2/q1=c", "0:row-2/q2=y", "end 0"), out);
+	}
+
+	@Test
+	public void partitionSplitsByRegionStartKey() throws Exception {
+		List<KeyValue> batch = new ArrayList<>();
+		for (String row : new String[]{"row-7", "row-3", "row-1", "row-6", "row-5", "row-2"}) {
+			batch.add(kv(row, "q1", "v", 1L));
+		}
+		byte[][] startKeys = {new byte[0], Bytes.toBytes("row-3"), Bytes.toBytes("row-6")};
+		List<String> out = new ArrayList<>();
+		HBaseBulkLoader.partition(batch, startKeys, recorder(out));
+
+		//等于起始键的rowkey属于该region，每个region的KeyValue连续、有序
+		assertEquals(Arrays.asList(
+						"0:row-1/q1=v", "0:row-2/q1=v", "end 0",
+						"1:row-3/q1=v", "1:row-5/q1=v", "end 1",
+						"2:row-6/q1=v", "2:row-7/q1=v", "end 2"), out);
+	}
+
+	@Test
+	public void laterSpillsGetNewerTimestamps() throws Exception {
+		List<List<KeyValue>> spills = new ArrayList<>();
+		//缓冲区只有1字节，每个KeyValue单独成批
+		HBaseBulkLoader.SpillBuffer buffer = new HBaseBulkLoader.SpillBuffer(1000L, 1L,
+						batch -> spills.add(new ArrayList<>(batch)));
+		buffer.add(kv("row-1", "q1", "old", buffer.timestamp()));
+		buffer.add(kv("row-1", "q1", "new", buffer.timestamp()));
+		buffer.finish();
+
+		assertEquals(2, buffer.getSpills());
+		KeyValue first = spills.get(0).get(0);
+		KeyValue second = spills.get(1).get(0);
+		assertEquals(1000L, first.getTimestamp());
+		assertEquals(1001L, second.getTimestamp());
+		//跨批次的重复单元格由版本决定，后上传的版本更新
+		assertTrue(KeyValue.COMPARATOR.compare(second, first) < 0);
+	}
+
+	@Test
+	public void cellsBelowBufferSizeShareOneSpill() throws Exception {
+		List<List<KeyValue>> spills = new ArrayList<>();
+		HBaseBulkLoader.SpillBuffer buffer = new HBaseBulkLoader.SpillBuffer(1000L, 1024L * 1024,
+						batch -> spills.add(new ArrayList<>(batch)));
+		for (int i = 0; i < 3; i++) {
+			buffer.add(kv("row-" + i, "q1", "v", buffer.timestamp()));
+		}
+		assertEquals(0, spills.size());
+		buffer.finish();
+
+		assertEquals(1, buffer.getSpills());
+		assertEquals(3, spills.get(0).size());
+		for (KeyValue kv : spills.get(0)) {
+			assertEquals(1000L, kv.getTimestamp());
+		}
+	}
+
+	@Test
+	public void loadWritesOneHFilePerRegionAndInvalidatesCaches() throws Exception {
+		AtomicInteger loads = new AtomicInteger(0);
+		HBaseRowCache.Loader<Result> rowLoader = () -> {
+			loads.incrementAndGet();
+			return Result.create(new Cell[]{kv("row-00000001", "q1", "a", 1L)});
+		};
+		rowCache.getRow("t", "row-00000001", rowLoader);
+		rowCache.getRow("t", "row-00000001", rowLoader);
+		assertEquals(1, loads.get());
+		rowCounter.count("t", false);
+		int scans = cluster.getScans();
+
+		List<File> loaded = new ArrayList<>();
+		HBaseBulkLoader loader = new HBaseBulkLoader(new HBaseTemplate(provider), metadataCache, rowCounter, rowCache,
+						new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true), new ValueEncodingResolver(""),
+						new ObjectMapper(), folder.getRoot().getPath(), 64L * 1024 * 1024, 1) {
+			@Override
+			void bulkLoad(Configuration conf, Path dir, Connection connection, TableName name) {
+				//替身不支持LoadIncrementalHFiles，只检查生成的HFile
+				File[] files = new File(dir.toUri().getPath(), "f").listFiles((d, file) -> !file.endsWith(".crc"));
+				loaded.addAll(Arrays.asList(files));
+			}
+		};
+		//4个region（起始键row-00000250/500/750），其中一个单元格重复
+		String csv = "row-00000001,f,q1,a\n"
+						+ "row-00000300,f,q1,b\n"
+						+ "row-00000600,f,q1,c\n"
+						+ "row-00000900,f,q1,d\n"
+						+ "row-00000001,f,q1,e\n";
+		BulkLoadResult result = loader.load("t", new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+						HBaseBulkLoader.Format.CSV, null);
+
+		assertEquals(5L, result.getRecords());
+		assertEquals(4L, result.getCells());
+		assertEquals(4, result.getHfiles());
+		assertEquals(1, result.getSpills());
+		assertEquals(4, loaded.size());
+
+		rowCounter.count("t", false);
+		assertTrue(cluster.getScans() > scans);
+		rowCache.getRow("t", "row-00000001", rowLoader);
+		assertEquals(2, loads.get());
+		//临时目录已删除
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+	private static KeyValue kv(String row, String qualifier, String value, long timestamp) {
+		return new KeyValue(Bytes.toBytes(row), FAMILY, Bytes.toBytes(qualifier), timestamp, KeyValue.Type.Put, Bytes.toBytes(value));
+	}
+
+	private static HBaseBulkLoader.RegionSink recorder(List<String> out) {
+		return new HBaseBulkLoader.RegionSink() {
+			@Override
+			public void append(int region, KeyValue kv) {
+				out.add(region + ":" + Bytes.toString(kv.getRowArray(), kv.getRowOffset(), kv.getRowLength()) + "/"
+								+ Bytes.toString(kv.getQualifierArray(), kv.getQualifierOffset(), kv.getQualifierLength()) + "="
+								+ Bytes.toString(kv.getValueArray(), kv.getValueOffset(), kv.getValueLength()));
+			}
+
+			@Override
+			public void endRegion(int region) {
+				out.add("end " + region);
+			}
+		};
+	}
+
+	private static List<PutInfo> read(String csv) {
+		List<PutInfo> records = new ArrayList<>();
+		new HBaseBulkLoader.CsvReader(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))).forEachRemaining(records::add);
+		return records;
+	}
+}
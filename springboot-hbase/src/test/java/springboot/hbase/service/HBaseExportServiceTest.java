@@ -0,0 +1,180 @@
+package springboot.hbase.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import springboot.hbase.entity.ExportJob;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HBaseExportServiceTest {
+	private static final int ROWS = 1000;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private HBaseLeaseLeakDetector leakDetector;
+	private HBaseTemplate template;
+	private HBaseParallelScanner parallelScanner;
+	private HBaseMetadataCache metadataCache;
+	private final List<HBaseExportService> services = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		StubHBase.Cluster cluster = StubHBase.cluster(ROWS, 4, 0L);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		template = new HBaseTemplate(new SharedConnectionProvider(cluster::connect, leakDetector));
+		parallelScanner = new HBaseParallelScanner(template, 4, 1000, 1, 4);
+		metadataCache = new HBaseMetadataCache(template, true, 30_000L);
+	}
+
+	@After
+	public void tearDown() {
+		services.forEach(HBaseExportService::destroy);
+		metadataCache.destroy();
+		parallelScanner.destroy();
+		leakDetector.destroy();
+	}
+
+	@Test
+	public void exportsOneOrderedFilePerSliceInBulkLoadFormat() throws Exception {
+		HBaseExportService service = newService();
+		ExportJob job = await(service, service.startJob("t", HBaseExportService.Format.CSV, null, null, null, true).getJobId());
+
+		assertEquals("completed", job.getStatus());
+		assertEquals(4, job.getSlices());
+		assertEquals(4, job.getFiles().size());
+		assertEquals(ROWS, job.getRows());
+
+		List<PutInfo> records = new ArrayList<>();
+		for (String file : job.getFiles()) {
+			try (InputStream in = new GZIPInputStream(new FileInputStream(new File(job.getDirectory(), file)))) {
+				new HBaseBulkLoader.CsvReader(in).forEachRemaining(records::add);
+			}
+		}
+		assertEquals(ROWS * 2, records.size());
+		assertEquals(new PutInfo("row-00000000", "f", "q1", "value-1"), records.get(0));
+		assertEquals(new PutInfo(String.format("row-%08d", ROWS - 1), "f", "q2", "value-99"), records.get(records.size() - 1));
+		for (int i = 1; i < records.size(); i++) {
+			assertTrue(records.get(i - 1).getRowKey().compareTo(records.get(i).getRowKey()) <= 0);
+		}
+	}
+
+	@Test
+	public void concatenatedCsvPartsHaveOneHeader() throws Exception {
+		HBaseExportService service = newService();
+		ExportJob job = await(service, service.startJob("t", HBaseExportService.Format.CSV, null, null, null, false).getJobId());
+
+		ByteArrayOutputStream concatenated = new ByteArrayOutputStream();
+		for (String file : job.getFiles()) {
+			concatenated.write(Files.readAllBytes(new File(job.getDirectory(), file).toPath()));
+		}
+		String csv = new String(concatenated.toByteArray(), StandardCharsets.UTF_8);
+		assertEquals(csv.indexOf("rowkey,family,qualifier,value"), csv.lastIndexOf("rowkey,family,qualifier,value"));
+		assertTrue(csv.startsWith("rowkey,family,qualifier,value\n"));
+
+		List<PutInfo> records = new ArrayList<>();
+		new HBaseBulkLoader.CsvReader(new ByteArrayInputStream(concatenated.toByteArray())).forEachRemaining(records::add);
+		assertEquals(ROWS * 2, records.size());
+	}
+
+	@Test
+	public void finishedJobsAreEvictedAndReloadedFromManifest() throws Exception {
+		HBaseExportService service = newService(0L);
+		ExportJob first = await(service, service.startJob("t", HBaseExportService.Format.NDJSON, null, null, null, true).getJobId());
+		Thread.sleep(5);
+		await(service, service.startJob("t", HBaseExportService.Format.NDJSON, null, null, null, true).getJobId());
+
+		//新任务登记时移除了已结束的第一个任务，再查询时从manifest加载，耗时不再可知
+		ExportJob reloaded = service.getJob(first.getJobId());
+		assertEquals("completed", reloaded.getStatus());
+		assertEquals(ROWS, reloaded.getRows());
+		assertEquals(first.getFiles(), reloaded.getFiles());
+		assertEquals(0L, reloaded.getElapsedMillis());
+	}
+
+	@Test
+	public void resumeAfterRestartExportsOnlyIncompleteSlices() throws Exception {
+		HBaseExportService service = newService();
+		ExportJob job = await(service, service.startJob("t", HBaseExportService.Format.NDJSON, null, null, null, true).getJobId());
+		Map<String, Long> modified = new HashMap<>();
+		for (String file : job.getFiles()) {
+			modified.put(file, new File(job.getDirectory(), file).lastModified());
+		}
+
+		//模拟导出第三个分片时进程退出：manifest仍为running，分片未完成，文件不存在
+		File manifestFile = new File(job.getDirectory(), "_manifest.json");
+		HBaseExportService.Manifest manifest = objectMapper.readValue(manifestFile, HBaseExportService.Manifest.class);
+		HBaseExportService.Slice slice = manifest.getSlices().get(2);
+		slice.setCompleted(false);
+		slice.setRows(0);
+		slice.setCells(0);
+		manifest.setStatus("running");
+		objectMapper.writeValue(manifestFile, manifest);
+		assertTrue(new File(job.getDirectory(), slice.getFile()).delete());
+
+		HBaseExportService restarted = newService();
+		ExportJob interrupted = restarted.getJob(job.getJobId());
+		assertEquals("failed", interrupted.getStatus());
+		assertEquals(3, interrupted.getCompletedSlices());
+		assertEquals(ROWS / 4 * 3, interrupted.getRows());
+
+		restarted.resume(job.getJobId());
+		ExportJob resumed = await(restarted, job.getJobId());
+		assertEquals("completed", resumed.getStatus());
+		assertEquals(job.getFiles(), resumed.getFiles());
+		assertEquals(ROWS, resumed.getRows());
+		for (String file : job.getFiles()) {
+			if (!file.equals(slice.getFile())) {
+				assertEquals(modified.get(file).longValue(), new File(job.getDirectory(), file).lastModified());
+			}
+		}
+		assertFalse(new File(job.getDirectory(), slice.getFile() + ".tmp").exists());
+	}
+
+	private HBaseExportService newService() {
+		return newService(3_600_000L);
+	}
+
+	private HBaseExportService newService(long retentionMillis) {
+		HBaseExportService service = new HBaseExportService(template, parallelScanner, metadataCache,
+						new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true), new ValueEncodingResolver(""), objectMapper,
+						folder.getRoot().getAbsolutePath(), 2, 100, 2, retentionMillis);
+		services.add(service);
+		return service;
+	}
+
+	private static ExportJob await(HBaseExportService service, String jobId) throws Exception {
+		long deadline = System.currentTimeMillis() + 30_000L;
+		ExportJob job = service.getJob(jobId);
+		while ("running".equals(job.getStatus()) && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+			job = service.getJob(jobId);
+		}
+		return job;
+	}
+}
@@ -0,0 +1,87 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * addOrUpdateData的延迟分布：有/无表元数据缓存
+ * <p>
+ * SampleTime模式输出p50/p99等分位数。无缓存时每次写入都向Master查询一次表是否存在，
+ * Connection替身的每次Admin查询、flush都模拟rpcLatencyMicros的延迟。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class HBaseMetadataCacheBenchmark {
+	private static final List<PutInfo> PUTS = Arrays.asList(
+					new PutInfo("row-1", "f", "q1", "v1"),
+					new PutInfo("row-1", "f", "q2", "v2"));
+
+	@Param({"false", "true"})
+	public boolean cacheEnabled;
+
+	@Param({"500"})
+	public long rpcLatencyMicros;
+
+	private HBaseLeaseLeakDetector leakDetector;
+	private HBaseRowCounter rowCounter;
+	private HBaseParallelScanner parallelScanner;
+	private HBaseMetadataCache metadataCache;
+	private HBaseWritePipeline writePipeline;
+	private HBaseService service;
+
+	@Setup
+	public void setUp() {
+		StubHBase.Cluster cluster = StubHBase.cluster(0, 1, rpcLatencyMicros);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		SharedConnectionProvider provider = new SharedConnectionProvider(cluster::connect, leakDetector);
+		HBaseTemplate template = new HBaseTemplate(provider);
+		rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		parallelScanner = new HBaseParallelScanner(template, 2, 16, 1, 4);
+		metadataCache = new HBaseMetadataCache(template, cacheEnabled, 30_000L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						2L * 1024 * 1024, 1000L, 64L * 1024 * 1024);
+		HBaseRowCache rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), false, 0L, 0L);
+		service = new HBaseService(template, rowCounter, parallelScanner, writePipeline, rowCache, metadataCache,
+						new ValueEncodingResolver(""), new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true));
+	}
+
+	@TearDown
+	public void tearDown() {
+		writePipeline.destroy();
+		metadataCache.destroy();
+		parallelScanner.destroy();
+		rowCounter.destroy();
+		leakDetector.destroy();
+	}
+
+	@Benchmark
+	public void addOrUpdateData() throws IOException {
+		service.addOrUpdateData("t", PUTS);
+	}
+}
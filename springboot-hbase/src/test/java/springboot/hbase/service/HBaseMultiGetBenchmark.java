@@ -0,0 +1,93 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 查询keys行：逐个getResultByRowKey（对应逐个调用/getResultByRowKey） vs 一次multiGet
+ * <p>
+ * Connection替身每次get RPC模拟rpcLatencyMicros的延迟，未计入HTTP往返，真实的逐个调用只会更慢。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HBaseMultiGetBenchmark {
+
+	@Param({"1000", "10000"})
+	public int keys;
+
+	@Param({"200"})
+	public long rpcLatencyMicros;
+
+	private HBaseLeaseLeakDetector leakDetector;
+	private HBaseService service;
+	private HBaseRowCounter rowCounter;
+	private HBaseParallelScanner parallelScanner;
+	private HBaseWritePipeline writePipeline;
+	private HBaseMetadataCache metadataCache;
+	private List<String> rowKeys;
+
+	@Setup
+	public void setUp() {
+		StubHBase.Cluster cluster = StubHBase.cluster(keys, 1, rpcLatencyMicros);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		SharedConnectionProvider provider = new SharedConnectionProvider(cluster::connect, leakDetector);
+		HBaseTemplate template = new HBaseTemplate(provider);
+		rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		parallelScanner = new HBaseParallelScanner(template, 2, 16, 1, 4);
+		metadataCache = new HBaseMetadataCache(template, true, 30_000L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						2L * 1024 * 1024, 1000L, 64L * 1024 * 1024);
+		HBaseRowCache rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), false, 0L, 0L);
+		service = new HBaseService(template, rowCounter, parallelScanner, writePipeline, rowCache, metadataCache,
+						new ValueEncodingResolver(""), new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true));
+		rowKeys = new ArrayList<>(keys);
+		for (int i = 0; i < keys; i++) {
+			rowKeys.add(String.format("row-%08d", i));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		writePipeline.destroy();
+		metadataCache.destroy();
+		parallelScanner.destroy();
+		rowCounter.destroy();
+		leakDetector.destroy();
+	}
+
+	@Benchmark
+	public void perKey(Blackhole blackhole) throws IOException {
+		for (String rowKey : rowKeys) {
+			blackhole.consume(service.getResultByRowKey("t", rowKey));
+		}
+	}
+
+	@Benchmark
+	public Object batched() throws IOException {
+		return service.multiGet("t", rowKeys, null);
+	}
+}
@@ -0,0 +1,82 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标开销：行缓存命中的getResultByRowKey（不发RPC，是最轻的操作，开销占比最大）在关闭/开启hbase.metrics时的耗时
+ * <p>
+ * 开启时使用PrometheusMeterRegistry并导出直方图，与生产配置相同。on比off慢的部分应在几个百分点以内；
+ * 分配量用-prof gc对比gc.alloc.rate.norm。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class HBaseOperationMetricsBenchmark {
+
+	@Param({"off", "on"})
+	public String metrics;
+
+	private HBaseLeaseLeakDetector leakDetector;
+	private HBaseRowCounter rowCounter;
+	private HBaseParallelScanner parallelScanner;
+	private HBaseWritePipeline writePipeline;
+	private HBaseMetadataCache metadataCache;
+	private HBaseService service;
+
+	@Setup
+	public void setUp() throws IOException {
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		SharedConnectionProvider provider = new SharedConnectionProvider(StubHBase.cluster(1000)::connect, leakDetector);
+		HBaseTemplate template = new HBaseTemplate(provider);
+		rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		parallelScanner = new HBaseParallelScanner(template, 2, 16, 1, 4);
+		metadataCache = new HBaseMetadataCache(template, true, 30_000L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						2L * 1024 * 1024, 1000L, 64L * 1024 * 1024);
+		HBaseRowCache rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), true, 64L * 1024 * 1024, 600_000L);
+		MeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+		service = new HBaseService(template, rowCounter, parallelScanner, writePipeline, rowCache, metadataCache,
+						new ValueEncodingResolver(""), new HBaseOperationMetrics(registry, "on".equals(metrics), 100, true));
+		service.getResultByRowKey("t", "row-00000001");  //填充缓存
+	}
+
+	@TearDown
+	public void tearDown() {
+		writePipeline.destroy();
+		metadataCache.destroy();
+		parallelScanner.destroy();
+		rowCounter.destroy();
+		leakDetector.destroy();
+	}
+
+	@Benchmark
+	public Object cachedGet() throws IOException {
+		return service.getResultByRowKey("t", "row-00000001");
+	}
+}
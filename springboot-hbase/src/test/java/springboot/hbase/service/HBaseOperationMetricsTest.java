@@ -0,0 +1,89 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import springboot.hbase.exception.ServiceException;
+import springboot.hbase.service.HBaseOperationMetrics.Operation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class HBaseOperationMetricsTest {
+	private SimpleMeterRegistry registry;
+	private HBaseOperationMetrics metrics;
+
+	@Before
+	public void setUp() {
+		registry = new SimpleMeterRegistry();
+		metrics = new HBaseOperationMetrics(registry, true, 2, false);
+	}
+
+	@Test
+	public void recordsLatencyAndErrorsByExceptionType() throws IOException {
+		assertEquals("v", metrics.record(Operation.GET, "t", () -> "v"));
+		try {
+			metrics.record(Operation.GET, "t", () -> {
+				throw new ServiceException("表不存在！");
+			});
+			fail();
+		} catch (ServiceException expected) {
+		}
+
+		assertEquals(1L, registry.get("hbase.operation").tags("operation", "get", "table", "t", "outcome", "success").timer().count());
+		assertEquals(1L, registry.get("hbase.operation").tags("operation", "get", "table", "t", "outcome", "error").timer().count());
+		assertEquals(1.0, registry.get("hbase.operation.errors").tags("exception", "ServiceException").counter().count(), 0.0);
+	}
+
+	@Test
+	public void recordsRowsOnlyForMultiRowOperations() {
+		metrics.recordRows(Operation.SCAN, "t", 10, 30);
+		metrics.recordRows(Operation.GET, "t", 1, 3);
+
+		assertEquals(30.0, registry.get("hbase.operation.cells").tags("operation", "scan").summary().totalAmount(), 0.0);
+		assertEquals(1, registry.find("hbase.operation.rows").summaries().size());
+	}
+
+	@Test
+	public void tablesBeyondLimitShareOneTag() throws IOException {
+		for (String table : new String[]{"a", "b", "c", "d"}) {
+			metrics.record(Operation.GET, table, () -> null);
+		}
+
+		assertEquals(2L, registry.get("hbase.operation").tags("table", "other", "outcome", "success").timer().count());
+	}
+
+	@Test
+	public void concurrentNewTablesNeverExceedLimit() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			int thread = i;
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int j = 0; j < 100; j++) {
+					metrics.record(Operation.GET, "t-" + thread + "-" + j, () -> null);
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		//两个表各自一个标签，其余798个表共用other
+		assertEquals(3, registry.find("hbase.operation").tags("outcome", "success").timers().size());
+		assertEquals(798L, registry.get("hbase.operation").tags("table", "other", "outcome", "success").timer().count());
+	}
+}
@@ -0,0 +1,99 @@
+package springboot.hbase.service;
+
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 全表扫描：单个scanner vs 并行扫描引擎（有序/无序），观察加速比随region数的变化
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HBaseParallelScannerBenchmark {
+
+	@Param({"1", "4", "16", "64"})
+	public int regions;
+
+	@Param({"100000"})
+	public int rows;
+
+	@Param({"200"})
+	public long rpcLatencyMicros;
+
+	private HBaseLeaseLeakDetector leakDetector;
+	private Connection connection;
+	private HBaseParallelScanner parallelScanner;
+
+	@Setup
+	public void setUp() {
+		connection = StubHBase.cluster(rows, regions, rpcLatencyMicros).connect();
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		HBaseTemplate template = new HBaseTemplate(new SharedConnectionProvider(() -> connection, leakDetector));
+		parallelScanner = new HBaseParallelScanner(template, 16, 1000, 1, 16);
+	}
+
+	@TearDown
+	public void tearDown() {
+		parallelScanner.destroy();
+		leakDetector.destroy();
+	}
+
+	@Benchmark
+	public void singleScanner(Blackhole blackhole) throws IOException {
+		Scan scan = new Scan();
+		scan.setCaching(500);
+		try (Table table = connection.getTable(TableName.valueOf("t")); ResultScanner scanner = table.getScanner(scan)) {
+			for (Result result : scanner) {
+				blackhole.consume(result);
+			}
+		}
+	}
+
+	@Benchmark
+	public void parallelOrdered(Blackhole blackhole) throws IOException {
+		parallelScanner.scan("t", cachingScan(), true, result -> {
+			blackhole.consume(result);
+			return true;
+		});
+	}
+
+	@Benchmark
+	public void parallelUnordered(Blackhole blackhole) throws IOException {
+		parallelScanner.scan("t", cachingScan(), false, result -> {
+			blackhole.consume(result);
+			return true;
+		});
+	}
+
+	private static Scan cachingScan() {
+		Scan scan = new Scan();
+		scan.setCaching(500);
+		return scan;
+	}
+}
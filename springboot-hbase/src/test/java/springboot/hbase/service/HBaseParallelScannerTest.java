@@ -0,0 +1,159 @@
+package springboot.hbase.service;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import springboot.hbase.exception.TooManyRequestsException;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HBaseParallelScannerTest {
+	private StubHBase.Cluster cluster;
+	private HBaseLeaseLeakDetector leakDetector;
+	private HBaseParallelScanner parallelScanner;
+
+	@Before
+	public void setUp() {
+		cluster = StubHBase.cluster(1000, 9, 0L);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		HBaseTemplate template = new HBaseTemplate(new SharedConnectionProvider(cluster::connect, leakDetector));
+		//队列容量很小，验证背压下不会丢行或死锁
+		parallelScanner = new HBaseParallelScanner(template, 4, 8, 3, 2);
+	}
+
+	@After
+	public void tearDown() {
+		parallelScanner.destroy();
+		leakDetector.destroy();
+	}
+
+	@Test
+	public void orderedScanReturnsRowsInKeyOrder() throws Exception {
+		List<String> rows = scan(new Scan(), true);
+		assertEquals(1000, rows.size());
+		for (int i = 0; i < rows.size(); i++) {
+			assertEquals(String.format("row-%08d", i), rows.get(i));
+		}
+	}
+
+	@Test
+	public void unorderedScanReturnsEveryRowOnce() throws Exception {
+		List<String> rows = scan(new Scan(), false);
+		assertEquals(1000, rows.size());
+		assertEquals(1000, new HashSet<>(rows).size());
+	}
+
+	@Test
+	public void rangeIsClippedToScanBounds() throws Exception {
+		Scan scan = new Scan(Bytes.toBytes("row-00000150"), Bytes.toBytes("row-00000750"));
+		List<String> rows = scan(scan, true);
+		assertEquals(600, rows.size());
+		assertEquals("row-00000150", rows.get(0));
+		assertEquals("row-00000749", rows.get(599));
+	}
+
+	@Test
+	public void earlyStopReleasesEverySlice() throws Exception {
+		List<String> rows = new ArrayList<>();
+		parallelScanner.scan("t", new Scan(), true, result -> {
+			rows.add(Bytes.toString(result.getRow()));
+			return rows.size() < 10;
+		});
+		assertEquals(10, rows.size());
+		assertEquals(0, cluster.getOpenResources());
+		assertEquals(0, leakDetector.getOutstandingCount());
+	}
+
+	@Test(timeout = 30_000L)
+	public void stalledConsumerDoesNotBlockAnotherScan() throws Exception {
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService client = Executors.newSingleThreadExecutor();
+		try {
+			//第一个扫描的消费方停住不动，它的分片任务都阻塞在已满的队列上
+			Future<?> stalled = client.submit(() -> {
+				parallelScanner.scan("t", new Scan(), true, result -> {
+					started.countDown();
+					Uninterruptibles.awaitUninterruptibly(release);
+					return true;
+				});
+				return null;
+			});
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+
+			List<String> rows = new ArrayList<>();
+			parallelScanner.scan("t", new Scan(), false, result -> rows.add(Bytes.toString(result.getRow())));
+			assertEquals(1000, rows.size());
+
+			release.countDown();
+			stalled.get(10, TimeUnit.SECONDS);
+		} finally {
+			release.countDown();
+			client.shutdownNow();
+		}
+	}
+
+	@Test(timeout = 30_000L)
+	public void rejectsScansBeyondConcurrentJobLimit() throws Exception {
+		//parallelism 4 / max-slices-per-job 2，同时最多2个并行扫描
+		CountDownLatch started = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService clients = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<?>> stalled = new ArrayList<>();
+			for (int i = 0; i < 2; i++) {
+				stalled.add(clients.submit(() -> {
+					parallelScanner.scan("t", new Scan(), true, result -> {
+						started.countDown();
+						Uninterruptibles.awaitUninterruptibly(release);
+						return false;
+					});
+					return null;
+				}));
+			}
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			assertEquals(2, parallelScanner.getActiveJobs());
+
+			try {
+				parallelScanner.scan("t", new Scan(), false, result -> true);
+				throw new AssertionError("超过并行扫描数上限的请求应被拒绝");
+			} catch (TooManyRequestsException expected) {
+				//被拒绝的扫描已归还连接租约
+				assertEquals(2, leakDetector.getOutstandingCount());
+			}
+
+			release.countDown();
+			for (Future<?> future : stalled) {
+				future.get(10, TimeUnit.SECONDS);
+			}
+			assertEquals(0, parallelScanner.getActiveJobs());
+			assertEquals(1000, scan(new Scan(), false).size());
+		} finally {
+			release.countDown();
+			clients.shutdownNow();
+		}
+	}
+
+	private List<String> scan(Scan scan, boolean ordered) throws Exception {
+		List<String> rows = new ArrayList<>();
+		parallelScanner.scan("t", scan, ordered, result -> rows.add(Bytes.toString(result.getRow())));
+		assertEquals(0, cluster.getOpenResources());
+		return rows;
+	}
+}
@@ -0,0 +1,142 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import springboot.hbase.entity.ResultInfo;
+import springboot.hbase.entity.ScanCondition;
+import springboot.hbase.entity.ScanQuery;
+import springboot.hbase.entity.ScanRow;
+import springboot.hbase.entity.ValueEncoding;
+import springboot.hbase.exception.InvalidParameterException;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 条件查询在服务端过滤 vs 全表扫描后在客户端过滤：结果相同，比较返回给客户端的字节数与耗时
+ * <p>
+ * 10000行、4个region，每次RPC延迟200微秒；查询前缀row-00001（1000行）中q2为value-42的行（10行）。
+ **/
+public class HBaseQueryTest {
+	private static final long RPC_LATENCY_MICROS = 200L;
+
+	private StubHBase.Cluster cluster;
+	private HBaseLeaseLeakDetector leakDetector;
+	private SharedConnectionProvider provider;
+	private HBaseRowCounter rowCounter;
+	private HBaseParallelScanner parallelScanner;
+	private HBaseMetadataCache metadataCache;
+	private HBaseWritePipeline writePipeline;
+	private HBaseService service;
+
+	@Before
+	public void setUp() {
+		cluster = StubHBase.cluster(10000, 4, RPC_LATENCY_MICROS, true);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		provider = new SharedConnectionProvider(cluster::connect, leakDetector);
+		HBaseTemplate template = new HBaseTemplate(provider);
+		rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		parallelScanner = new HBaseParallelScanner(template, 4, 1000, 1, 4);
+		metadataCache = new HBaseMetadataCache(template, true, 30_000L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						2L * 1024 * 1024, 1000L, 64L * 1024 * 1024);
+		HBaseRowCache rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), false, 0L, 0L);
+		service = new HBaseService(template, rowCounter, parallelScanner, writePipeline, rowCache, metadataCache,
+						new ValueEncodingResolver(""), new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true));
+	}
+
+	@After
+	public void tearDown() {
+		writePipeline.destroy();
+		metadataCache.destroy();
+		parallelScanner.destroy();
+		rowCounter.destroy();
+		provider.destroy();
+		leakDetector.destroy();
+	}
+
+	@Test
+	public void pushdownReturnsOnlyMatchingCells() throws Exception {
+		List<String> clientSide = new ArrayList<>();
+		service.scanTable("t", null, null, null, 0, row -> {
+			String value = row.getCells().toResultInfos().stream()
+							.filter(info -> "q2".equals(info.getQualifier()))
+							.map(ResultInfo::getValue)
+							.findFirst().orElse(null);
+			if (row.getRowKey().startsWith("row-00001") && "value-42".equals(value)) {
+				clientSide.add(row.getRowKey());
+			}
+		});
+		long clientBytes = cluster.getTransferredBytes();
+
+		ScanQuery query = ScanQuery.builder()
+						.prefix("row-00001")
+						.columns(Collections.singletonList("f:q1"))
+						.conditions(Collections.singletonList(ScanCondition.builder().column("f:q2").op("=").value("value-42").build()))
+						.build();
+		List<ScanRow> rows = new ArrayList<>();
+		assertNull(service.query("t", query, null, rows::add));
+		long queryBytes = cluster.getTransferredBytes() - clientBytes;
+
+		assertEquals(10, clientSide.size());
+		List<String> rowKeys = new ArrayList<>();
+		for (ScanRow row : rows) {
+			rowKeys.add(row.getRowKey());
+			//投影为q1，条件列q2自动加入投影
+			assertEquals(2, row.getCells().size());
+		}
+		assertEquals(clientSide, rowKeys);
+		//服务端过滤只传输前缀内命中条件的行的两列
+		assertTrue(queryBytes * 100 < clientBytes);
+	}
+
+	@Test
+	public void continuationPagesStayWithinPrefix() throws Exception {
+		ScanQuery query = ScanQuery.builder().prefix("row-00001").limit(300).build();
+		List<String> rowKeys = new ArrayList<>();
+		int pages = 0;
+		do {
+			pages++;
+			query.setContinuation(service.query("t", query, null, row -> rowKeys.add(row.getRowKey())));
+		} while (query.getContinuation() != null);
+
+		assertEquals(4, pages);
+		assertEquals(1000, rowKeys.size());
+		assertEquals("row-00001000", rowKeys.get(0));
+		assertEquals("row-00001999", rowKeys.get(999));
+	}
+
+	@Test
+	public void qualifierPrefixAndColumnPagination() throws Exception {
+		List<ScanRow> rows = new ArrayList<>();
+		service.query("t", ScanQuery.builder().startRow("row-00000100").stopRow("row-00000110").columnLimit(1).build(), null, rows::add);
+		assertEquals(10, rows.size());
+		assertEquals("q1", rows.get(0).getCells().toResultInfos().get(0).getQualifier());
+		assertEquals(1, rows.get(0).getCells().size());
+
+		rows.clear();
+		service.query("t", ScanQuery.builder().startRow("row-00000100").stopRow("row-00000110").qualifierPrefix("q2").build(),
+						ValueEncoding.STRING, rows::add);
+		assertEquals(10, rows.size());
+		assertEquals("q2", rows.get(0).getCells().toResultInfos().get(0).getQualifier());
+		assertEquals(1, rows.get(0).getCells().size());
+	}
+
+	@Test(expected = InvalidParameterException.class)
+	public void unsupportedOperatorIsRejected() throws Exception {
+		service.query("t", ScanQuery.builder()
+						.conditions(Collections.singletonList(ScanCondition.builder().column("f:q2").op("like").value("x").build()))
+						.build(), null, row -> {
+		});
+	}
+}
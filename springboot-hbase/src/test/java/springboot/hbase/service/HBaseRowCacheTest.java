@@ -0,0 +1,91 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HBaseRowCacheTest {
+	private HBaseLeaseLeakDetector leakDetector;
+	private HBaseWritePipeline writePipeline;
+	private HBaseRowCache rowCache;
+	private final AtomicInteger loads = new AtomicInteger(0);
+
+	@Before
+	public void setUp() {
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		SharedConnectionProvider provider = new SharedConnectionProvider(StubHBase.cluster(0)::connect, leakDetector);
+		HBaseMetadataCache metadataCache = new HBaseMetadataCache(new HBaseTemplate(provider), false, 0L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						1024L * 1024, 60_000L, 64L * 1024 * 1024);
+		rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), true, 1024L * 1024, 60_000L);
+	}
+
+	@After
+	public void tearDown() {
+		writePipeline.destroy();
+		leakDetector.destroy();
+	}
+
+	@Test
+	public void missingValueIsCachedUntilInvalidated() throws Exception {
+		assertNull(rowCache.getValue("t", "row-1", "f", "q1", this::missing));
+		assertNull(rowCache.getValue("t", "row-1", "f", "q1", this::missing));
+		assertEquals(1, loads.get());
+
+		rowCache.invalidateRows("t", Collections.singletonList("row-1"));
+		assertEquals("v1", Bytes.toString(rowCache.getValue("t", "row-1", "f", "q1", () -> Bytes.toBytes("v1"))));
+	}
+
+	@Test
+	public void valueIsServedFromCachedRow() throws Exception {
+		rowCache.getRow("t", "row-1", this::row);
+		assertEquals("v1", Bytes.toString(rowCache.getValue("t", "row-1", "f", "q1", this::missing)));
+		assertNull(rowCache.getValue("t", "row-1", "f", "q2", this::missing));
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void loadRacingWithInvalidationIsNotCached() throws Exception {
+		//加载期间本节点写入了该行，加载到的旧值不能进入缓存
+		rowCache.getValue("t", "row-1", "f", "q1", () -> {
+			rowCache.invalidateRows("t", Collections.singletonList("row-1"));
+			return Bytes.toBytes("old");
+		});
+		assertEquals("new", Bytes.toString(rowCache.getValue("t", "row-1", "f", "q1", () -> Bytes.toBytes("new"))));
+	}
+
+	@Test
+	public void invalidateTableDropsEveryRow() throws Exception {
+		rowCache.getRow("t", "row-1", this::row);
+		rowCache.getRow("t", "row-2", this::row);
+		rowCache.invalidateTable("t");
+		rowCache.getRow("t", "row-1", this::row);
+		assertEquals(3, loads.get());
+	}
+
+	private byte[] missing() {
+		loads.incrementAndGet();
+		return null;
+	}
+
+	private Result row() {
+		loads.incrementAndGet();
+		return Result.create(new Cell[]{
+						new KeyValue(Bytes.toBytes("row-1"), Bytes.toBytes("f"), Bytes.toBytes("q1"), 1L, Bytes.toBytes("v1"))
+		});
+	}
+}
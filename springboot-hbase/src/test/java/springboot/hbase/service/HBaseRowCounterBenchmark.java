@@ -0,0 +1,92 @@
+package springboot.hbase.service;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 行数统计：原有的单线程全表扫描 vs 按region并行扫描
+ * <p>
+ * Connection替身每次RPC模拟rpcLatencyMicros的延迟，衡量的是region数增加时并行带来的加速，
+ * 与真实集群的绝对耗时不可直接比较。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HBaseRowCounterBenchmark {
+
+	@Param({"1", "8", "32"})
+	public int regions;
+
+	@Param({"100000"})
+	public int rows;
+
+	@Param({"200"})
+	public long rpcLatencyMicros;
+
+	private HBaseLeaseLeakDetector leakDetector;
+	private Connection connection;
+	private HBaseRowCounter rowCounter;
+
+	@Setup
+	public void setUp() {
+		StubHBase.Cluster cluster = StubHBase.cluster(rows, regions, rpcLatencyMicros);
+		connection = cluster.connect();
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		HBaseTemplate template = new HBaseTemplate(new SharedConnectionProvider(() -> connection, leakDetector));
+		//缓存TTL为负数，每次都重新统计
+		rowCounter = new HBaseRowCounter(template, 8, 5000, -1L);
+	}
+
+	@TearDown
+	public void tearDown() {
+		rowCounter.destroy();
+		leakDetector.destroy();
+	}
+
+	/**
+	 * 原countByTableName：单个Scan + FirstKeyOnlyFilter，默认caching
+	 */
+	@Benchmark
+	public long sequential() throws IOException {
+		Scan scan = new Scan();
+		scan.setFilter(new FirstKeyOnlyFilter());
+		long count = 0L;
+		try (Table table = connection.getTable(TableName.valueOf("t")); ResultScanner scanner = table.getScanner(scan)) {
+			for (Result result : scanner) {
+				count += result.size();
+			}
+		}
+		return count;
+	}
+
+	@Benchmark
+	public long regionParallel() throws IOException {
+		return rowCounter.count("t", false);
+	}
+}
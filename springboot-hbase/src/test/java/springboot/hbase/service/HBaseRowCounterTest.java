@@ -0,0 +1,81 @@
+package springboot.hbase.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class HBaseRowCounterTest {
+	private StubHBase.Cluster cluster;
+	private HBaseLeaseLeakDetector leakDetector;
+	private HBaseRowCounter rowCounter;
+
+	@Before
+	public void setUp() {
+		cluster = StubHBase.cluster(1000, 7, 0L);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		HBaseTemplate template = new HBaseTemplate(new SharedConnectionProvider(cluster::connect, leakDetector));
+		rowCounter = new HBaseRowCounter(template, 3, 64, 60_000L);
+	}
+
+	@After
+	public void tearDown() {
+		rowCounter.destroy();
+		leakDetector.destroy();
+	}
+
+	@Test
+	public void sumsEveryRegion() throws Exception {
+		assertEquals(1000L, rowCounter.countByRegions("t"));
+		assertEquals(0, cluster.getOpenResources());
+	}
+
+	@Test
+	public void cachesPerTable() throws Exception {
+		assertEquals(1000L, rowCounter.count("t", false));
+		assertEquals(7, cluster.getScans());  //每个region一次扫描
+
+		assertEquals(1000L, rowCounter.count("t", false));
+		assertEquals(1000L, rowCounter.count("t", true));
+		assertEquals(7, cluster.getScans());
+
+		rowCounter.invalidate("t");
+		assertEquals(1000L, rowCounter.count("t", false));
+		assertEquals(14, cluster.getScans());
+	}
+
+	@Test(timeout = 10_000L)
+	public void invalidateDuringCountDiscardsItsResult() throws Exception {
+		//每次RPC 200ms，统计进行中时失效
+		StubHBase.Cluster slow = StubHBase.cluster(1000, 1, 200_000L, true);
+		HBaseRowCounter counter = new HBaseRowCounter(new HBaseTemplate(new SharedConnectionProvider(slow::connect, leakDetector)),
+						1, 5000, 60_000L);
+		try {
+			Thread counting = new Thread(() -> {
+				try {
+					counter.count("t", false);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			counting.start();
+			while (slow.getScans() == 0) {
+				Thread.sleep(1);
+			}
+			counter.invalidate("t");
+			counting.join();
+
+			assertEquals(1000L, counter.count("t", false));
+			assertEquals(2, slow.getScans());  //失效前开始的统计没有被缓存
+		} finally {
+			counter.destroy();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.exception.ServiceException;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseConnectionBroker;
+import springboot.hbase.util.HBaseConnectionProvider;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.PooledConnectionProvider;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 在Connection替身上并发执行10万次混合调用，验证连接租约与Table/Admin/ResultScanner没有泄漏
+ **/
+public class HBaseServiceSoakTest {
+	private static final int CALLS = 100_000;
+	private static final int THREADS = 8;
+
+	private StubHBase.Cluster cluster;
+	private HBaseLeaseLeakDetector leakDetector;
+
+	@Before
+	public void setUp() {
+		cluster = StubHBase.cluster(3);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+	}
+
+	@After
+	public void tearDown() {
+		leakDetector.destroy();
+	}
+
+	@Test
+	public void pooledModeReleasesEveryLease() throws Exception {
+		HBaseConnectionBroker broker = new HBaseConnectionBroker(4, TimeUnit.SECONDS.toMillis(10), cluster::connect);
+		soak(new PooledConnectionProvider(() -> broker, leakDetector));
+
+		assertEquals(0, broker.getActiveSize());
+		assertTrue(broker.getIdleSize() <= broker.getMaxSize());
+	}
+
+	@Test
+	public void sharedModeClosesEveryResource() throws Exception {
+		SharedConnectionProvider provider = new SharedConnectionProvider(cluster::connect, leakDetector);
+		soak(provider);
+		provider.destroy();
+	}
+
+	private void soak(HBaseConnectionProvider provider) throws Exception {
+		HBaseTemplate template = new HBaseTemplate(provider);
+		HBaseRowCounter rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		HBaseParallelScanner parallelScanner = new HBaseParallelScanner(template, 2, 16, 1, 4);
+		HBaseMetadataCache metadataCache = new HBaseMetadataCache(template, true, 30_000L);
+		HBaseWritePipeline writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						2L * 1024 * 1024, 1000L, 64L * 1024 * 1024);
+		HBaseRowCache rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), true, 1024L * 1024, 30_000L);
+		HBaseService service = new HBaseService(template, rowCounter, parallelScanner, writePipeline, rowCache, metadataCache,
+						new ValueEncodingResolver(""), new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true));
+		List<PutInfo> puts = Arrays.asList(
+						new PutInfo("row-1", "f", "q1", "v1"),
+						new PutInfo("row-1", "f", "q2", "v2"));
+		AtomicInteger next = new AtomicInteger(0);
+		AtomicInteger expectedFailures = new AtomicInteger(0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		Future<?>[] futures = new Future<?>[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			futures[t] = executor.submit(() -> {
+				int i;
+				while ((i = next.getAndIncrement()) < CALLS) {
+					switch (i % 11) {
+						case 0:
+							service.getListTables();
+							break;
+						case 1:
+							service.countByTableName("t");
+							break;
+						case 2:
+							service.getRowKeysByTableName("t");
+							break;
+						case 3:
+							service.getResultByRowKey("t", "row-1");
+							break;
+						case 4:
+							service.getAllFamiliesByTableName("t");
+							break;
+						case 5:
+							service.getDescribeTable("t");
+							break;
+						case 6:
+							service.addOrUpdateData("t", puts);
+							break;
+						case 7:
+							service.getValueByKey("t", "row-1", "f", "q1");
+							break;
+						case 8:
+							service.scanTable("t");
+							break;
+						case 9:
+							service.removeRow("t", Collections.singletonList("row-1"));
+							break;
+						default:
+							//表已存在，回调抛出异常时同样必须归还连接
+							try {
+								service.createTable("t", new String[]{"f"});
+							} catch (ServiceException e) {
+								expectedFailures.incrementAndGet();
+							}
+					}
+				}
+				return null;
+			});
+		}
+		for (Future<?> future : futures) {
+			future.get(5, TimeUnit.MINUTES);
+		}
+		executor.shutdown();
+		rowCounter.destroy();
+		parallelScanner.destroy();
+		writePipeline.destroy();
+		metadataCache.destroy();
+
+		assertEquals(CALLS / 11, expectedFailures.get());
+		assertEquals(0, leakDetector.getOutstandingCount());
+		assertEquals(0, cluster.getOpenResources());
+	}
+}
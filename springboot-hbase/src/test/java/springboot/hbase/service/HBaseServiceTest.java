@@ -0,0 +1,78 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.exception.ServiceException;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HBaseServiceTest {
+	private StubHBase.Cluster cluster;
+	private HBaseLeaseLeakDetector leakDetector;
+	private SharedConnectionProvider provider;
+	private HBaseRowCounter rowCounter;
+	private HBaseParallelScanner parallelScanner;
+	private HBaseMetadataCache metadataCache;
+	private HBaseWritePipeline writePipeline;
+	private HBaseService service;
+
+	@Before
+	public void setUp() {
+		cluster = StubHBase.cluster(3).trackWrites();
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		provider = new SharedConnectionProvider(cluster::connect, leakDetector);
+		HBaseTemplate template = new HBaseTemplate(provider);
+		rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		parallelScanner = new HBaseParallelScanner(template, 4, 1000, 1, 4);
+		metadataCache = new HBaseMetadataCache(template, true, 30_000L);
+		//定时刷写间隔足够长，缓冲区只由显式调用刷写
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						2L * 1024 * 1024, 60_000L, 64L * 1024 * 1024);
+		HBaseRowCache rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), false, 0L, 0L);
+		service = new HBaseService(template, rowCounter, parallelScanner, writePipeline, rowCache, metadataCache,
+						new ValueEncodingResolver(""), new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true));
+	}
+
+	@After
+	public void tearDown() {
+		writePipeline.destroy();
+		metadataCache.destroy();
+		parallelScanner.destroy();
+		rowCounter.destroy();
+		provider.destroy();
+		leakDetector.destroy();
+	}
+
+	@Test(expected = ServiceException.class)
+	public void countOfMissingTableThrows() throws Exception {
+		service.countByTableName("missing", false);
+	}
+
+	@Test
+	public void deleteAfterAsyncWriteIsNotUndoneByLaterFlush() throws Exception {
+		service.addOrUpdateDataAsync("t", Collections.singletonList(new PutInfo("row-new", "f", "q1", "v1")));
+		assertFalse(cluster.hasWrittenRow("row-new"));  //还在缓冲区中
+
+		service.removeRow("t", Collections.singletonList("row-new"));
+		writePipeline.flush("t");
+
+		assertFalse(cluster.hasWrittenRow("row-new"));
+	}
+
+	@Test
+	public void asyncWriteIsAppliedOnFlush() throws Exception {
+		service.addOrUpdateDataAsync("t", Collections.singletonList(new PutInfo("row-new", "f", "q1", "v1")));
+		writePipeline.flush("t");
+
+		assertTrue(cluster.hasWrittenRow("row-new"));
+	}
+}
@@ -0,0 +1,103 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Status;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 预热前后第一个请求需要做的准备工作
+ * <p>
+ * 用替身的计数代替耗时：预热建立共享连接、定位热点表（4个region）的region、加载前100行到行缓存，
+ * 之后的第一个请求不再创建连接，也不再定位region。
+ **/
+public class HBaseWarmupTest {
+	private final AtomicInteger connects = new AtomicInteger(0);
+	private StubHBase.Cluster cluster;
+	private HBaseLeaseLeakDetector leakDetector;
+	private SharedConnectionProvider provider;
+	private HBaseRowCounter rowCounter;
+	private HBaseParallelScanner parallelScanner;
+	private HBaseMetadataCache metadataCache;
+	private HBaseWritePipeline writePipeline;
+	private HBaseService service;
+	private HBaseWarmup warmup;
+
+	@Before
+	public void setUp() {
+		cluster = StubHBase.cluster(1000, 4, 0L);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		provider = new SharedConnectionProvider(() -> {
+			connects.incrementAndGet();
+			return cluster.connect();
+		}, leakDetector);
+		HBaseTemplate template = new HBaseTemplate(provider);
+		rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		parallelScanner = new HBaseParallelScanner(template, 2, 16, 1, 4);
+		metadataCache = new HBaseMetadataCache(template, true, 30_000L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						2L * 1024 * 1024, 1000L, 64L * 1024 * 1024);
+		HBaseRowCache rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), true, 64L * 1024 * 1024, 60_000L);
+		service = new HBaseService(template, rowCounter, parallelScanner, writePipeline, rowCache, metadataCache,
+						new ValueEncodingResolver(""), new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true));
+		warmup = new HBaseWarmup(provider, template, metadataCache, rowCache, true, "t", 100, 4);
+	}
+
+	@After
+	public void tearDown() {
+		writePipeline.destroy();
+		metadataCache.destroy();
+		parallelScanner.destroy();
+		rowCounter.destroy();
+		provider.destroy();
+		leakDetector.destroy();
+	}
+
+	@Test
+	public void warmedUpFirstRequestSkipsConnectionSetup() throws Exception {
+		assertEquals(Status.OUT_OF_SERVICE, warmup.health().getStatus());
+		assertFalse(warmup.awaitReady(0, TimeUnit.MILLISECONDS));
+
+		warmup.warmUp();
+		assertEquals(Status.UP, warmup.health().getStatus());
+		assertEquals("done", warmup.health().getDetails().get("warmup"));
+		assertEquals(1, connects.get());
+		assertEquals(4, cluster.getRegionLookups());
+
+		service.getResultByRowKey("t", "row-00000001");
+		assertEquals(1, connects.get());
+		assertEquals(4, cluster.getRegionLookups());
+	}
+
+	@Test
+	public void coldFirstRequestPaysForConnectionSetup() throws Exception {
+		assertEquals(0, connects.get());
+
+		service.getResultByRowKey("t", "row-00000001");
+		assertEquals(1, connects.get());
+		assertEquals(0, cluster.getRegionLookups());
+	}
+
+	@Test
+	public void failedWarmupStillReportsReady() throws Exception {
+		HBaseWarmup failing = new HBaseWarmup(new SharedConnectionProvider(() -> null, leakDetector),
+						new HBaseTemplate(provider), metadataCache,
+						new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), false, 0L, 0L), true, "t", 0, 1);
+		failing.warmUp();
+
+		assertTrue(failing.awaitReady(0, TimeUnit.MILLISECONDS));
+		assertEquals(Status.UP, failing.health().getStatus());
+		assertEquals("failed", failing.health().getDetails().get("warmup"));
+	}
+}
@@ -0,0 +1,112 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.exception.WriteBufferFullException;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 写入吞吐：原有的每个请求一次table.put vs 写入管道（同步/异步）
+ * <p>
+ * 每个请求写一行的两列，Connection替身每次put/flush模拟rpcLatencyMicros的延迟；
+ * 同步模式下并发请求共享一次flush，异步模式下由缓冲区写满或定时刷写。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class HBaseWritePipelineBenchmark {
+
+	@Param({"1000"})
+	public long rpcLatencyMicros;
+
+	private HBaseLeaseLeakDetector leakDetector;
+	private Connection connection;
+	private HBaseMetadataCache metadataCache;
+	private HBaseWritePipeline writePipeline;
+
+	@Setup
+	public void setUp() {
+		StubHBase.Cluster cluster = StubHBase.cluster(0, 1, rpcLatencyMicros);
+		connection = cluster.connect();
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		SharedConnectionProvider provider = new SharedConnectionProvider(() -> connection, leakDetector);
+		metadataCache = new HBaseMetadataCache(new HBaseTemplate(provider), true, 60_000L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						256L * 1024, 100L, 64L * 1024 * 1024);
+	}
+
+	@TearDown
+	public void tearDown() {
+		writePipeline.destroy();
+		metadataCache.destroy();
+		leakDetector.destroy();
+	}
+
+	/**
+	 * 原addOrUpdateData：每个PutInfo一个Put，每个请求一次table.put
+	 */
+	@Benchmark
+	public void perRequestPut() throws IOException {
+		List<Put> puts = request().stream().map(info -> {
+			Put put = new Put(Bytes.toBytes(info.getRowKey()));
+			put.addColumn(Bytes.toBytes(info.getFamily()), Bytes.toBytes(info.getQualifier()), Bytes.toBytes(info.getValue()));
+			return put;
+		}).collect(Collectors.toList());
+		try (Table table = connection.getTable(TableName.valueOf("t"))) {
+			table.put(puts);
+		}
+	}
+
+	@Benchmark
+	public long pipelineSync() throws IOException {
+		return writePipeline.write("t", request(), false);
+	}
+
+	@Benchmark
+	public long pipelineAsync() throws IOException {
+		try {
+			return writePipeline.write("t", request(), true);
+		} catch (WriteBufferFullException e) {
+			return -1L;
+		}
+	}
+
+	private static List<PutInfo> request() {
+		String rowKey = String.format("row-%08d", ThreadLocalRandom.current().nextInt(1_000_000));
+		List<PutInfo> list = new ArrayList<>(2);
+		list.add(new PutInfo(rowKey, "f", "q1", "value-1"));
+		list.add(new PutInfo(rowKey, "f", "q2", "value-2"));
+		return list;
+	}
+}
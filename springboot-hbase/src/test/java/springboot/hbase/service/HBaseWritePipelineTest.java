@@ -0,0 +1,221 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Put;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.exception.ServiceException;
+import springboot.hbase.exception.WriteBufferFullException;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseConnectionBroker;
+import springboot.hbase.util.HBaseConnectionProvider;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.PooledConnectionProvider;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HBaseWritePipelineTest {
+	private StubHBase.Cluster cluster;
+	private HBaseLeaseLeakDetector leakDetector;
+	private SharedConnectionProvider provider;
+
+	@Before
+	public void setUp() {
+		cluster = StubHBase.cluster(0);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		provider = new SharedConnectionProvider(cluster::connect, leakDetector);
+	}
+
+	@After
+	public void tearDown() {
+		provider.destroy();
+		leakDetector.destroy();
+	}
+
+	@Test
+	public void coalescesCellsOfTheSameRow() {
+		List<Put> puts = HBaseWritePipeline.coalesce(Arrays.asList(
+						new PutInfo("row-2", "f", "q1", "v1"),
+						new PutInfo("row-1", "f", "q1", "v1"),
+						new PutInfo("row-2", "f", "q2", "v2")));
+
+		assertEquals(2, puts.size());
+		assertEquals("row-2", new String(puts.get(0).getRow()));
+		assertEquals(2, puts.get(0).size());
+		assertEquals(1, puts.get(1).size());
+	}
+
+	@Test
+	public void asyncBatchIsPendingUntilFlushed() throws Exception {
+		//定时刷写间隔足够长，只由同步写入触发刷写
+		HBaseWritePipeline pipeline = pipeline(64L * 1024 * 1024);
+		long batchId = pipeline.write("t", Collections.singletonList(new PutInfo("row-1", "f", "q1", "v1")), true);
+		assertEquals("pending", pipeline.getBatchStatus("t", batchId));
+
+		pipeline.write("t", Collections.singletonList(new PutInfo("row-2", "f", "q1", "v1")), false);
+		assertEquals("flushed", pipeline.getBatchStatus("t", batchId));
+		assertEquals("unknown", pipeline.getBatchStatus("t", batchId + 2));
+
+		pipeline.destroy();
+		assertEquals(0, cluster.getOpenResources());
+	}
+
+	@Test(expected = WriteBufferFullException.class)
+	public void rejectsWritesWhenPendingBytesExceedLimit() throws Exception {
+		HBaseWritePipeline pipeline = pipeline(1024L);
+		try {
+			for (int i = 0; i < 100; i++) {
+				pipeline.write("t", Collections.singletonList(new PutInfo("row-" + i, "f", "q1", "v1")), true);
+			}
+		} finally {
+			pipeline.destroy();
+		}
+	}
+
+	@Test
+	public void concurrentWritesNeverExceedPendingLimit() throws Exception {
+		long maxPendingBytes = 16L * 1024;
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		HBaseWritePipeline pipeline = pipeline(maxPendingBytes, registry);
+		int threads = 16;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < 200; i++) {
+						try {
+							pipeline.write("t", Collections.singletonList(new PutInfo("row-" + thread + "-" + i, "f", "q1", "v1")), true);
+						} catch (WriteBufferFullException e) {
+							//达到上限后的拒绝是预期的
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+			double pending = registry.get("hbase.write.pending.bytes.total").gauge().value();
+			assertTrue("未刷写数据" + pending + "字节超过上限", pending <= maxPendingBytes);
+		} finally {
+			executor.shutdownNow();
+			pipeline.destroy();
+		}
+	}
+
+	@Test
+	public void rejectsWritesWhileTableIsDropped() throws Exception {
+		HBaseWritePipeline pipeline = pipeline(64L * 1024 * 1024);
+		pipeline.write("t", Collections.singletonList(new PutInfo("row-1", "f", "q1", "v1")), true);
+		pipeline.beginDrop("t");
+		assertEquals(0, cluster.getOpenResources());  //删除开始时已刷写并关闭BufferedMutator
+		try {
+			pipeline.write("t", Collections.singletonList(new PutInfo("row-2", "f", "q1", "v1")), true);
+			fail("删除期间的写入应被拒绝");
+		} catch (ServiceException e) {
+			assertEquals(0, cluster.getOpenResources());
+		} finally {
+			pipeline.endDrop("t");
+		}
+
+		pipeline.write("t", Collections.singletonList(new PutInfo("row-3", "f", "q1", "v1")), false);
+		pipeline.destroy();
+	}
+
+	@Test
+	public void tableGaugesFollowWriterRecreatedAfterClose() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		HBaseWritePipeline pipeline = pipeline(64L * 1024 * 1024, registry);
+		pipeline.write("t", Collections.singletonList(new PutInfo("row-1", "f", "q1", "v1")), true);
+		assertEquals(1.0, registry.get("hbase.write.pending.batches").tag("table", "t").gauge().value(), 0.0);
+
+		pipeline.close("t");  //删除表
+		assertEquals(0.0, registry.get("hbase.write.pending.batches").tag("table", "t").gauge().value(), 0.0);
+		assertEquals(0.0, registry.get("hbase.write.pending.bytes").tag("table", "t").gauge().value(), 0.0);
+
+		pipeline.write("t", Collections.singletonList(new PutInfo("row-1", "f", "q1", "v1")), true);  //同名的表重新创建
+		assertEquals(1.0, registry.get("hbase.write.pending.batches").tag("table", "t").gauge().value(), 0.0);
+		assertTrue(registry.get("hbase.write.pending.bytes").tag("table", "t").gauge().value() > 0);
+		pipeline.destroy();
+	}
+
+	@Test
+	public void rebuildsMutatorAfterSharedConnectionIsAborted() throws Exception {
+		AtomicInteger connects = new AtomicInteger();
+		SharedConnectionProvider shared = new SharedConnectionProvider(() -> {
+			connects.incrementAndGet();
+			return cluster.connect();
+		}, leakDetector);
+		HBaseWritePipeline pipeline = pipeline(shared, 64L * 1024 * 1024, new SimpleMeterRegistry());
+		long first = pipeline.write("t", Collections.singletonList(new PutInfo("row-1", "f", "q1", "v1")), false);
+		shared.getConnection().abort("test", null);
+
+		long second = pipeline.write("t", Collections.singletonList(new PutInfo("row-2", "f", "q1", "v1")), false);
+
+		assertEquals(2, connects.get());
+		assertEquals("flushed", pipeline.getBatchStatus("t", first));
+		assertEquals("flushed", pipeline.getBatchStatus("t", second));
+		assertEquals(1, cluster.getOpenResources());  //失效连接上的BufferedMutator已关闭
+		pipeline.destroy();
+		shared.destroy();
+		assertEquals(0, cluster.getOpenResources());
+	}
+
+	@Test
+	public void reacquiresPooledConnectionAfterAbort() throws Exception {
+		List<Connection> created = new ArrayList<>();
+		HBaseConnectionBroker broker = new HBaseConnectionBroker(2, 0L, () -> {
+			Connection conn = cluster.connect();
+			created.add(conn);
+			return conn;
+		});
+		HBaseWritePipeline pipeline = pipeline(new PooledConnectionProvider(() -> broker, leakDetector), 64L * 1024 * 1024,
+						new SimpleMeterRegistry());
+		pipeline.write("t", Collections.singletonList(new PutInfo("row-1", "f", "q1", "v1")), false);
+		assertEquals(1, broker.getActiveSize());
+		created.get(0).abort("test", null);
+
+		pipeline.write("t", Collections.singletonList(new PutInfo("row-2", "f", "q1", "v1")), false);
+
+		assertEquals(2L, broker.getCreatedCount());
+		assertEquals(1, broker.getActiveSize());  //失效的连接已归还，仍只占用一个连接
+		pipeline.destroy();
+		assertEquals(0, broker.getActiveSize());
+		broker.shutdown();
+	}
+
+	private HBaseWritePipeline pipeline(long maxPendingBytes) {
+		return pipeline(maxPendingBytes, new SimpleMeterRegistry());
+	}
+
+	private HBaseWritePipeline pipeline(long maxPendingBytes, SimpleMeterRegistry registry) {
+		return pipeline(provider, maxPendingBytes, registry);
+	}
+
+	private HBaseWritePipeline pipeline(HBaseConnectionProvider provider, long maxPendingBytes, SimpleMeterRegistry registry) {
+		HBaseMetadataCache metadataCache = new HBaseMetadataCache(new HBaseTemplate(provider), false, 0L);
+		return new HBaseWritePipeline(provider, metadataCache, registry,
+						1024L * 1024, 60_000L, maxPendingBytes);
+	}
+}
@@ -0,0 +1,62 @@
+package springboot.hbase.service;
+
+import org.apache.hadoop.hbase.client.Put;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import springboot.hbase.entity.PutInfo;
+import springboot.hbase.entity.ValueEncoding;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写入接口的PutInfo到Put转换（HBaseWritePipeline.coalesce）：批量大小1~100k，每行columnsPerRow列
+ * <p>
+ * 每次调用的分配量用-prof gc查看。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PutConversionBenchmark {
+
+	@Param({"1", "100", "10000", "100000"})
+	public int batchSize;
+
+	@Param({"1", "4"})
+	public int columnsPerRow;
+
+	@Param({"string", "base64"})
+	public String encoding;
+
+	private List<PutInfo> batch;
+	private ValueEncoding valueEncoding;
+
+	@Setup
+	public void setUp() {
+		valueEncoding = ValueEncoding.of(encoding);
+		batch = new ArrayList<>(batchSize);
+		for (int i = 0; i < batchSize; i++) {
+			String rowKey = String.format("row-%08d", i / columnsPerRow);
+			String value = valueEncoding == ValueEncoding.BASE64 ? "dmFsdWUtMDAwMDAwMDA=" : "value-00000000";
+			batch.add(new PutInfo(rowKey, "f", "q" + (i % columnsPerRow), value));
+		}
+	}
+
+	@Benchmark
+	public List<Put> coalesce() {
+		return HBaseWritePipeline.coalesce(batch, valueEncoding);
+	}
+}
@@ -0,0 +1,125 @@
+package springboot.hbase.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import springboot.hbase.entity.RowKeyEncoding;
+import springboot.hbase.support.StubHBase;
+import springboot.hbase.util.HBaseLeaseLeakDetector;
+import springboot.hbase.util.SharedConnectionProvider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 列出全表rowkey：整行扫描（原来的getRowKeys） vs 只取key（FirstKeyOnlyFilter+KeyOnlyFilter）的列表与流式输出
+ * <p>
+ * columns=100模拟宽行。每个基准结束时打印每次调用替身集群返回给客户端的字节数（对应网络传输）和流式输出的字节数；
+ * 堆分配用-prof gc对比。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowKeyScanBenchmark {
+
+	@Param({"10000"})
+	public int rows;
+
+	@Param({"2", "100"})
+	public int columns;
+
+	private StubHBase.Cluster cluster;
+	private HBaseLeaseLeakDetector leakDetector;
+	private HBaseRowCounter rowCounter;
+	private HBaseParallelScanner parallelScanner;
+	private HBaseWritePipeline writePipeline;
+	private HBaseMetadataCache metadataCache;
+	private HBaseService service;
+	private long invocations;
+	private long outputBytes;
+
+	@Setup
+	public void setUp() {
+		cluster = StubHBase.cluster(rows, 4, 0L, false, columns);
+		leakDetector = new HBaseLeaseLeakDetector(0);
+		SharedConnectionProvider provider = new SharedConnectionProvider(cluster::connect, leakDetector);
+		HBaseTemplate template = new HBaseTemplate(provider);
+		rowCounter = new HBaseRowCounter(template, 2, 100, 60_000L);
+		parallelScanner = new HBaseParallelScanner(template, 4, 1000, 1, 4);
+		metadataCache = new HBaseMetadataCache(template, true, 30_000L);
+		writePipeline = new HBaseWritePipeline(provider, metadataCache, new SimpleMeterRegistry(),
+						2L * 1024 * 1024, 1000L, 64L * 1024 * 1024);
+		HBaseRowCache rowCache = new HBaseRowCache(writePipeline, new SimpleMeterRegistry(), false, 0L, 0L);
+		service = new HBaseService(template, rowCounter, parallelScanner, writePipeline, rowCache, metadataCache,
+						new ValueEncodingResolver(""), new HBaseOperationMetrics(new SimpleMeterRegistry(), true, 100, true));
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (invocations > 0) {
+			System.out.printf("%n每次调用：集群返回%d字节，输出%d字节%n",
+							cluster.getTransferredBytes() / invocations, outputBytes / invocations);
+		}
+		writePipeline.destroy();
+		metadataCache.destroy();
+		parallelScanner.destroy();
+		rowCounter.destroy();
+		leakDetector.destroy();
+	}
+
+	@Benchmark
+	public List<String> fullRows() throws IOException {
+		invocations++;
+		Scan scan = new Scan();
+		scan.setCaching(500);
+		List<String> list = new ArrayList<>();
+		parallelScanner.scan("t", scan, true, result -> list.add(Bytes.toString(result.getRow())));
+		return list;
+	}
+
+	@Benchmark
+	public List<String> keyOnly() throws IOException {
+		invocations++;
+		return service.getRowKeysByTableName("t", true);
+	}
+
+	@Benchmark
+	public long keyOnlyStreamed() throws IOException {
+		return stream(RowKeyEncoding.PLAIN);
+	}
+
+	@Benchmark
+	public long keyOnlyStreamedFrontCoded() throws IOException {
+		return stream(RowKeyEncoding.FRONT);
+	}
+
+	private long stream(RowKeyEncoding encoding) throws IOException {
+		invocations++;
+		long[] bytes = {0};
+		String[] previous = {null};
+		service.scanRowKeys("t", null, null, null, 0, rowKey -> {
+			bytes[0] += encoding.encode(previous[0], rowKey).getBytes(StandardCharsets.UTF_8).length + 1;
+			previous[0] = rowKey;
+		});
+		outputBytes += bytes[0];
+		return bytes[0];
+	}
+}
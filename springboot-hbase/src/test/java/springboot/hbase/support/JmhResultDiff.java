@@ -0,0 +1,83 @@
+package springboot.hbase.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 对比两次JMH运行的结果（-rf json），逐个基准打印分数与变化百分比，变差超过阈值时以状态码1退出
+ * <p>
+ * 运行：mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=springboot.hbase.support.JmhResultDiff
+ * -Dexec.args="baseline.json target/jmh-result.json 5"
+ * <p>
+ * 同一基准按方法名加@Param参数匹配；thrpt模式分数越高越好，其余模式（avgt、sample、ss）越低越好。
+ **/
+public final class JmhResultDiff {
+	private static final double DEFAULT_THRESHOLD_PERCENT = 5.0;
+
+	private JmhResultDiff() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("用法: JmhResultDiff <baseline.json> <current.json> [阈值百分比，默认5]");
+			System.exit(2);
+		}
+		double threshold = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+		Map<String, JsonNode> baseline = load(new File(args[0]));
+		Map<String, JsonNode> current = load(new File(args[1]));
+
+		int regressions = 0;
+		System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "baseline", "current", "change");
+		for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+			JsonNode now = entry.getValue();
+			JsonNode before = baseline.get(entry.getKey());
+			String unit = now.path("primaryMetric").path("scoreUnit").asText();
+			double score = now.path("primaryMetric").path("score").asDouble();
+			if (before == null) {
+				System.out.printf("%-90s %14s %14.3f %9s  %s%n", entry.getKey(), "-", score, "new", unit);
+				continue;
+			}
+			double old = before.path("primaryMetric").path("score").asDouble();
+			double change = old == 0 ? 0 : (score - old) / old * 100;
+			boolean higherIsBetter = "thrpt".equals(now.path("mode").asText());
+			boolean regressed = higherIsBetter ? change < -threshold : change > threshold;
+			if (regressed) {
+				regressions++;
+			}
+			System.out.printf("%-90s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), old, score, change, unit,
+							regressed ? "  REGRESSION" : "");
+		}
+		for (String removed : baseline.keySet()) {
+			if (!current.containsKey(removed)) {
+				System.out.printf("%-90s %14s %14s %9s%n", removed, "", "-", "removed");
+			}
+		}
+		System.out.printf("%d个基准变差超过%.1f%%%n", regressions, threshold);
+		System.exit(regressions > 0 ? 1 : 0);
+	}
+
+	private static Map<String, JsonNode> load(File file) throws IOException {
+		Map<String, JsonNode> results = new TreeMap<>();
+		for (JsonNode result : new ObjectMapper().readTree(file)) {
+			StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+			Map<String, String> params = new TreeMap<>();
+			Iterator<Map.Entry<String, JsonNode>> fields = result.path("params").fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> param = fields.next();
+				params.put(param.getKey(), param.getValue().asText());
+			}
+			if (!params.isEmpty()) {
+				key.append(params);
+			}
+			key.append(" [").append(result.path("mode").asText()).append(']');
+			results.put(key.toString(), result);
+		}
+		return results;
+	}
+}
@@ -0,0 +1,565 @@
+package springboot.hbase.support;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HRegionLocation;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableNotFoundException;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.BufferedMutator;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Pair;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 不依赖HBase集群的Connection/Table/Admin替身，用于测试和基准测试
+ **/
+public final class StubHBase {
+	private static final Configuration CONF = HBaseConfiguration.create();
+
+	private StubHBase() {
+	}
+
+	/**
+	 * @return 只支持isClosed/close/abort的Connection替身
+	 */
+	public static Connection connection() {
+		AtomicBoolean closed = new AtomicBoolean(false);
+		return proxy(Connection.class, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "isClosed":
+				case "isAborted":
+					return closed.get();
+				case "close":
+				case "abort":
+					closed.set(true);
+					return null;
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	/**
+	 * @param rows 每张表的行数
+	 * @return 所有表内容相同的内存集群替身，每行包含family "f" 下的 "q1"、"q2" 两列，
+	 * q1为"value-1"，q2为"value-"加rowkey的最后两个字符（"row-00000042"为"value-42"）
+	 */
+	public static Cluster cluster(int rows) {
+		return new Cluster(rows, 1, 0L, false, 2);
+	}
+
+	/**
+	 * @param rows             每张表的行数
+	 * @param regions          每张表按行数均分成的region数
+	 * @param rpcLatencyMicros 模拟每次RPC（每次get/put、扫描每拉取一批、BufferedMutator每次flush、Admin查询表）的延迟，单位微秒
+	 * @return 内存集群替身
+	 */
+	public static Cluster cluster(int rows, int regions, long rpcLatencyMicros) {
+		return new Cluster(rows, regions, rpcLatencyMicros, false, 2);
+	}
+
+	/**
+	 * @param rows             每张表的行数
+	 * @param regions          每张表按行数均分成的region数
+	 * @param rpcLatencyMicros 模拟每次RPC的延迟，单位微秒
+	 * @param sleepOnRpc       为true时RPC期间sleep（像真实的网络等待一样让出线程），否则自旋；
+	 *                         高并发等待的场景用sleep，测量单线程开销的场景用自旋以免受sleep精度影响
+	 * @return 内存集群替身
+	 */
+	public static Cluster cluster(int rows, int regions, long rpcLatencyMicros, boolean sleepOnRpc) {
+		return new Cluster(rows, regions, rpcLatencyMicros, sleepOnRpc, 2);
+	}
+
+	/**
+	 * @param rows             每张表的行数
+	 * @param regions          每张表按行数均分成的region数
+	 * @param rpcLatencyMicros 模拟每次RPC的延迟，单位微秒
+	 * @param sleepOnRpc       为true时RPC期间sleep，否则自旋
+	 * @param columns          每行的列数，不少于2；q1、q2之外的q3、q4……的值为"value-"加列序号补齐到64字节，用来模拟宽行
+	 * @return 内存集群替身
+	 */
+	public static Cluster cluster(int rows, int regions, long rpcLatencyMicros, boolean sleepOnRpc, int columns) {
+		return new Cluster(rows, regions, rpcLatencyMicros, sleepOnRpc, Math.max(2, columns));
+	}
+
+	public static final class Cluster {
+		public static final byte[] FAMILY = Bytes.toBytes("f");
+		private static final int DEFAULT_CACHING = 100;
+		private final List<Result> rows = new ArrayList<>();
+		private final byte[][] startKeys;
+		private final byte[][] endKeys;
+		private final long rpcLatencyMicros;
+		private final boolean sleepOnRpc;
+		private final int columns;
+		private final AtomicInteger openResources = new AtomicInteger(0);  //未关闭的Table/Admin/ResultScanner/BufferedMutator
+		private final AtomicLong transferredBytes = new AtomicLong(0);  //扫描返回给客户端的Cell字节数
+		private final AtomicInteger scans = new AtomicInteger(0);  //打开过的ResultScanner数
+		private final AtomicInteger regionLookups = new AtomicInteger(0);  //RegionLocator.getRegionLocation调用数
+		private final Map<String, Boolean> writtenRows = new ConcurrentHashMap<>();  //按写入顺序应用Put/Delete后仍存在的rowkey
+		private volatile boolean trackWrites;
+
+		private Cluster(int rowCount, int regions, long rpcLatencyMicros, boolean sleepOnRpc, int columns) {
+			this.columns = columns;
+			for (int i = 0; i < rowCount; i++) {
+				rows.add(row(Bytes.toBytes(String.format("row-%08d", i))));
+			}
+			this.rpcLatencyMicros = rpcLatencyMicros;
+			this.sleepOnRpc = sleepOnRpc;
+			this.startKeys = new byte[regions][];
+			this.endKeys = new byte[regions][];
+			int perRegion = Math.max(1, rowCount / regions);
+			for (int i = 0; i < regions; i++) {
+				startKeys[i] = i == 0 ? new byte[0] : Bytes.toBytes(String.format("row-%08d", i * perRegion));
+				if (i > 0) {
+					endKeys[i - 1] = startKeys[i];
+				}
+			}
+			endKeys[regions - 1] = new byte[0];
+		}
+
+		/**
+		 * @return 未关闭的Table/Admin/ResultScanner/BufferedMutator数量
+		 */
+		public int getOpenResources() {
+			return openResources.get();
+		}
+
+		/**
+		 * @return 扫描累计返回给客户端的Cell序列化字节数，用来对比服务端过滤与客户端过滤的传输量
+		 */
+		public long getTransferredBytes() {
+			return transferredBytes.get();
+		}
+
+		/**
+		 * @return 累计打开的ResultScanner数，用来确认结果来自缓存而不是重新扫描
+		 */
+		public int getScans() {
+			return scans.get();
+		}
+
+		/**
+		 * @return 累计的region位置查询数，用来确认预热已经定位过热点表的region
+		 */
+		public int getRegionLookups() {
+			return regionLookups.get();
+		}
+
+		/**
+		 * 记录通过Table/BufferedMutator写入的行，供{@link #hasWrittenRow}查询；基准测试不开启，避免额外开销
+		 */
+		public Cluster trackWrites() {
+			trackWrites = true;
+			return this;
+		}
+
+		/**
+		 * 预置的行是只读的，只有开启trackWrites后写入的行按到达服务端的顺序应用Put和Delete
+		 *
+		 * @return 写入过且最后一次到达的变更不是Delete
+		 */
+		public boolean hasWrittenRow(String rowKey) {
+			return writtenRows.containsKey(rowKey);
+		}
+
+		public Connection connect() {
+			AtomicBoolean closed = new AtomicBoolean(false);
+			return proxy(Connection.class, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "getTable":
+						return table((TableName) args[0]);
+					case "getAdmin":
+						return admin();
+					case "getBufferedMutator":
+						return mutator();
+					case "getRegionLocator":
+						return regionLocator((TableName) args[0]);
+					case "getConfiguration":
+						return CONF;
+					case "isClosed":
+					case "isAborted":
+						return closed.get();
+					case "close":
+					case "abort":
+						closed.set(true);
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+		}
+
+		private Table table(TableName tableName) {
+			Runnable release = opened();
+			return proxy(Table.class, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "getName":
+						return tableName;
+					case "getConfiguration":
+						return CONF;
+					case "getTableDescriptor":
+						return descriptor(tableName);
+					case "get":
+						rpc();
+						if (args[0] instanceof Get) {
+							return row(((Get) args[0]).getRow());
+						}
+						List<?> gets = (List<?>) args[0];
+						Result[] results = new Result[gets.size()];
+						for (int i = 0; i < results.length; i++) {
+							results[i] = row(((Get) gets.get(i)).getRow());
+						}
+						return results;
+					case "exists":
+						return true;
+					case "getScanner":
+						return scanner((Scan) args[0]);
+					case "put":
+					case "delete":
+					case "batch":
+						rpc();
+						apply(args[0]);
+						return null;
+					case "close":
+						release.run();
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+		}
+
+		private Admin admin() {
+			Runnable release = opened();
+			return proxy(Admin.class, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "tableExists":
+						rpc();
+						return true;
+					case "listTables":
+						rpc();
+						return new HTableDescriptor[]{descriptor(TableName.valueOf("t"))};
+					case "getTableDescriptor":
+						rpc();
+						if (!"t".equals(((TableName) args[0]).getNameAsString())) {
+							throw new TableNotFoundException((TableName) args[0]);  //与listTables一致，只有表t
+						}
+						return descriptor((TableName) args[0]);
+					case "createTable":
+					case "disableTable":
+					case "enableTable":
+					case "deleteTable":
+					case "addColumn":
+					case "deleteColumn":
+						return null;
+					case "close":
+						release.run();
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+		}
+
+		private RegionLocator regionLocator(TableName tableName) {
+			return proxy(RegionLocator.class, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "getName":
+						return tableName;
+					case "getStartEndKeys":
+						return new Pair<>(startKeys, endKeys);
+					case "getStartKeys":
+						return startKeys;
+					case "getEndKeys":
+						return endKeys;
+					case "getRegionLocation":
+						regionLookups.incrementAndGet();
+						rpc();
+						return location(tableName, (byte[]) args[0]);
+					case "close":
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+		}
+
+		private HRegionLocation location(TableName tableName, byte[] row) {
+			int region = 0;
+			while (region < startKeys.length - 1 && Bytes.compareTo(row, startKeys[region + 1]) >= 0) {
+				region++;
+			}
+			return new HRegionLocation(new HRegionInfo(tableName, startKeys[region], endKeys[region]),
+							ServerName.valueOf("localhost", 16020, 0L));
+		}
+
+		private ResultScanner scanner(Scan scan) throws IOException {
+			scans.incrementAndGet();
+			Runnable release = opened();
+			byte[] startRow = scan.getStartRow();
+			byte[] stopRow = scan.getStopRow();
+			int caching = scan.getCaching() > 0 ? scan.getCaching() : DEFAULT_CACHING;
+			//与RegionServer一样使用反序列化出的Filter副本，并行分片之间不共享Filter的状态
+			Filter filter = scan.getFilter() == null ? null : ProtobufUtil.toFilter(ProtobufUtil.toFilter(scan.getFilter()));
+			List<Result> range = new ArrayList<>();
+			for (Result result : rows) {
+				if (Bytes.compareTo(result.getRow(), startRow) >= 0
+								&& (stopRow.length == 0 || Bytes.compareTo(result.getRow(), stopRow) < 0)) {
+					Result filtered = filter(scan, filter, result);
+					if (filtered != null) {
+						range.add(filtered);
+					}
+				}
+			}
+			//每拉取caching行模拟一次RPC
+			Iterator<Result> iterator = new Iterator<Result>() {
+				private final Iterator<Result> delegate = range.iterator();
+				private int fetched = 0;
+
+				@Override
+				public boolean hasNext() {
+					return delegate.hasNext();
+				}
+
+				@Override
+				public Result next() {
+					if (fetched++ % caching == 0) {
+						rpc();
+					}
+					Result result = delegate.next();
+					long bytes = 0;
+					for (Cell cell : result.rawCells()) {
+						bytes += CellUtil.estimatedSerializedSizeOf(cell);
+					}
+					transferredBytes.addAndGet(bytes);
+					return result;
+				}
+			};
+			return proxy(ResultScanner.class, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "iterator":
+						return iterator;
+					case "next":
+						if (args == null || args.length == 0) {
+							return iterator.hasNext() ? iterator.next() : null;
+						}
+						List<Result> batch = new ArrayList<>();
+						while (batch.size() < (int) args[0] && iterator.hasNext()) {
+							batch.add(iterator.next());
+						}
+						return batch.toArray(new Result[0]);
+					case "close":
+						release.run();
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+		}
+
+		/**
+		 * 模拟RegionServer一侧的处理：时间范围、列投影，再按Filter的调用顺序（filterRowKey、逐个Cell的filterKeyValue、
+		 * filterRowCells、filterRow）过滤
+		 *
+		 * @return 整行被过滤掉时为null
+		 */
+		private static Result filter(Scan scan, Filter filter, Result result) throws IOException {
+			Map<byte[], NavigableSet<byte[]>> familyMap = scan.getFamilyMap();
+			byte[] row = result.getRow();
+			if (filter != null) {
+				filter.reset();
+				if (filter.filterRowKey(row, 0, row.length)) {
+					return null;
+				}
+			}
+			List<Cell> cells = new ArrayList<>();
+			for (Cell cell : result.rawCells()) {
+				if (!scan.getTimeRange().withinTimeRange(cell.getTimestamp())) {
+					continue;
+				}
+				if (!familyMap.isEmpty()) {
+					byte[] family = CellUtil.cloneFamily(cell);
+					if (!familyMap.containsKey(family)) {
+						continue;
+					}
+					NavigableSet<byte[]> qualifiers = familyMap.get(family);
+					if (qualifiers != null && !qualifiers.contains(CellUtil.cloneQualifier(cell))) {
+						continue;
+					}
+				}
+				if (filter != null) {
+					Filter.ReturnCode code = filter.filterKeyValue(cell);
+					if (code == Filter.ReturnCode.NEXT_ROW) {
+						break;
+					}
+					if (code != Filter.ReturnCode.INCLUDE && code != Filter.ReturnCode.INCLUDE_AND_NEXT_COL) {
+						continue;
+					}
+					cell = filter.transformCell(cell);
+				}
+				cells.add(cell);
+			}
+			if (filter != null) {
+				filter.filterRowCells(cells);
+				if (filter.hasFilterRow() && filter.filterRow()) {
+					return null;
+				}
+			}
+			return cells.isEmpty() ? null : Result.create(cells);
+		}
+
+		/**
+		 * 变更留在客户端缓冲区，flush或close时才按顺序到达服务端
+		 */
+		private BufferedMutator mutator() {
+			Runnable release = opened();
+			List<Object> buffer = new ArrayList<>();
+			return proxy(BufferedMutator.class, (proxy, method, args) -> {
+				switch (method.getName()) {
+					case "mutate":
+						if (trackWrites) {
+							synchronized (buffer) {
+								buffer.add(args[0]);
+							}
+						}
+						return null;
+					case "flush":
+						rpc();
+						drain(buffer);
+						return null;
+					case "getWriteBufferSize":
+						return 2L * 1024 * 1024;
+					case "close":
+						drain(buffer);
+						release.run();
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+				}
+			});
+		}
+
+		private void drain(List<Object> buffer) {
+			synchronized (buffer) {
+				buffer.forEach(this::apply);
+				buffer.clear();
+			}
+		}
+
+		/**
+		 * @param mutation Put、Delete或它们的列表
+		 */
+		private void apply(Object mutation) {
+			if (!trackWrites) {
+				return;
+			}
+			if (mutation instanceof List) {
+				((List<?>) mutation).forEach(this::apply);
+			} else if (mutation instanceof Put) {
+				writtenRows.put(Bytes.toString(((Put) mutation).getRow()), Boolean.TRUE);
+			} else if (mutation instanceof Delete) {
+				writtenRows.remove(Bytes.toString(((Delete) mutation).getRow()));
+			}
+		}
+
+		private void rpc() {
+			if (rpcLatencyMicros > 0 && sleepOnRpc) {
+				try {
+					TimeUnit.MICROSECONDS.sleep(rpcLatencyMicros);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			} else if (rpcLatencyMicros > 0) {
+				long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(rpcLatencyMicros);
+				while (System.nanoTime() < deadline) {
+					Thread.yield();
+				}
+			}
+		}
+
+		private Runnable opened() {
+			openResources.incrementAndGet();
+			AtomicBoolean closed = new AtomicBoolean(false);
+			return () -> {
+				if (closed.compareAndSet(false, true)) {
+					openResources.decrementAndGet();
+				}
+			};
+		}
+
+		private Result row(byte[] row) {
+			byte[] suffix = Bytes.tail(row, Math.min(2, row.length));
+			Cell[] cells = new Cell[columns];
+			cells[0] = new KeyValue(row, FAMILY, Bytes.toBytes("q1"), 1L, Bytes.toBytes("value-1"));
+			cells[1] = new KeyValue(row, FAMILY, Bytes.toBytes("q2"), 1L, Bytes.add(Bytes.toBytes("value-"), suffix));
+			for (int i = 2; i < columns; i++) {
+				byte[] value = Arrays.copyOf(Bytes.toBytes("value-" + (i + 1)), 64);
+				cells[i] = new KeyValue(row, FAMILY, Bytes.toBytes("q" + (i + 1)), 1L, value);
+			}
+			//Result中的Cell按qualifier排序，与RegionServer返回的顺序一致
+			Arrays.sort(cells, KeyValue.COMPARATOR);
+			return Result.create(cells);
+		}
+
+		private static HTableDescriptor descriptor(TableName tableName) {
+			HTableDescriptor descriptor = new HTableDescriptor(tableName);
+			descriptor.addFamily(new HColumnDescriptor(FAMILY));
+			return descriptor;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(StubHBase.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+			if (method.getDeclaringClass() == Object.class) {
+				return objectMethod(proxy, method, args);
+			}
+			return handler.invoke(proxy, method, args);
+		});
+	}
+
+	private static Object objectMethod(Object proxy, Method method, Object[] args) {
+		switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				return proxy.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package springboot.hbase.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量操作线程池大小对multi get/put吞吐的影响
+ * <p>
+ * 模拟HBase客户端的AsyncProcess：一次批量操作按RegionServer拆成regionServers个任务提交到线程池并行执行，
+ * 每个任务sleep一次RPC的时间，全部完成后返回。16个调用线程并发；线程池先按默认30线程创建，再resize到poolSize。
+ * 结束时打印排队时间与拒绝（caller-runs）次数。
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class HBaseBatchExecutorBenchmark {
+
+	@Param({"8", "30", "128"})
+	public int poolSize;
+
+	@Param({"10"})
+	public int regionServers;
+
+	@Param({"2000"})
+	public long getLatencyMicros;
+
+	@Param({"5000"})
+	public long putLatencyMicros;
+
+	private HBaseBatchExecutor batchExecutor;
+	private SimpleMeterRegistry registry;
+	private ExecutorService executor;
+
+	@Setup
+	public void setUp() {
+		batchExecutor = new HBaseBatchExecutor(30, 30, 1000, "caller-runs", "platform");
+		registry = new SimpleMeterRegistry();
+		batchExecutor.bindTo(registry);
+		batchExecutor.resize(poolSize, poolSize);
+		executor = batchExecutor.getExecutorService();
+	}
+
+	@TearDown
+	public void tearDown() {
+		System.out.printf("%npoolSize=%d: 平均排队%.2fms, 调用线程执行%d次%n", poolSize,
+						registry.timer("hbase.client.batch.queue.wait").mean(TimeUnit.MILLISECONDS),
+						(long) registry.get("hbase.client.batch.rejected").functionCounter().count());
+		batchExecutor.destroy();
+	}
+
+	@Benchmark
+	public void multiGet() throws Exception {
+		batch(getLatencyMicros);
+	}
+
+	@Benchmark
+	public void multiPut() throws Exception {
+		batch(putLatencyMicros);
+	}
+
+	private void batch(long latencyMicros) throws Exception {
+		List<Future<?>> futures = new ArrayList<>(regionServers);
+		for (int i = 0; i < regionServers; i++) {
+			futures.add(executor.submit(() -> {
+				TimeUnit.MICROSECONDS.sleep(latencyMicros);
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+	}
+}
@@ -0,0 +1,66 @@
+package springboot.hbase.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HBaseBatchExecutorTest {
+	private HBaseBatchExecutor batchExecutor;
+	private SimpleMeterRegistry registry;
+
+	@Before
+	public void setUp() {
+		batchExecutor = new HBaseBatchExecutor(1, 1, 1, "caller-runs", "platform");
+		registry = new SimpleMeterRegistry();
+		batchExecutor.bindTo(registry);
+	}
+
+	@After
+	public void tearDown() {
+		batchExecutor.destroy();
+	}
+
+	@Test
+	public void closingOneConnectionDoesNotShutDownSharedPool() throws Exception {
+		//Connection.close()会关闭它认为属于自己的线程池，共享线程池必须不受影响
+		ExecutorService executor = batchExecutor.getExecutorService();
+		executor.shutdown();
+		executor.shutdownNow();
+
+		assertFalse(executor.isShutdown());
+		assertEquals("ok", executor.submit(() -> "ok").get(10, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void saturatedPoolRunsTaskOnCaller() throws Exception {
+		ExecutorService executor = batchExecutor.getExecutorService();
+		CountDownLatch gate = new CountDownLatch(1);
+		executor.execute(() -> awaitQuietly(gate));  //占用唯一的线程
+		executor.execute(() -> awaitQuietly(gate));  //占满队列
+
+		Thread caller = Thread.currentThread();
+		boolean[] ranOnCaller = {false};
+		executor.execute(() -> ranOnCaller[0] = Thread.currentThread() == caller);
+		gate.countDown();
+
+		assertTrue(ranOnCaller[0]);
+		assertEquals(1L, (long) registry.get("hbase.client.batch.rejected").functionCounter().count());
+	}
+
+	private static void awaitQuietly(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package springboot.hbase.util;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.hadoop.hbase.client.Connection;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import springboot.hbase.support.StubHBase;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HBaseConnectionBrokerTest {
+	private final List<Connection> created = new ArrayList<>();
+	private HBaseConnectionBroker broker;
+
+	@Before
+	public void setUp() {
+		broker = new HBaseConnectionBroker(4, 0L, () -> {
+			Connection conn = StubHBase.connection();
+			created.add(conn);
+			return conn;
+		});
+	}
+
+	@After
+	public void tearDown() {
+		broker.shutdown();
+	}
+
+	@Test(timeout = 10_000L)
+	public void initCreatesConnectionsInParallel() {
+		//前8个连接的创建互相等待，只有8个线程同时创建时才能全部完成
+		CountDownLatch arrived = new CountDownLatch(8);
+		AtomicInteger creating = new AtomicInteger(0);
+		AtomicInteger peak = new AtomicInteger(0);
+		HBaseConnectionBroker parallel = new HBaseConnectionBroker(20, 0L, () -> {
+			peak.accumulateAndGet(creating.incrementAndGet(), Math::max);
+			try {
+				arrived.countDown();
+				Uninterruptibles.awaitUninterruptibly(arrived);
+				return StubHBase.connection();
+			} finally {
+				creating.decrementAndGet();
+			}
+		});
+		try {
+			parallel.initConnections(20, 8);
+
+			assertEquals(20, parallel.getIdleSize());
+			assertEquals(20L, parallel.getCreatedCount());
+			assertEquals(8, peak.get());
+		} finally {
+			parallel.shutdown();
+		}
+	}
+
+	@Test
+	public void initWithOneThreadCreatesConnectionsSequentially() {
+		AtomicInteger creating = new AtomicInteger(0);
+		AtomicInteger peak = new AtomicInteger(0);
+		HBaseConnectionBroker sequential = new HBaseConnectionBroker(20, 0L, () -> {
+			peak.accumulateAndGet(creating.incrementAndGet(), Math::max);
+			try {
+				return StubHBase.connection();
+			} finally {
+				creating.decrementAndGet();
+			}
+		});
+		try {
+			sequential.initConnections(20, 1);
+
+			assertEquals(20, sequential.getIdleSize());
+			assertEquals(1, peak.get());
+		} finally {
+			sequential.shutdown();
+		}
+	}
+
+	@Test
+	public void maintainReplacesBrokenIdleConnections() throws Exception {
+		broker.initConnections(2);
+		created.get(0).abort("test", null);
+
+		broker.maintain(2, 0L);
+
+		assertEquals(2, broker.getIdleSize());
+		assertEquals(1L, broker.getBrokenCount());
+		assertEquals(3L, broker.getCreatedCount());
+		assertEquals(2L, broker.getValidationCount());
+		try (HBaseConnectionBroker.Lease lease = broker.acquire()) {
+			assertFalse(lease.getConnection().isClosed());
+		}
+	}
+
+	@Test
+	public void maintainEvictsIdleConnectionsDownToMinIdle() throws Exception {
+		broker.initConnections(4);
+		Thread.sleep(20);
+
+		broker.maintain(1, 10L);
+
+		assertEquals(1, broker.getIdleSize());
+		assertEquals(3L, broker.getEvictedCount());
+		assertEquals(3L, created.stream().filter(Connection::isClosed).count());
+	}
+
+	@Test
+	public void maintainKeepsRecentlyReleasedConnections() throws Exception {
+		broker.initConnections(2);
+		Thread.sleep(20);
+		broker.acquire().close();  //刚归还的连接不算空闲超时
+
+		broker.maintain(0, 10L);
+
+		assertEquals(1, broker.getIdleSize());
+		try (HBaseConnectionBroker.Lease lease = broker.acquire()) {
+			assertTrue(created.contains(lease.getConnection()));
+			assertFalse(lease.getConnection().isClosed());
+		}
+	}
+
+	@Test(timeout = 10_000L)
+	public void idleConnectionsStayLeasableWhileBeingValidated() throws Exception {
+		CountDownLatch validating = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		HBaseConnectionBroker blocking = new HBaseConnectionBroker(4, 0L, () -> {
+			Connection conn = StubHBase.connection();
+			created.add(conn);
+			//校验（isAborted）时阻塞，模拟维护线程正在校验
+			return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+							(proxy, method, args) -> {
+								if ("isAborted".equals(method.getName())) {
+									validating.countDown();
+									release.await();
+								}
+								try {
+									return method.invoke(conn, args);
+								} catch (InvocationTargetException e) {
+									throw e.getCause();
+								}
+							});
+		});
+		try {
+			blocking.initConnections(1);
+			Thread maintainer = new Thread(() -> blocking.maintain(1, 0L));
+			maintainer.start();
+			assertTrue(validating.await(5, TimeUnit.SECONDS));
+
+			try (HBaseConnectionBroker.Lease lease = blocking.acquire()) {
+				assertFalse(lease.getConnection().isClosed());
+			}
+			release.countDown();
+			maintainer.join();
+
+			assertEquals(1L, blocking.getCreatedCount());
+			assertEquals(1, blocking.getIdleSize());
+		} finally {
+			release.countDown();
+			blocking.shutdown();
+		}
+	}
+
+	@Test
+	public void maintainDoesNotExceedMaxSize() {
+		HBaseConnectionBroker.Lease first = broker.acquire();
+		HBaseConnectionBroker.Lease second = broker.acquire();
+		HBaseConnectionBroker.Lease third = broker.acquire();
+
+		broker.maintain(4, 0L);
+
+		assertEquals(1, broker.getIdleSize());
+		first.close();
+		second.close();
+		third.close();
+	}
+}
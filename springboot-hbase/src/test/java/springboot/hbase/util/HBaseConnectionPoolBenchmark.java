@@ -0,0 +1,142 @@
+package springboot.hbase.util;
+
+import org.apache.hadoop.hbase.client.Connection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import springboot.hbase.support.StubHBase;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 连接池在竞争下的租借/归还吞吐量：HBaseConnectionBroker vs 原有的加锁+wait实现
+ * <p>
+ * 运行：mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=springboot.hbase.util.HBaseConnectionPoolBenchmark
+ **/
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HBaseConnectionPoolBenchmark {
+
+	@Param({"broker", "legacy"})
+	public String pool;
+
+	@Param({"20"})
+	public int maxSize;
+
+	private HBaseConnectionBroker broker;
+	private LegacyPool legacy;
+
+	@Setup
+	public void setUp() {
+		if ("broker".equals(pool)) {
+			broker = new HBaseConnectionBroker(maxSize, TimeUnit.SECONDS.toMillis(30), StubHBase::connection);
+			broker.initConnections(maxSize);
+		} else {
+			legacy = new LegacyPool(maxSize);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (broker != null) {
+			broker.shutdown();
+		}
+	}
+
+	@Benchmark
+	public Connection checkoutAndRelease() throws InterruptedException {
+		if (broker != null) {
+			try (HBaseConnectionBroker.Lease lease = broker.acquire()) {
+				return lease.getConnection();
+			}
+		}
+		String id = legacy.getConnection();
+		Connection connection = legacy.active.get(id);
+		legacy.releaseConnection(id);
+		return connection;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		for (int threads : new int[]{8, 32, 128}) {
+			new Runner(new OptionsBuilder()
+							.include(HBaseConnectionPoolBenchmark.class.getSimpleName())
+							.threads(threads)
+							.build()).run();
+		}
+	}
+
+	/**
+	 * 原HBaseConnectionPool的租借算法：全局锁取第一个空闲连接，没有空闲连接时在类锁上wait后重试。
+	 * 原实现是无超时的wait()，通知丢失时线程会永久挂起；这里加了10ms上限让基准测试能够结束，
+	 * 因此得到的是对原实现偏乐观的结果。
+	 */
+	static final class LegacyPool {
+		private final ConcurrentHashMap<String, Connection> idle = new ConcurrentHashMap<>();
+		private final ConcurrentHashMap<String, Connection> active = new ConcurrentHashMap<>();
+		private final AtomicInteger idleSize = new AtomicInteger(0);
+		private final AtomicInteger activeSize = new AtomicInteger(0);
+		private final Lock lock = new ReentrantLock();
+		private final Object monitor = new Object();
+
+		LegacyPool(int size) {
+			for (int i = 0; i < size; i++) {
+				idle.put(UUID.randomUUID().toString(), StubHBase.connection());
+				idleSize.incrementAndGet();
+			}
+		}
+
+		String getConnection() throws InterruptedException {
+			while (true) {
+				lock.lock();
+				try {
+					if (idleSize.get() > 0) {
+						Map.Entry<String, Connection> entry = idle.entrySet().iterator().next();
+						String key = entry.getKey();
+						idle.remove(key);
+						idleSize.decrementAndGet();
+						active.put(key, entry.getValue());
+						activeSize.incrementAndGet();
+						return key;
+					}
+				} finally {
+					lock.unlock();
+				}
+				synchronized (monitor) {
+					monitor.wait(10);
+				}
+			}
+		}
+
+		void releaseConnection(String id) {
+			Connection connection = active.remove(id);
+			idle.put(id, connection);
+			idleSize.incrementAndGet();
+			activeSize.decrementAndGet();
+			synchronized (monitor) {
+				monitor.notify();
+			}
+		}
+	}
+}